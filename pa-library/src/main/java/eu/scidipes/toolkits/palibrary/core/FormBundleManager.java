@@ -1,11 +1,11 @@
 package eu.scidipes.toolkits.palibrary.core;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashSet;
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.log4j.Logger;
 
@@ -13,12 +13,19 @@ import com.rits.cloning.Cloner;
 
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationException;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
-import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.impl.BundleMetadata;
 import eu.scidipes.toolkits.palibrary.interfaces.Bundle;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor;
+import eu.scidipes.toolkits.palibrary.interfaces.TemplateDiscoveryState;
 
 /**
+ * Holds the template bundles discovered by the installed {@link PreservationDatasourceProcessor}s. Discovery runs in
+ * the background once {@link #startDiscovery() started}; lookups never wait for it, but see only those templates
+ * loaded so far. Once discovery has completed, setting the system property <code>pa.templates.watch</code> to
+ * <code>true</code> watches the template source directories and reloads sources as they change.
+ * 
  * @author Simon Berriman
  * @author Tom Bunting
  * 
@@ -28,42 +35,94 @@ public class FormBundleManager {
 	/** Logger */
 	private static final Logger LOG = Logger.getLogger(FormBundleManager.class);
 	private static final Cloner CLONER = new Cloner();
-	private static final FormBundleManager SINGLETON;
+	private static final FormBundleManager SINGLETON = new FormBundleManager();
 
-	static {
-		try {
-			SINGLETON = new FormBundleManager();
-		} catch (final PreservationException e) {
-			throw new ExceptionInInitializerError(e);
-		}
+	/** How long {@link #shutdown()} waits for the discovery thread to finish */
+	private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Starts discovering template bundles on a background thread, if not already started. Bundles become available
+	 * one at a time as they are loaded.
+	 * 
+	 * @return a future which completes once discovery has finished
+	 */
+	public static Future<Void> startDiscovery() {
+		return SINGLETON.start();
 	}
 
 	/**
-	 * @return
+	 * Stops the background work of the manager: template discovery if it is still running, interrupting its thread,
+	 * and the template source watcher if one was started, waiting briefly for each to finish. Neither is restarted
+	 * afterwards, e.g. by a later lookup; intended to be called once, when the library is shut down.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the background threads to finish
+	 */
+	public static void shutdown() throws InterruptedException {
+		SINGLETON.stop();
+	}
+
+	/**
+	 * @return the progress of template discovery
+	 */
+	public static TemplateDiscoveryState getDiscoveryState() {
+		return SINGLETON.state;
+	}
+
+	/**
+	 * @return the bundles discovered so far
 	 */
 	public static Set<? extends Bundle> getDiscoveredBundles() {
-		synchronized (SINGLETON) {
-			return Collections.unmodifiableSet(new LinkedHashSet<>(SINGLETON.bundles));
-		}
+		return SINGLETON.snapshot().getBundles();
 	}
 
 	/**
+	 * Returns a deep copy of a whole template bundle, for use as the structure of a new dataset.
 	 * 
 	 * @param bundleName
 	 * @return
 	 * @throws PreservationException
 	 */
 	public static FormsBundle getEmptyBundleFor(final String bundleName) throws PreservationException {
-		final FormsBundle bundleToFetch = new FormsBundleImpl(bundleName, "_");
+		/* Template bundles are never modified once discovered, so need not be locked while cloned: */
+		return CLONER.deepClone(getBundle(bundleName));
+	}
 
-		synchronized (SINGLETON) {
-			final int bundleIdx = SINGLETON.bundles.indexOf(bundleToFetch);
-			if (bundleIdx < 0) {
-				throw new PreservationException(bundleName + " not found");
-			}
-			final FormsBundle masterBundle = SINGLETON.bundles.get(bundleIdx);
-			return CLONER.deepClone(masterBundle);
+	/**
+	 * Returns a read-only view of a single template form, looked up by bundle and form name without copying anything.
+	 * 
+	 * @param bundleName
+	 *            the name of the template bundle
+	 * @param formName
+	 *            the name of the form within the bundle
+	 * @return the template form
+	 * @throws PreservationException
+	 *             if there is no such bundle or form
+	 */
+	public static Form getTemplateForm(final String bundleName, final String formName) throws PreservationException {
+		final TemplateRegistry.Snapshot snapshot = SINGLETON.snapshot();
+
+		if (snapshot.getBundle(bundleName) == null) {
+			throw notFound(bundleName);
+		}
+		final Form template = snapshot.getTemplateForm(bundleName, formName);
+		if (template == null) {
+			throw new PreservationException(formName + " not found in " + bundleName);
 		}
+		return template;
+	}
+
+	/**
+	 * Returns the metadata of a template bundle, without copying its forms.
+	 * 
+	 * @param bundleName
+	 *            the name of the template bundle
+	 * @return the bundle's metadata
+	 * @throws PreservationException
+	 *             if there is no such bundle
+	 */
+	public static BundleMetadata getBundleMetadata(final String bundleName) throws PreservationException {
+		return new BundleMetadata(getBundle(bundleName));
 	}
 
 	/**
@@ -75,40 +134,147 @@ public class FormBundleManager {
 	 * @throws PreservationInitialisationException
 	 */
 	public static boolean deleteBundle(final FormsBundle bundle) throws PreservationInitialisationException {
-		synchronized (SINGLETON.bundles) {
-			return SINGLETON.bundles.remove(bundle);
-		}
+		return deleteBundle(bundle.getBundleName());
+	}
+
+	/**
+	 * Removes a bundle from the internal collection by name
+	 * 
+	 * @param bundleName
+	 *            the name of the bundle to delete
+	 * @return boolean indicating the success of the operation
+	 */
+	public static boolean deleteBundle(final String bundleName) {
+		return SINGLETON.registry.remove(bundleName);
 	}
 
 	public static void addBundle(final FormsBundle bundle) {
-		synchronized (SINGLETON.bundles) {
-			SINGLETON.bundles.add(bundle);
+		SINGLETON.registry.add(bundle);
+	}
+
+	private static FormsBundle getBundle(final String bundleName) throws PreservationException {
+		final FormsBundle bundle = SINGLETON.snapshot().getBundle(bundleName);
+		if (bundle == null) {
+			throw notFound(bundleName);
+		}
+		return bundle;
+	}
+
+	private static PreservationException notFound(final String bundleName) {
+		if (SINGLETON.state == TemplateDiscoveryState.LOADING) {
+			return new PreservationException(bundleName + " not found; templates are still loading");
 		}
+		return new PreservationException(bundleName + " not found");
 	}
 
-	private final List<FormsBundle> bundles = new ArrayList<>();
+	private final TemplateRegistry registry = new TemplateRegistry();
 
-	/**
-	 * @throws PreservationException
-	 */
-	private FormBundleManager() throws PreservationException {
-		discoverBundles();
+	private volatile TemplateDiscoveryState state = TemplateDiscoveryState.NOT_STARTED;
+
+	private FutureTask<Void> discovery;
+
+	private Thread discoveryThread;
+
+	private TemplateSourceWatcher watcher;
+
+	private boolean stopped;
+
+	private FormBundleManager() {
 		LOG.debug("FormBundleManager created");
 	}
 
 	/**
-	 * @throws PreservationException
+	 * Lookups made before discovery has been started explicitly (i.e. outside a Spring context) start it themselves
 	 */
-	private void discoverBundles() throws PreservationException {
-		// Wipe any existing known bundles
-		bundles.clear();
+	private TemplateRegistry.Snapshot snapshot() {
+		if (state == TemplateDiscoveryState.NOT_STARTED) {
+			start();
+		}
+		return registry.snapshot();
+	}
 
-		// Get discovered processors
-		final Map<String, PreservationDatasourceProcessor> processors = SourceProcessorManager.INSTANCE.getProcessors();
+	private synchronized Future<Void> start() {
+		if (discovery == null) {
+			discovery = new FutureTask<>(new Callable<Void>() {
+				@Override
+				public Void call() throws InterruptedException {
+					discoverBundles();
+					return null;
+				}
+			});
+			state = TemplateDiscoveryState.LOADING;
 
-		// Add their respective bundles to the list of all known bundles
-		for (final String processorName : processors.keySet()) {
-			bundles.addAll(processors.get(processorName).discoverBundles());
+			discoveryThread = new Thread(discovery, "template-discovery");
+			discoveryThread.setDaemon(true);
+			discoveryThread.start();
+		}
+		return discovery;
+	}
+
+	private void stop() throws InterruptedException {
+		final Thread thread;
+		final TemplateSourceWatcher sourceWatcher;
+		synchronized (this) {
+			stopped = true;
+			if (discovery == null) {
+				/* Never started; make sure a late lookup does not start it either: */
+				discovery = new FutureTask<>(new Runnable() {
+					@Override
+					public void run() {
+						/* Nothing to discover once stopped */
+					}
+				}, null);
+			}
+			discovery.cancel(true);
+			thread = discoveryThread;
+			sourceWatcher = watcher;
+		}
+		if (thread != null) {
+			thread.join(STOP_TIMEOUT_MILLIS);
+			if (thread.isAlive()) {
+				LOG.warn("Template discovery did not stop within " + STOP_TIMEOUT_MILLIS + "ms");
+			}
+		}
+		if (sourceWatcher != null) {
+			sourceWatcher.stop();
+		}
+	}
+
+	private void discoverBundles() throws InterruptedException {
+		try {
+			// Get discovered processors
+			final Map<String, PreservationDatasourceProcessor> processors = SourceProcessorManager.INSTANCE
+					.getProcessors();
+
+			// Discover their bundles in parallel, adding each to the list of known bundles as soon as it is loaded
+			new TemplateDiscovery(processors, registry).discover();
+
+			state = TemplateDiscoveryState.READY;
+			LOG.info("Template discovery complete");
+
+			if (Boolean.getBoolean("pa.templates.watch")) {
+				watchSources(processors);
+			}
+
+		} catch (final InterruptedException e) {
+			state = TemplateDiscoveryState.FAILED;
+			LOG.info("Template discovery interrupted before it completed");
+			throw e;
+		} catch (final RuntimeException | Error e) {
+			state = TemplateDiscoveryState.FAILED;
+			LOG.error("Template discovery failed", e);
+			throw e;
+		}
+	}
+
+	private synchronized void watchSources(final Map<String, PreservationDatasourceProcessor> processors) {
+		if (stopped) {
+			return;
+		}
+		try {
+			watcher = TemplateSourceWatcher.start(processors.values(), registry);
+		} catch (final IOException e) {
+			LOG.error("Could not watch template sources for changes", e);
 		}
 	}
 }
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor;
+
+/**
+ * Discovers the template bundles of a set of processors in parallel on a bounded {@link ForkJoinPool}. The source
+ * files of each {@link AbstractFileSourceProcessor} are processed as separate tasks: concurrently if the processor
+ * {@link AbstractFileSourceProcessor#supportsConcurrentProcessing() supports it}, otherwise one after another, while
+ * still running alongside the files of other processors. Any other processor's {@link
+ * PreservationDatasourceProcessor#discoverBundles()} is run as a single task.
+ * <p>
+ * Bundles are added to a {@link TemplateRegistry} as soon as each task completes, so that templates become available
+ * one at a time while the remainder are still loading. Each task is abandoned if it runs for longer than a per-file
+ * timeout, and the time taken by every task is logged in a report once discovery completes.
+ * <p>
+ * The pool size and timeout are read from the system properties <code>pa.templates.discoveryThreads</code> and
+ * <code>pa.templates.fileTimeoutSeconds</code> when the class is loaded. The pool size defaults to the value of
+ * {@link Runtime#availableProcessors()} at that time, and is never less than one; the timeout defaults to 120
+ * seconds.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class TemplateDiscovery {
+
+	private static final Logger LOG = Logger.getLogger(TemplateDiscovery.class);
+
+	private static final int PARALLELISM = Math.max(1,
+			Integer.getInteger("pa.templates.discoveryThreads", Runtime.getRuntime().availableProcessors()).intValue());
+
+	private static final long FILE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong(
+			"pa.templates.fileTimeoutSeconds", 120).longValue());
+
+	/**
+	 * The discovery of a single source: its outcome, and how long it took once started
+	 */
+	private final class SourceTask extends FutureTask<Set<FormsBundle>> {
+
+		private final String label;
+
+		private volatile long startNanos;
+
+		private volatile long elapsedNanos = -1;
+
+		private String outcome = "not run";
+
+		SourceTask(final String label, final Callable<Set<FormsBundle>> callable) {
+			super(callable);
+			this.label = label;
+		}
+
+		@Override
+		public void run() {
+			startNanos = System.nanoTime();
+			try {
+				super.run();
+			} finally {
+				elapsedNanos = System.nanoTime() - startNanos;
+			}
+		}
+
+		/**
+		 * Publishes the task's bundles to the registry as soon as it completes, unless it failed or was abandoned
+		 */
+		@Override
+		protected void done() {
+			if (isCancelled()) {
+				return;
+			}
+			try {
+				final Set<FormsBundle> bundles = get();
+				registry.addAll(bundles);
+				bundleCount.addAndGet(bundles.size());
+			} catch (final ExecutionException | InterruptedException e) {
+				/* Failures are reported once all tasks have been awaited */
+			}
+		}
+
+		/**
+		 * @return how much longer the task may run before timing out, or the whole timeout if it has not started
+		 */
+		long remainingNanos() {
+			final long started = startNanos;
+			return started == 0 ? fileTimeoutNanos : fileTimeoutNanos - (System.nanoTime() - started);
+		}
+
+		@Override
+		public String toString() {
+			final long elapsed = elapsedNanos;
+			final String time = elapsed < 0 ? "-" : TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms";
+			return String.format("%-60s %10s  %s", label, time, outcome);
+		}
+	}
+
+	private final Map<String, PreservationDatasourceProcessor> processors;
+
+	private final TemplateRegistry registry;
+
+	private final long fileTimeoutNanos;
+
+	private final AtomicInteger bundleCount = new AtomicInteger();
+
+	private final List<SourceTask> tasks = new ArrayList<>();
+
+	/** The tasks of each file source processor, whose caches are pruned if all of its sources were processed */
+	private final Map<AbstractFileSourceProcessor, List<SourceTask>> fileProcessorTasks = new LinkedHashMap<>();
+
+	/**
+	 * @param processors
+	 *            the processors whose bundles are to be discovered, keyed by name
+	 * @param registry
+	 *            the registry to add discovered bundles to
+	 */
+	TemplateDiscovery(final Map<String, PreservationDatasourceProcessor> processors, final TemplateRegistry registry) {
+		this(processors, registry, FILE_TIMEOUT_NANOS);
+	}
+
+	/**
+	 * @param processors
+	 *            the processors whose bundles are to be discovered, keyed by name
+	 * @param registry
+	 *            the registry to add discovered bundles to
+	 * @param fileTimeoutNanos
+	 *            how long each source may take before it is abandoned
+	 */
+	TemplateDiscovery(final Map<String, PreservationDatasourceProcessor> processors, final TemplateRegistry registry,
+			final long fileTimeoutNanos) {
+		this.processors = processors;
+		this.registry = registry;
+		this.fileTimeoutNanos = fileTimeoutNanos;
+	}
+
+	/**
+	 * Discovers the bundles of every processor, adding each to the registry as it is loaded, and waits for all to
+	 * complete or time out. Sources which fail or time out are logged and skipped.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting, in which case outstanding tasks are abandoned
+	 */
+	void discover() throws InterruptedException {
+		final long started = System.nanoTime();
+		final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+
+		try {
+			for (final PreservationDatasourceProcessor processor : processors.values()) {
+				submit(pool, processor);
+			}
+			collect();
+			pruneCaches();
+		} finally {
+			pool.shutdownNow();
+			report(System.nanoTime() - started);
+		}
+	}
+
+	private void submit(final ForkJoinPool pool, final PreservationDatasourceProcessor processor) {
+		if (!(processor instanceof AbstractFileSourceProcessor)) {
+			final SourceTask task = new SourceTask(processor.getName(), new Callable<Set<FormsBundle>>() {
+				@Override
+				public Set<FormsBundle> call() throws PreservationInitialisationException {
+					return processor.discoverBundles();
+				}
+			});
+			tasks.add(task);
+			pool.execute(task);
+			return;
+		}
+
+		final AbstractFileSourceProcessor fileProcessor = (AbstractFileSourceProcessor) processor;
+		final List<File> sources;
+		try {
+			sources = fileProcessor.listSources();
+		} catch (final PreservationInitialisationException e) {
+			LOG.warn("Processor " + processor.getName() + " could not list its sources", e);
+			return;
+		}
+
+		final List<SourceTask> processorTasks = new ArrayList<>();
+		for (final File source : sources) {
+			processorTasks.add(new SourceTask(processor.getName() + ": " + source.getName(),
+					new Callable<Set<FormsBundle>>() {
+						@Override
+						public Set<FormsBundle> call() throws PreservationInitialisationException {
+							return Collections.singleton(fileProcessor.processSource(source));
+						}
+					}));
+		}
+		tasks.addAll(processorTasks);
+		fileProcessorTasks.put(fileProcessor, processorTasks);
+
+		if (fileProcessor.supportsConcurrentProcessing()) {
+			for (final SourceTask task : processorTasks) {
+				pool.execute(task);
+			}
+		} else {
+			/* Run the processor's files one after another; a cancelled (timed out) task does nothing when run: */
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (final SourceTask task : processorTasks) {
+						if (pool.isShutdown()) {
+							return;
+						}
+						task.run();
+						/* Clear the interrupt of a task cancelled as timed out, which would otherwise fail the next: */
+						Thread.interrupted();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * @param label
+	 *            the label of a task, i.e. the name of its processor, followed for a file source processor by a colon
+	 *            and the file name
+	 * @return the outcome of the task as reported once discovery completes, or <code>null</code> if there is no task
+	 *         with the label
+	 */
+	String getOutcome(final String label) {
+		for (final SourceTask task : tasks) {
+			if (task.label.equals(label)) {
+				return task.outcome;
+			}
+		}
+		return null;
+	}
+
+	private void collect() throws InterruptedException {
+		/* A bound on the whole discovery, which only a source ignoring cancellation could reach: */
+		final long deadline = System.nanoTime() + fileTimeoutNanos * Math.max(1, tasks.size());
+
+		for (final SourceTask task : tasks) {
+			try {
+				await(task, deadline);
+				task.outcome = "ok";
+			} catch (final TimeoutException e) {
+				task.cancel(true);
+				task.outcome = "timed out";
+				LOG.warn("Discovery of " + task.label + " timed out and was abandoned");
+			} catch (final CancellationException e) {
+				task.outcome = "cancelled";
+			} catch (final ExecutionException e) {
+				task.outcome = "failed: " + e.getCause();
+				LOG.warn("Discovery of " + task.label + " failed", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Prunes the cache of each file source processor none of whose sources was abandoned; the cached bundle of an
+	 * abandoned source might otherwise be pruned as stale.
+	 */
+	private void pruneCaches() {
+		for (final Map.Entry<AbstractFileSourceProcessor, List<SourceTask>> entry : fileProcessorTasks.entrySet()) {
+			boolean complete = true;
+			for (final SourceTask task : entry.getValue()) {
+				complete &= !task.isCancelled();
+			}
+			if (complete) {
+				entry.getKey().pruneCache();
+			}
+		}
+	}
+
+	private static void await(final SourceTask task, final long deadline) throws InterruptedException,
+			ExecutionException, TimeoutException {
+		while (true) {
+			final long wait = Math.min(task.remainingNanos(), deadline - System.nanoTime());
+			if (wait <= 0) {
+				throw new TimeoutException();
+			}
+			try {
+				task.get(wait, TimeUnit.NANOSECONDS);
+				return;
+			} catch (final TimeoutException e) {
+				/* Keep waiting if the task was queued for some of that time rather than running: */
+				continue;
+			}
+		}
+	}
+
+	private void report(final long elapsedNanos) {
+		if (!LOG.isInfoEnabled()) {
+			return;
+		}
+
+		final List<SourceTask> slowestFirst = new ArrayList<>(tasks);
+		Collections.sort(slowestFirst, new Comparator<SourceTask>() {
+			@Override
+			public int compare(final SourceTask o1, final SourceTask o2) {
+				return Long.compare(o2.elapsedNanos, o1.elapsedNanos);
+			}
+		});
+
+		final StringBuilder report = new StringBuilder();
+		report.append(String.format("Template discovery of %d bundles from %d sources took %d ms with %d threads:",
+				Integer.valueOf(bundleCount.get()), Integer.valueOf(tasks.size()),
+				Long.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)), Integer.valueOf(PARALLELISM)));
+		for (final SourceTask task : slowestFirst) {
+			report.append(System.lineSeparator()).append("  ").append(task);
+		}
+		LOG.info(report);
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import eu.scidipes.toolkits.palibrary.impl.UnmodifiableFormsBundle;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Registry of template bundles keyed by bundle name. The registry's contents are held in an immutable
+ * {@link Snapshot}, which is replaced atomically on every change: readers simply take the current snapshot and never
+ * block, while writers build a modified copy and publish it by compare-and-set, retrying if another change won the
+ * race. Lookups are hash lookups whatever the number of templates; changes are rare (discovery and administrator
+ * uploads or deletes) so the cost of copying on write is immaterial.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class TemplateRegistry {
+
+	/**
+	 * An immutable view of the registry's contents at one point in time
+	 */
+	static final class Snapshot {
+
+		private static final Snapshot EMPTY = new Snapshot(new LinkedHashMap<String, FormsBundle>(),
+				new HashMap<String, Map<String, Form>>());
+
+		/** Template bundles by bundle name, in the order they were added */
+		private final Map<String, FormsBundle> bundles;
+
+		/** Read-only views of each bundle's template forms, by bundle name then form name */
+		private final Map<String, Map<String, Form>> templateForms;
+
+		private final Set<FormsBundle> bundleSet;
+
+		private Snapshot(final LinkedHashMap<String, FormsBundle> bundles,
+				final Map<String, Map<String, Form>> templateForms) {
+			this.bundles = Collections.unmodifiableMap(bundles);
+			this.templateForms = Collections.unmodifiableMap(templateForms);
+			this.bundleSet = Collections.unmodifiableSet(new LinkedHashSet<>(bundles.values()));
+		}
+
+		/**
+		 * @return all bundles, in the order they were added
+		 */
+		Set<FormsBundle> getBundles() {
+			return bundleSet;
+		}
+
+		/**
+		 * @return the named bundle, or null if there is none
+		 */
+		FormsBundle getBundle(final String bundleName) {
+			return bundles.get(bundleName);
+		}
+
+		/**
+		 * @return the read-only view of the named form in the named bundle, or null if there is none
+		 */
+		Form getTemplateForm(final String bundleName, final String formName) {
+			final Map<String, Form> forms = templateForms.get(bundleName);
+			return forms == null ? null : forms.get(formName);
+		}
+
+		private Snapshot with(final Collection<? extends FormsBundle> added) {
+			final LinkedHashMap<String, FormsBundle> newBundles = new LinkedHashMap<>(bundles);
+			final Map<String, Map<String, Form>> newForms = new HashMap<>(templateForms);
+
+			for (final FormsBundle bundle : added) {
+				final Map<String, Form> forms = new HashMap<>();
+				for (final Form form : new UnmodifiableFormsBundle(bundle).getForms()) {
+					forms.put(form.getName(), form);
+				}
+				newBundles.put(bundle.getBundleName(), bundle);
+				newForms.put(bundle.getBundleName(), Collections.unmodifiableMap(forms));
+			}
+			return new Snapshot(newBundles, newForms);
+		}
+
+		private Snapshot without(final String bundleName) {
+			final LinkedHashMap<String, FormsBundle> newBundles = new LinkedHashMap<>(bundles);
+			final Map<String, Map<String, Form>> newForms = new HashMap<>(templateForms);
+
+			newBundles.remove(bundleName);
+			newForms.remove(bundleName);
+			return new Snapshot(newBundles, newForms);
+		}
+	}
+
+	private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+	/**
+	 * @return the current contents of the registry
+	 */
+	Snapshot snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * Adds bundles to the registry, replacing any existing bundles with the same names
+	 * 
+	 * @param bundles
+	 *            the bundles to add
+	 */
+	void addAll(final Collection<? extends FormsBundle> bundles) {
+		Snapshot before;
+		Snapshot after;
+		do {
+			before = current.get();
+			after = before.with(bundles);
+		} while (!current.compareAndSet(before, after));
+	}
+
+	/**
+	 * Adds a bundle to the registry, replacing any existing bundle with the same name
+	 * 
+	 * @param bundle
+	 *            the bundle to add
+	 */
+	void add(final FormsBundle bundle) {
+		addAll(Collections.singleton(bundle));
+	}
+
+	/**
+	 * Removes a bundle from the registry
+	 * 
+	 * @param bundleName
+	 *            the name of the bundle to remove
+	 * @return true if the bundle was present
+	 */
+	boolean remove(final String bundleName) {
+		Snapshot before;
+		do {
+			before = current.get();
+			if (before.getBundle(bundleName) == null) {
+				return false;
+			}
+		} while (!current.compareAndSet(before, before.without(bundleName)));
+		return true;
+	}
+
+	/**
+	 * Replaces one bundle with another in a single atomic change, so that readers see either the old bundle or the new
+	 * one but never neither
+	 * 
+	 * @param oldBundleName
+	 *            the name of the bundle to remove, or null if there is none
+	 * @param bundle
+	 *            the bundle to add, or null to only remove the old bundle
+	 */
+	void replace(final String oldBundleName, final FormsBundle bundle) {
+		Snapshot before;
+		Snapshot after;
+		do {
+			before = current.get();
+			after = oldBundleName == null ? before : before.without(oldBundleName);
+			if (bundle != null) {
+				after = after.with(Collections.singleton(bundle));
+			}
+		} while (!current.compareAndSet(before, after));
+	}
+
+	/**
+	 * Removes every bundle from the registry
+	 */
+	void clear() {
+		current.set(Snapshot.EMPTY);
+	}
+
+}
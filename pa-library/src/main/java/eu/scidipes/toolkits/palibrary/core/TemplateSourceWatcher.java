@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.core;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
+import eu.scidipes.toolkits.palibrary.interfaces.Bundle;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor;
+
+/**
+ * Watches the source directory of each {@link AbstractFileSourceProcessor} and reprocesses any source file which is
+ * created, modified or deleted, swapping the affected bundle into a {@link TemplateRegistry} without a restart or a
+ * full rediscovery. Events are debounced: a file is only reprocessed once it has been left alone for
+ * <code>pa.templates.watch.debounceMillis</code> (default 500ms), so a file still being written is processed once, not
+ * repeatedly. If a changed file cannot be processed, the bundle previously loaded from it is kept.
+ * <p>
+ * Files whose names begin with a '.' are ignored. A watcher runs until it is {@link #stop() stopped}.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class TemplateSourceWatcher implements Runnable {
+
+	private static final Logger LOG = Logger.getLogger(TemplateSourceWatcher.class);
+
+	static final long DEBOUNCE_MILLIS = Long.getLong("pa.templates.watch.debounceMillis", 500).longValue();
+
+	/** How long {@link #stop()} waits for the watcher thread to finish */
+	private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Starts watching the source directories of the passed processors on a daemon thread
+	 * 
+	 * @param processors
+	 *            the processors whose sources to watch; those which are not file based are ignored
+	 * @param registry
+	 *            the registry into which to swap reloaded bundles
+	 * @return the running watcher
+	 * @throws IOException
+	 *             if the directories could not be watched
+	 */
+	static TemplateSourceWatcher start(final Collection<PreservationDatasourceProcessor> processors,
+			final TemplateRegistry registry) throws IOException {
+		final TemplateSourceWatcher watcher = new TemplateSourceWatcher(FileSystems.getDefault().newWatchService(),
+				registry);
+
+		try {
+			for (final PreservationDatasourceProcessor processor : processors) {
+				if (processor instanceof AbstractFileSourceProcessor) {
+					watcher.register((AbstractFileSourceProcessor) processor);
+				}
+			}
+		} catch (final IOException | RuntimeException e) {
+			watcher.watchService.close();
+			throw e;
+		}
+
+		watcher.thread.start();
+		return watcher;
+	}
+
+	private final WatchService watchService;
+
+	private final TemplateRegistry registry;
+
+	private final Thread thread;
+
+	private final Map<WatchKey, AbstractFileSourceProcessor> processors = new HashMap<>();
+
+	/** Changed files awaiting reprocessing, with the time at which each is next due */
+	private final Map<Path, Long> pending = new LinkedHashMap<>();
+
+	/** The name of the bundle last loaded from each source file */
+	private final Map<Path, String> bundleNames = new HashMap<>();
+
+	private TemplateSourceWatcher(final WatchService watchService, final TemplateRegistry registry) {
+		this.watchService = watchService;
+		this.registry = registry;
+		this.thread = new Thread(this, "template-source-watcher");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Stops watching: closes the watch service, which ends the watcher thread, and waits briefly for the thread to
+	 * finish. Changes not yet reprocessed are abandoned.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the watcher thread to finish
+	 */
+	void stop() throws InterruptedException {
+		try {
+			watchService.close();
+		} catch (final IOException e) {
+			LOG.warn("Could not close template source watch service (" + e + ")");
+		}
+		/* In case the thread is reprocessing a source rather than waiting on the watch service: */
+		thread.interrupt();
+
+		thread.join(STOP_TIMEOUT_MILLIS);
+		if (thread.isAlive()) {
+			LOG.warn("Template source watcher did not stop within " + STOP_TIMEOUT_MILLIS + "ms");
+		}
+	}
+
+	private void register(final AbstractFileSourceProcessor processor) throws IOException {
+		final File directory;
+		try {
+			directory = processor.getSourceDirectory();
+		} catch (final PreservationInitialisationException e) {
+			LOG.warn("Not watching sources of processor " + processor.getName() + ": " + e.getMessage());
+			return;
+		}
+
+		final WatchKey key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		processors.put(key, processor);
+		LOG.info("Watching template sources in: " + directory);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				final WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(untilNextDue(),
+						TimeUnit.MILLISECONDS);
+				if (key != null) {
+					queueEvents(key);
+				}
+				processDue();
+			}
+		} catch (final ClosedWatchServiceException e) {
+			LOG.info("Template source watcher closed");
+		} catch (final InterruptedException e) {
+			LOG.info("Template source watcher interrupted");
+		}
+	}
+
+	private void queueEvents(final WatchKey key) {
+		final Path directory = (Path) key.watchable();
+
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				/* Events were lost, so recheck every file in the directory: */
+				LOG.warn("Template source events lost in: " + directory + ", rechecking all sources");
+				final File[] files = directory.toFile().listFiles();
+				if (files != null) {
+					for (final File file : files) {
+						queue(file.toPath());
+					}
+				}
+			} else {
+				queue(directory.resolve((Path) event.context()));
+			}
+		}
+
+		if (!key.reset()) {
+			LOG.warn("No longer watching template sources in: " + directory);
+			processors.remove(key);
+		}
+	}
+
+	private void queue(final Path source) {
+		if (!source.getFileName().toString().startsWith(".")) {
+			/* Re-inserting moves the file to the end of the queue, behind those which have settled for longer: */
+			pending.remove(source);
+			pending.put(source, Long.valueOf(System.currentTimeMillis() + DEBOUNCE_MILLIS));
+		}
+	}
+
+	private long untilNextDue() {
+		return Math.max(1, pending.values().iterator().next().longValue() - System.currentTimeMillis());
+	}
+
+	private void processDue() {
+		final long now = System.currentTimeMillis();
+
+		for (final Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry<Path, Long> entry = it.next();
+			if (entry.getValue().longValue() > now) {
+				break;
+			}
+			it.remove();
+
+			final AbstractFileSourceProcessor processor = processorFor(entry.getKey());
+			if (processor != null) {
+				reload(processor, entry.getKey());
+			}
+		}
+	}
+
+	private AbstractFileSourceProcessor processorFor(final Path source) {
+		for (final Map.Entry<WatchKey, AbstractFileSourceProcessor> entry : processors.entrySet()) {
+			if (source.getParent().equals(entry.getKey().watchable())) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	private void reload(final AbstractFileSourceProcessor processor, final Path source) {
+		final File file = source.toFile();
+		final String oldBundleName = bundleNames.containsKey(source) ? bundleNames.get(source) : findBundleName(
+				processor, file.getName());
+
+		if (!file.isFile() || !file.canRead()) {
+			bundleNames.remove(source);
+			if (oldBundleName != null) {
+				registry.replace(oldBundleName, null);
+				LOG.info("Removed template bundle " + oldBundleName + " as its source was deleted: " + file);
+			}
+			return;
+		}
+
+		try {
+			final FormsBundle bundle = processor.processSource(file);
+			registry.replace(oldBundleName, bundle);
+			bundleNames.put(source, bundle.getBundleName());
+			LOG.info("Reloaded template bundle " + bundle.getBundleName() + " from changed source: " + file);
+
+		} catch (final PreservationInitialisationException | RuntimeException e) {
+			LOG.warn("Could not reload changed source: " + file + ", keeping any previously loaded bundle", e);
+		}
+	}
+
+	/**
+	 * Finds the bundle loaded from a source before it was first seen by this watcher, i.e. at discovery, preferring one
+	 * from the same processor if several processors have sources of the same name
+	 */
+	private String findBundleName(final AbstractFileSourceProcessor processor, final String fileName) {
+		String bundleName = null;
+		for (final Bundle bundle : registry.snapshot().getBundles()) {
+			if (fileName.equals(bundle.getTemplateSource())) {
+				if (processor.getName().equals(bundle.getProcessorName())) {
+					return bundle.getBundleName();
+				}
+				bundleName = bundle.getBundleName();
+			}
+		}
+		return bundleName;
+	}
+
+}
@@ -17,7 +17,11 @@
 package eu.scidipes.toolkits.palibrary.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -29,6 +33,11 @@ import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor
 /**
  * Base implementation of {@link PreservationDatasourceProcessor} to provide common source file loading functionality.
  * Subclasses must provide their own processing logic.
+ * <p>
+ * The bundle compiled from each source file is cached beneath <code>&lt;sources&gt;/.cache</code>, keyed by a digest
+ * of the file and of the processor's {@link #getCacheConfiguration() configuration}, so that unchanged sources are not
+ * reprocessed at the next startup. Caching may be disabled by setting the system property
+ * <code>pa.templates.cache</code> to <code>false</code>.
  * 
  * @author Tom Bunting
  * 
@@ -37,13 +46,79 @@ public abstract class AbstractFileSourceProcessor implements PreservationDatasou
 
 	private static final Logger LOG = Logger.getLogger(AbstractFileSourceProcessor.class);
 
-	/*
-	 * (non-Javadoc)
+	private static final boolean CACHE_ENABLED = Boolean.parseBoolean(System.getProperty("pa.templates.cache", "true"));
+
+	/** The cache of compiled sources, replaced whenever the sources are listed */
+	private volatile TemplateSnapshotCache cache;
+
+	/**
+	 * Discovers bundles by processing each of the files returned by {@link #listSources()} in turn. A file which cannot
+	 * be processed is logged and skipped.
 	 * 
 	 * @see eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor#discoverBundles()
 	 */
 	@Override
 	public Set<FormsBundle> discoverBundles() throws PreservationInitialisationException {
+		final Set<FormsBundle> bundles = new HashSet<>();
+
+		for (final File source : listSources()) {
+			try {
+				bundles.add(processSource(source));
+			} catch (final Exception e) {
+				LOG.warn("Processor " + getClass().getSimpleName() + " encountered an error processing source file: "
+						+ source.toString());
+				LOG.warn(e.toString(), e);
+			}
+		}
+
+		pruneCache();
+		return bundles;
+	}
+
+	/**
+	 * Lists the readable source files in this processor's sub-folder of the sources directory defined by the system
+	 * property <code>pa.sources.path</code>, creating the sub-folder if it does not exist.
+	 * 
+	 * @return the source files, sorted by name
+	 * @throws PreservationInitialisationException
+	 *             if the sources directory does not exist or is not writable
+	 */
+	public List<File> listSources() throws PreservationInitialisationException {
+		final File subFolder = getSourceDirectory();
+
+		final List<File> sources = new ArrayList<>();
+		final File[] files = subFolder.listFiles();
+
+		if (files != null) {
+			for (final File source : files) {
+				if (!source.isDirectory() && source.canRead()) {
+					sources.add(source);
+				}
+			}
+		}
+
+		if (sources.isEmpty()) {
+			LOG.info("No source files found for processor: " + getClass().getSimpleName());
+		}
+
+		Collections.sort(sources);
+
+		if (CACHE_ENABLED) {
+			final File cacheRoot = new File(subFolder.getParentFile(), ".cache");
+			cache = new TemplateSnapshotCache(new File(cacheRoot, subFolder.getName()), getCacheConfiguration());
+		}
+		return sources;
+	}
+
+	/**
+	 * Gets this processor's sub-folder of the sources directory defined by the system property
+	 * <code>pa.sources.path</code>, creating the sub-folder if it does not exist.
+	 * 
+	 * @return the directory holding this processor's source files
+	 * @throws PreservationInitialisationException
+	 *             if the sources directory does not exist or is not writable
+	 */
+	public File getSourceDirectory() throws PreservationInitialisationException {
 		final String sourceRootPath = System.getProperty("pa.sources.path");
 
 		final File sourceRoot = new File(sourceRootPath);
@@ -62,33 +137,97 @@ public abstract class AbstractFileSourceProcessor implements PreservationDatasou
 			LOG.info("Created source subdirectory '" + subFolder.toString() + "' for processor: " + processorId);
 		}
 
-		final Set<FormsBundle> bundles = new HashSet<>();
+		return subFolder;
+	}
 
-		if (subFolder.list().length > 0) {
+	/**
+	 * Processes a single source file into a bundle, which is informed of the file it came from. The bundle is loaded
+	 * from the cache if the file is unchanged since it was last processed. Unless the processor
+	 * {@link #supportsConcurrentProcessing() supports concurrent processing}, calls from different threads are
+	 * serialised.
+	 * 
+	 * @param source
+	 *            a file in the {@link #getSourceDirectory() source directory}
+	 * @return the bundle
+	 * @throws PreservationInitialisationException
+	 *             if the file could not be processed
+	 */
+	public FormsBundle processSource(final File source) throws PreservationInitialisationException {
+		if (supportsConcurrentProcessing()) {
+			return processSourceWithCache(source);
+		}
+		synchronized (this) {
+			return processSourceWithCache(source);
+		}
+	}
 
-			for (final File source : subFolder.listFiles()) {
-				if (!source.isDirectory() && source.canRead()) {
-					try {
-						final FormsBundle bundle = sourceToBundle(source);
-
-						/* Use the file name to inform the bundle of its source: */
-						((FormsBundleImpl) bundle).setTemplateSource(source.getName());
-						bundles.add(bundle);
-						LOG.info("Successfully processed source file: " + source.toString() + " with processor: "
-								+ processorId);
-					} catch (final Exception e) {
-						LOG.warn("Processor " + processorId + " encountered an error processing source file: "
-								+ source.toString());
-						LOG.warn(e.toString(), e);
-					}
-				}
+	private FormsBundle processSourceWithCache(final File source) throws PreservationInitialisationException {
+		final TemplateSnapshotCache sourceCache = cache;
+
+		String digest = null;
+		FormsBundle bundle = null;
+
+		if (sourceCache != null) {
+			try {
+				digest = sourceCache.digest(source);
+				bundle = sourceCache.load(digest);
+			} catch (final IOException e) {
+				throw new PreservationInitialisationException("Could not read source file: " + source, e);
 			}
+		}
 
+		if (bundle != null) {
+			LOG.info("Loaded cached bundle for source file: " + source.toString() + " with processor: "
+					+ getClass().getSimpleName());
 		} else {
-			LOG.info("No source files found for processor: " + processorId);
+			bundle = sourceToBundle(source);
+			LOG.info("Successfully processed source file: " + source.toString() + " with processor: "
+					+ getClass().getSimpleName());
+
+			if (digest != null) {
+				sourceCache.store(digest, bundle);
+			}
 		}
 
-		return bundles;
+		/* Use the file name to inform the bundle of its source: */
+		((FormsBundleImpl) bundle).setTemplateSource(source.getName());
+
+		return bundle;
+	}
+
+	/**
+	 * Deletes the cached bundles of sources which have been changed or removed, i.e. those not looked up since the
+	 * sources were last {@link #listSources() listed}. Call once every listed source has been processed.
+	 */
+	public void pruneCache() {
+		final TemplateSnapshotCache sourceCache = cache;
+		if (sourceCache != null) {
+			sourceCache.prune();
+		}
+	}
+
+	/**
+	 * Describes everything besides a source file's content which affects the bundle compiled from it, so that cached
+	 * bundles are not reused once it changes. Called each time the sources are {@link #listSources() listed}.
+	 * Processors whose output depends on further settings or files must override this method, adding them to the
+	 * description returned here.
+	 * 
+	 * @return the processor's class name and the <code>Implementation-Version</code> of the jar it was loaded from
+	 */
+	protected String getCacheConfiguration() {
+		final Package classPackage = getClass().getPackage();
+		final String version = classPackage == null ? null : classPackage.getImplementationVersion();
+		return getClass().getName() + " version=" + version;
+	}
+
+	/**
+	 * Indicates whether {@link #processSource(File)} may be called for several files at once from different threads.
+	 * Processors are assumed not to be thread-safe unless they override this method.
+	 * 
+	 * @return false
+	 */
+	public boolean supportsConcurrentProcessing() {
+		return false;
 	}
 
 }
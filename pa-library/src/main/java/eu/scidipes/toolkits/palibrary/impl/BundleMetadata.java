@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Immutable summary of a template bundle: its names, the processor and source it was created from and the names of
+ * its forms, without the forms themselves
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class BundleMetadata implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String bundleName;
+
+	private final String displayName;
+
+	private final String processorName;
+
+	private final String templateSource;
+
+	private final List<String> formNames;
+
+	/**
+	 * @param bundle
+	 *            the template bundle to summarise
+	 */
+	public BundleMetadata(final FormsBundle bundle) {
+		this.bundleName = bundle.getBundleName();
+		this.displayName = bundle.getDisplayName();
+		this.processorName = bundle.getProcessorName();
+		this.templateSource = bundle.getTemplateSource();
+
+		final List<String> names = new ArrayList<>();
+		for (final Form form : bundle.getForms()) {
+			names.add(form.getName());
+		}
+		this.formNames = Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * @return the bundleName
+	 */
+	public String getBundleName() {
+		return bundleName;
+	}
+
+	/**
+	 * @return the displayName
+	 */
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	/**
+	 * @return the name of the processor which created the bundle
+	 */
+	public String getProcessorName() {
+		return processorName;
+	}
+
+	/**
+	 * @return the name of the source file the bundle was created from
+	 */
+	public String getTemplateSource() {
+		return templateSource;
+	}
+
+	/**
+	 * @return the names of the bundle's forms, in bundle order
+	 */
+	public List<String> getFormNames() {
+		return formNames;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BundleMetadata [bundleName=%s, processorName=%s, templateSource=%s]", bundleName,
+				processorName, templateSource);
+	}
+
+}
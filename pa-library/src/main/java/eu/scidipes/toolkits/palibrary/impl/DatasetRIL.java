@@ -61,6 +61,9 @@ public class DatasetRIL implements Preservable, Serializable {
 	@Basic
 	private boolean preserved = false;
 
+	@Column(name = "preserved_fingerprint")
+	private String preservedFingerprint;
+
 	/**
 	 * Indicates if the rep info label represented by this instance has been preserved to a SCIDIP registry
 	 * 
@@ -80,6 +83,26 @@ public class DatasetRIL implements Preservable, Serializable {
 		this.preserved = preserved;
 	}
 
+	/**
+	 * Returns the content fingerprint of the rep info label as at its last successful preservation
+	 * 
+	 * @return the preserved fingerprint, or null if not preserved since fingerprints were introduced
+	 * @see eu.scidipes.toolkits.palibrary.utils.FingerprintUtils#fingerprint(DatasetRIL)
+	 */
+	public final String getPreservedFingerprint() {
+		return preservedFingerprint;
+	}
+
+	/**
+	 * Sets the content fingerprint of the rep info label as at a successful preservation
+	 * 
+	 * @param preservedFingerprint
+	 *            the preservedFingerprint to set
+	 */
+	public final void setPreservedFingerprint(final String preservedFingerprint) {
+		this.preservedFingerprint = preservedFingerprint;
+	}
+
 	/**
 	 * Default zero-args constructor required by JPA
 	 */
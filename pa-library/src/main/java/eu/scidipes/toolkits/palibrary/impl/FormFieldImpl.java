@@ -61,7 +61,7 @@ public class FormFieldImpl implements FormField {
 	 * @throws IllegalStateException
 	 *             if the template has a fieldID set (i.e. has been persisted)
 	 */
-	public static FormFieldImpl copy(final FormFieldImpl template, final Form parentForm)
+	public static FormFieldImpl copy(final FormField template, final Form parentForm)
 			throws PreservationInitialisationException {
 
 		if (template == null || parentForm == null) {
@@ -31,6 +31,7 @@ import javax.persistence.ManyToOne;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.MapKeyEnumerated;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 
 import org.apache.commons.lang.StringUtils;
@@ -67,8 +68,9 @@ public class FormImpl implements Form {
 
 	/**
 	 * Uses a template to create a new FormImpl instance in the given parent bundle. The template form must not be
-	 * persisted, i.e. it must come from a template bundle. All referenced objects are themselves deep-copied and
-	 * updated appropriately to back-reference the new instance.
+	 * persisted, i.e. it must come from a template bundle, but may be any {@link Form} implementation including an
+	 * {@link UnmodifiableForm} view. All referenced objects are themselves deep-copied and updated appropriately to
+	 * back-reference the new instance.
 	 * 
 	 * @param template
 	 *            form to copy from
@@ -81,7 +83,7 @@ public class FormImpl implements Form {
 	 * @throws IllegalStateException
 	 *             if the template has a formID set (i.e. has been persisted)
 	 */
-	public static FormImpl copy(final FormImpl template, final FormsBundle parentBundle)
+	public static FormImpl copy(final Form template, final FormsBundle parentBundle)
 			throws PreservationInitialisationException {
 
 		notNull(template, "template argument must not be null");
@@ -102,7 +104,7 @@ public class FormImpl implements Form {
 		copy.setType(template.getType());
 
 		for (final FormField templateField : template.getFormFields()) {
-			copy.getFormFields().add(FormFieldImpl.copy((FormFieldImpl) templateField, copy));
+			copy.getFormFields().add(FormFieldImpl.copy(templateField, copy));
 		}
 
 		LOG.debug("Created copy of Form instance: " + template + " with parent bundle: " + parentBundle);
@@ -136,8 +138,10 @@ public class FormImpl implements Form {
 	@Column(name = "display_name")
 	private String displayName;
 
+	/** Ordered by ID, i.e. creation order, as the edit page binds fields by their index */
 	@JsonIgnore
 	@OneToMany(mappedBy = "parentForm", targetEntity = FormFieldImpl.class, cascade = CascadeType.ALL, orphanRemoval = true)
+	@OrderBy("fieldID")
 	private final List<FormField> formFields = new ArrayList<>();
 
 	@Id
@@ -173,6 +177,10 @@ public class FormImpl implements Form {
 	@Basic
 	private boolean preserved = false;
 
+	@JsonIgnore
+	@Column(name = "preserved_fingerprint")
+	private String preservedFingerprint;
+
 	@Column(name = "ril_cpid")
 	@Convert(converter = CPIDConverter.class)
 	private CurationPersistentIdentifier rilCPID;
@@ -432,6 +440,16 @@ public class FormImpl implements Form {
 		return preserved;
 	}
 
+	/**
+	 * Returns the content fingerprint of this form as at its last successful preservation
+	 * 
+	 * @return the preserved fingerprint, or null if not preserved since fingerprints were introduced
+	 * @see eu.scidipes.toolkits.palibrary.utils.FingerprintUtils#fingerprint(Form)
+	 */
+	public final String getPreservedFingerprint() {
+		return preservedFingerprint;
+	}
+
 	/**
 	 * Resets the mutable properties of this form instance to their defaults. Method is synchronized on this instance.
 	 */
@@ -562,6 +580,16 @@ public class FormImpl implements Form {
 		this.preserved = preserved;
 	}
 
+	/**
+	 * Sets the content fingerprint of this form as at a successful preservation
+	 * 
+	 * @param preservedFingerprint
+	 *            the preservedFingerprint to set
+	 */
+	public final void setPreservedFingerprint(final String preservedFingerprint) {
+		this.preservedFingerprint = preservedFingerprint;
+	}
+
 	/**
 	 * Sets the RIL CPID
 	 * 
@@ -17,6 +17,10 @@
 package eu.scidipes.toolkits.palibrary.impl;
 
 import java.util.Set;
+import java.util.concurrent.Future;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
@@ -26,8 +30,10 @@ import eu.scidipes.toolkits.palibrary.core.FormBundleManager;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationException;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
 import eu.scidipes.toolkits.palibrary.interfaces.Bundle;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.LibraryAPI;
+import eu.scidipes.toolkits.palibrary.interfaces.TemplateDiscoveryState;
 
 /**
  * @author Simon Berriman
@@ -36,6 +42,27 @@ import eu.scidipes.toolkits.palibrary.interfaces.LibraryAPI;
 @Scope(ConfigurableBeanFactory.SCOPE_SINGLETON)
 public class LibraryAPIImpl implements LibraryAPI {
 
+	/**
+	 * Starts template discovery in the background as soon as the context starts, so that it does not hold up the first
+	 * request to need a template
+	 */
+	@PostConstruct
+	public void startTemplateDiscovery() {
+		FormBundleManager.startDiscovery();
+	}
+
+	/**
+	 * Stops template discovery, if it is still running, and the template source watcher when the context is closed, so
+	 * that their threads do not outlive the application
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for them to stop
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		FormBundleManager.shutdown();
+	}
+
 	/**
 	 * 
 	 * @return
@@ -58,8 +85,33 @@ public class LibraryAPIImpl implements LibraryAPI {
 		return FormBundleManager.getEmptyBundleFor(bundleName);
 	}
 
+	@Override
+	public Form getTemplateForm(final String bundleName, final String formName) throws PreservationException {
+		return FormBundleManager.getTemplateForm(bundleName, formName);
+	}
+
+	@Override
+	public BundleMetadata getBundleMetadata(final String bundleName) throws PreservationException {
+		return FormBundleManager.getBundleMetadata(bundleName);
+	}
+
 	@Override
 	public boolean deleteBundle(final FormsBundle bundle) throws PreservationInitialisationException {
 		return FormBundleManager.deleteBundle(bundle);
 	}
+
+	@Override
+	public boolean deleteBundle(final String bundleName) {
+		return FormBundleManager.deleteBundle(bundleName);
+	}
+
+	@Override
+	public TemplateDiscoveryState getTemplateDiscoveryState() {
+		return FormBundleManager.getDiscoveryState();
+	}
+
+	@Override
+	public Future<Void> getTemplateDiscovery() {
+		return FormBundleManager.startDiscovery();
+	}
 }
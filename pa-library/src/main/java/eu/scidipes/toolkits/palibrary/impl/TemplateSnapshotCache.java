@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.log4j.Logger;
+
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Cache of the bundles compiled from a processor's template source files, so that unchanged sources need not be
+ * reprocessed at every startup. Each bundle is stored as a gzipped, serialized object graph in a file named by a
+ * SHA-256 digest of the source it was compiled from, e.g.
+ * <code>&lt;sources&gt;/.cache/GenericJSONProcessor/ab12....bin</code>. The digest covers the processor's
+ * configuration as well as the source's content, so a changed source, or one which would now be compiled differently,
+ * simply misses the cache. Entries which cannot be read, e.g. because the classes they were written with have since
+ * changed, are discarded and rebuilt.
+ * <p>
+ * The cache may be used from several threads at once. Entries not looked up since the cache was created are deleted
+ * by {@link #prune()}.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class TemplateSnapshotCache {
+
+	private static final Logger LOG = Logger.getLogger(TemplateSnapshotCache.class);
+
+	/** Increment whenever a change to the bundle classes makes existing entries unusable */
+	private static final long FORMAT_VERSION = 1L;
+
+	private static final String SUFFIX = ".bin";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final File directory;
+
+	private final byte[] configuration;
+
+	private final Set<String> retained = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * @param directory
+	 *            the directory holding the cache's entries; created when the first entry is stored
+	 * @param configuration
+	 *            describes everything besides a source's content which affects the bundle compiled from it, e.g. the
+	 *            processor's version and settings; see {@link AbstractFileSourceProcessor#getCacheConfiguration()}
+	 */
+	TemplateSnapshotCache(final File directory, final String configuration) {
+		this.directory = directory;
+		this.configuration = configuration.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Computes the digest of a source file, by which its entry is keyed, and retains that entry when the cache is next
+	 * {@link #prune() pruned}.
+	 * 
+	 * @param source
+	 *            the template source file
+	 * @return the hex-encoded SHA-256 digest of the cache's configuration and the file's content
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	String digest(final File source) throws IOException {
+		final MessageDigest messageDigest = newMessageDigest();
+		messageDigest.update(configuration);
+		/* Separates the configuration from the content, which could otherwise be shifted between them: */
+		messageDigest.update((byte) 0);
+
+		try (final InputStream in = new FileInputStream(source)) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				messageDigest.update(buffer, 0, read);
+			}
+		}
+
+		final String digest = Hex.encodeHexString(messageDigest.digest());
+		retained.add(digest);
+		return digest;
+	}
+
+	/**
+	 * @param digest
+	 *            the digest of the source file
+	 * @return the cached bundle, or null if there is no usable entry for the digest
+	 */
+	FormsBundle load(final String digest) {
+		final File entry = fileFor(digest);
+		if (!entry.isFile()) {
+			return null;
+		}
+
+		try (final ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(
+				new FileInputStream(entry), BUFFER_SIZE)))) {
+			if (in.readLong() != FORMAT_VERSION) {
+				LOG.debug("Discarding template cache entry of an earlier format: " + entry);
+			} else {
+				return (FormsBundle) in.readObject();
+			}
+		} catch (final IOException | ClassNotFoundException | ClassCastException e) {
+			LOG.warn("Discarding unreadable template cache entry: " + entry + " (" + e + ")");
+		}
+
+		if (!entry.delete()) {
+			LOG.warn("Could not delete template cache entry: " + entry);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores a bundle against the digest of its source. The entry is written to a temporary file and moved into place,
+	 * so a concurrent or interrupted store never leaves a partial entry. Failure to store is logged but not fatal.
+	 * 
+	 * @param digest
+	 *            the digest of the source file
+	 * @param bundle
+	 *            the bundle compiled from the source
+	 */
+	void store(final String digest, final FormsBundle bundle) {
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			LOG.warn("Template cache directory [" + directory + "] could not be created");
+			return;
+		}
+
+		File tmpFile = null;
+		try {
+			tmpFile = File.createTempFile(digest, ".tmp", directory);
+
+			try (final ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tmpFile), BUFFER_SIZE)))) {
+				out.writeLong(FORMAT_VERSION);
+				out.writeObject(bundle);
+			}
+
+			Files.move(tmpFile.toPath(), fileFor(digest).toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			LOG.debug("Cached template bundle " + bundle.getBundleName() + " as: " + digest);
+
+		} catch (final IOException e) {
+			LOG.warn("Could not cache template bundle " + bundle.getBundleName() + " (" + e + ")");
+		} finally {
+			if (tmpFile != null && tmpFile.exists() && !tmpFile.delete()) {
+				LOG.warn("Could not delete temporary template cache file: " + tmpFile);
+			}
+		}
+	}
+
+	/**
+	 * Deletes every entry whose digest has not been computed by {@link #digest(File)} since this cache was created,
+	 * i.e. the entries of sources which have since been changed or removed.
+	 */
+	void prune() {
+		final File[] entries = directory.listFiles();
+		if (entries == null) {
+			return;
+		}
+
+		for (final File entry : entries) {
+			final String name = entry.getName();
+			if (entry.isFile() && name.endsWith(SUFFIX)
+					&& !retained.contains(name.substring(0, name.length() - SUFFIX.length()))) {
+				if (entry.delete()) {
+					LOG.debug("Pruned stale template cache entry: " + entry);
+				} else {
+					LOG.warn("Could not delete stale template cache entry: " + entry);
+				}
+			}
+		}
+	}
+
+	private File fileFor(final String digest) {
+		return new File(directory, digest + SUFFIX);
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			/* Every JVM is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl;
+
+import static org.apache.commons.lang.Validate.notNull;
+import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
+import info.digitalpreserve.interfaces.RepInfoCategory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormField;
+import eu.scidipes.toolkits.palibrary.interfaces.FormFieldType;
+import eu.scidipes.toolkits.palibrary.interfaces.FormType;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Read-only view of a template {@link Form}, through which neither the form nor its fields can be changed. Used to
+ * hand out the forms of template bundles directly rather than as deep copies; use
+ * {@link FormImpl#copy(Form, FormsBundle)} to create a new, modifiable form from one. Obtain views through
+ * {@link UnmodifiableFormsBundle#getForms()}.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class UnmodifiableForm implements Form {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Form form;
+
+	private final List<FormField> formFields;
+
+	private final FormsBundle parentBundle;
+
+	/**
+	 * Views are only created by {@link UnmodifiableFormsBundle}, so that every view belongs to the one bundle view
+	 * whose forms contain it.
+	 * 
+	 * @param form
+	 *            the form to view
+	 * @param parentBundle
+	 *            the read-only view of the form's bundle
+	 */
+	UnmodifiableForm(final Form form, final FormsBundle parentBundle) {
+		notNull(form, "form must not be null");
+		this.form = form;
+		this.parentBundle = parentBundle;
+
+		final List<FormField> fields = new ArrayList<>();
+		for (final FormField field : form.getFormFields()) {
+			fields.add(new UnmodifiableFormField(field, this));
+		}
+		this.formFields = Collections.unmodifiableList(fields);
+	}
+
+	@Override
+	public int compareTo(final Form o) {
+		return form.compareTo(o);
+	}
+
+	@Override
+	public String getPreservableTypeID() {
+		return form.getPreservableTypeID();
+	}
+
+	/**
+	 * @return a read-only view of the template bundle the form belongs to
+	 */
+	@Override
+	public FormsBundle getParentBundle() {
+		return parentBundle;
+	}
+
+	@Override
+	public Integer getFormID() {
+		return form.getFormID();
+	}
+
+	@Override
+	public int getGroupOrder() {
+		return form.getGroupOrder();
+	}
+
+	@Override
+	public String getName() {
+		return form.getName();
+	}
+
+	@Override
+	public String getDisplayName() {
+		return form.getDisplayName();
+	}
+
+	@Override
+	public String getItemFileName() {
+		return form.getItemFileName();
+	}
+
+	@Override
+	public String getIntroText() {
+		return form.getIntroText();
+	}
+
+	@Override
+	public String getDataHolder() {
+		return form.getDataHolder();
+	}
+
+	@Override
+	public String getGroup() {
+		return form.getGroup();
+	}
+
+	@Override
+	public FormType getType() {
+		return form.getType();
+	}
+
+	@Override
+	public FormFieldType getDataHolderType() {
+		return form.getDataHolderType();
+	}
+
+	@Override
+	public Map<CoreFieldMetadata, String> getDataHolderMetadata() {
+		return Collections.unmodifiableMap(form.getDataHolderMetadata());
+	}
+
+	@Override
+	public List<FormField> getFormFields() {
+		return formFields;
+	}
+
+	@Override
+	public Set<RepInfoCategory> getCategories() {
+		return Collections.unmodifiableSet(form.getCategories());
+	}
+
+	@Override
+	public CurationPersistentIdentifier getRILCPID() {
+		return form.getRILCPID();
+	}
+
+	@Override
+	public CurationPersistentIdentifier getManifestCPID() {
+		return form.getManifestCPID();
+	}
+
+	@Override
+	public boolean isPreserved() {
+		return form.isPreserved();
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof UnmodifiableForm)) {
+			return false;
+		}
+		return form.equals(((UnmodifiableForm) o).form);
+	}
+
+	@Override
+	public int hashCode() {
+		return form.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Unmodifiable " + form;
+	}
+
+	/**
+	 * Read-only view of a field of a template form
+	 */
+	private static final class UnmodifiableFormField implements FormField {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FormField field;
+
+		private final Form parentForm;
+
+		UnmodifiableFormField(final FormField field, final Form parentForm) {
+			this.field = field;
+			this.parentForm = parentForm;
+		}
+
+		@Override
+		public int compareTo(final FormField o) {
+			return field.compareTo(o);
+		}
+
+		@Override
+		public Form getParentForm() {
+			return parentForm;
+		}
+
+		@Override
+		public Integer getFieldID() {
+			return field.getFieldID();
+		}
+
+		@Override
+		public String getDisplayName() {
+			return field.getDisplayName();
+		}
+
+		@Override
+		public String getHelpText() {
+			return field.getHelpText();
+		}
+
+		@Override
+		public String getDefaultValue() {
+			return field.getDefaultValue();
+		}
+
+		@Override
+		public String getValue() {
+			return field.getValue();
+		}
+
+		@Override
+		public String getMax() {
+			return field.getMax();
+		}
+
+		@Override
+		public String getMin() {
+			return field.getMin();
+		}
+
+		@Override
+		public void setValue(final String value) {
+			throw new UnsupportedOperationException("Template form fields cannot be modified");
+		}
+
+		@Override
+		public String toString() {
+			return "Unmodifiable " + field;
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import eu.scidipes.toolkits.palibrary.interfaces.Bundle;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Read-only view of a template {@link FormsBundle}, through which neither the bundle nor its forms can be changed. Its
+ * forms are {@link UnmodifiableForm} views whose parent bundle is this view, so a template cannot be modified by
+ * navigating from one of its forms back to the bundle either.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class UnmodifiableFormsBundle implements FormsBundle {
+
+	private static final long serialVersionUID = 1L;
+
+	private final FormsBundle bundle;
+
+	private final List<Form> forms;
+
+	/**
+	 * @param bundle
+	 *            the bundle to view
+	 * @throws NullPointerException
+	 *             if bundle is null
+	 */
+	public UnmodifiableFormsBundle(final FormsBundle bundle) {
+		notNull(bundle, "bundle must not be null");
+		this.bundle = bundle;
+
+		final List<Form> views = new ArrayList<>();
+		for (final Form form : bundle.getForms()) {
+			views.add(new UnmodifiableForm(form, this));
+		}
+		this.forms = Collections.unmodifiableList(views);
+	}
+
+	@Override
+	public int compareTo(final Bundle o) {
+		return bundle.compareTo(o);
+	}
+
+	@Override
+	public String getDatasetName() {
+		return bundle.getDatasetName();
+	}
+
+	@Override
+	public String getDisplayName() {
+		return bundle.getDisplayName();
+	}
+
+	@Override
+	public String getBundleName() {
+		return bundle.getBundleName();
+	}
+
+	@Override
+	public String getProcessorName() {
+		return bundle.getProcessorName();
+	}
+
+	@Override
+	public String getTemplateSource() {
+		return bundle.getTemplateSource();
+	}
+
+	@Override
+	public Set<DatasetRIL> getRils() {
+		return Collections.unmodifiableSet(bundle.getRils());
+	}
+
+	@Override
+	public List<Form> getForms() {
+		return forms;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof UnmodifiableFormsBundle)) {
+			return false;
+		}
+		return bundle.equals(((UnmodifiableFormsBundle) o).bundle);
+	}
+
+	@Override
+	public int hashCode() {
+		return bundle.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Unmodifiable " + bundle;
+	}
+
+}
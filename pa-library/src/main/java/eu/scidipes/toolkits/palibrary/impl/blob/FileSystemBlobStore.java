@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.blob;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
+
+/**
+ * {@link BlobStore} which keeps each blob in its own file beneath a root directory. Files are named by their digest
+ * and sharded into two levels of subdirectories by the first four hex characters of the digest, e.g.
+ * <code>&lt;root&gt;/ab/cd/abcd...</code>, to keep directory sizes manageable.
+ * <p>
+ * Content is first streamed to a temporary file beneath <code>&lt;root&gt;/tmp</code> while its digest is computed,
+ * then moved into place atomically; if the content is already stored the temporary file is simply discarded.
+ *
+ * @author Tom Bunting
+ *
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+	private static final Logger LOG = Logger.getLogger(FileSystemBlobStore.class);
+
+	/** Size of the buffer used when streaming content into the store */
+	static final int BUFFER_SIZE = 8192;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	public static final String BLOBSTORE_PATH_PROPERTY = "pa.blobstore.path";
+
+	public static final String SOURCES_PATH_PROPERTY = "pa.sources.path";
+
+	/** Name of the directory beneath the sources path used when no blob store path is set */
+	public static final String DEFAULT_DIRECTORY_NAME = "blobstore";
+
+	/**
+	 * Creates a blob store rooted at the directory given by the system property {@value #BLOBSTORE_PATH_PROPERTY} or,
+	 * if that is not set, a {@value #DEFAULT_DIRECTORY_NAME} directory beneath {@value #SOURCES_PATH_PROPERTY}.
+	 *
+	 * @return a new blob store
+	 * @throws IllegalStateException
+	 *             if neither property is set, or the root directory cannot be created or written to
+	 */
+	public static FileSystemBlobStore fromSystemProperties() {
+		final String blobStorePath = System.getProperty(BLOBSTORE_PATH_PROPERTY);
+		if (StringUtils.isNotBlank(blobStorePath)) {
+			return new FileSystemBlobStore(new File(blobStorePath.trim()));
+		}
+
+		final String sourcesPath = System.getProperty(SOURCES_PATH_PROPERTY);
+		if (StringUtils.isBlank(sourcesPath)) {
+			throw new IllegalStateException("The blob store location is not configured: set sys property '"
+					+ BLOBSTORE_PATH_PROPERTY + "' or '" + SOURCES_PATH_PROPERTY + "'");
+		}
+		return new FileSystemBlobStore(new File(sourcesPath.trim(), DEFAULT_DIRECTORY_NAME));
+	}
+
+	private final File root;
+
+	private final File tmpDir;
+
+	/**
+	 * @param root
+	 *            the directory beneath which blobs are stored; created if it does not exist
+	 * @throws IllegalStateException
+	 *             if the root or its temporary directory cannot be created or written to
+	 */
+	public FileSystemBlobStore(final File root) {
+		notNull(root, "The root must not be null");
+
+		this.root = root;
+		this.tmpDir = new File(root, "tmp");
+
+		if (!tmpDir.isDirectory() && !tmpDir.mkdirs()) {
+			throw new IllegalStateException("Blob store directory [" + tmpDir + "] could not be created");
+		}
+		if (!root.canWrite() || !tmpDir.canWrite()) {
+			throw new IllegalStateException("Blob store directory [" + root + "] must be writable");
+		}
+
+		LOG.info("Blob store opened at: " + root.getAbsolutePath());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see eu.scidipes.toolkits.palibrary.interfaces.BlobStore#put(java.io.InputStream)
+	 */
+	@Override
+	public StoredBlob put(final InputStream content) throws IOException {
+		notNull(content, "The content must not be null");
+
+		final MessageDigest messageDigest = newMessageDigest();
+		final File tmpFile = File.createTempFile("blob-", ".tmp", tmpDir);
+
+		try {
+			long size = 0;
+
+			try (final OutputStream out = new FileOutputStream(tmpFile)) {
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = content.read(buffer)) != -1) {
+					messageDigest.update(buffer, 0, read);
+					out.write(buffer, 0, read);
+					size += read;
+				}
+			}
+
+			final StoredBlob blob = new StoredBlob(Hex.encodeHexString(messageDigest.digest()), size);
+			final File blobFile = fileFor(blob.getDigest());
+
+			if (blobFile.exists()) {
+				LOG.debug("Content already stored: " + blob);
+				return blob;
+			}
+
+			final File shardDir = blobFile.getParentFile();
+			if (!shardDir.isDirectory() && !shardDir.mkdirs() && !shardDir.isDirectory()) {
+				throw new IOException("Blob store directory [" + shardDir + "] could not be created");
+			}
+
+			try {
+				Files.move(tmpFile.toPath(), blobFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				blobFile.setReadOnly();
+				LOG.debug("Stored new content: " + blob);
+			} catch (final FileAlreadyExistsException e) {
+				/* Stored concurrently by another thread: */
+				LOG.debug("Content stored concurrently: " + blob);
+			}
+
+			return blob;
+
+		} finally {
+			if (tmpFile.exists() && !tmpFile.delete()) {
+				LOG.warn("Could not delete temporary blob file: " + tmpFile);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see eu.scidipes.toolkits.palibrary.interfaces.BlobStore#open(java.lang.String)
+	 */
+	@Override
+	public InputStream open(final String digest) throws IOException {
+		final File blobFile = fileFor(digest);
+		if (!blobFile.isFile()) {
+			throw new FileNotFoundException("No content stored for digest: " + digest);
+		}
+		return new BufferedInputStream(new FileInputStream(blobFile), BUFFER_SIZE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see eu.scidipes.toolkits.palibrary.interfaces.BlobStore#contains(java.lang.String)
+	 */
+	@Override
+	public boolean contains(final String digest) {
+		return StoredBlob.isDigest(digest) && fileFor(digest).isFile();
+	}
+
+	/**
+	 * @return the directory beneath which blobs are stored
+	 */
+	public File getRoot() {
+		return root;
+	}
+
+	private File fileFor(final String digest) {
+		if (!StoredBlob.isDigest(digest)) {
+			throw new IllegalArgumentException("Not a SHA-256 digest: " + digest);
+		}
+		final File shard = new File(new File(root, digest.substring(0, 2)), digest.substring(2, 4));
+		return new File(shard, digest);
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (final NoSuchAlgorithmException e) {
+			/* Every JVM is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
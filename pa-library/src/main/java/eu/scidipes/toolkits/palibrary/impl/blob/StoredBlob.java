@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.blob;
+
+import static eu.scidipes.toolkits.palibrary.utils.MiscUtils.HASH_INIT;
+import static eu.scidipes.toolkits.palibrary.utils.MiscUtils.HASH_PRIME;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+
+/**
+ * Immutable description of content held in a {@link BlobStore}.
+ * <p>
+ * A {@link Form} whose data holder is a bytestream refers to its content by the reference returned from
+ * {@link #getReference()}, of the form <code>sha256:&lt;hex digest&gt;</code>. The prefix cannot occur in Base64, so
+ * references are distinguishable from content held inline by forms saved before the blob store was introduced.
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class StoredBlob implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Prefix of blob references held in form data holders */
+	public static final String REFERENCE_PREFIX = "sha256:";
+
+	private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	/**
+	 * @param dataHolder
+	 *            the data holder of a form, may be <code>null</code>
+	 * @return true if <code>dataHolder</code> is a blob reference
+	 */
+	public static boolean isReference(final String dataHolder) {
+		return dataHolder != null && dataHolder.startsWith(REFERENCE_PREFIX)
+				&& isDigest(dataHolder.substring(REFERENCE_PREFIX.length()));
+	}
+
+	/**
+	 * @param digest
+	 *            a candidate digest, may be <code>null</code>
+	 * @return true if <code>digest</code> is a lower-case hex-encoded SHA-256 digest
+	 */
+	public static boolean isDigest(final String digest) {
+		return digest != null && DIGEST_PATTERN.matcher(digest).matches();
+	}
+
+	/**
+	 * @param reference
+	 *            a blob reference
+	 * @return the digest part of <code>reference</code>
+	 * @throws IllegalArgumentException
+	 *             if <code>reference</code> is not a blob reference
+	 */
+	public static String digestOf(final String reference) {
+		if (!isReference(reference)) {
+			throw new IllegalArgumentException("Not a blob reference: " + reference);
+		}
+		return reference.substring(REFERENCE_PREFIX.length());
+	}
+
+	private final String digest;
+
+	private final long size;
+
+	/**
+	 * @param digest
+	 *            the hex-encoded SHA-256 digest of the content
+	 * @param size
+	 *            the size of the content in bytes
+	 * @throws IllegalArgumentException
+	 *             if <code>digest</code> is not a valid digest
+	 */
+	public StoredBlob(final String digest, final long size) {
+		if (!isDigest(digest)) {
+			throw new IllegalArgumentException("Not a SHA-256 digest: " + digest);
+		}
+		this.digest = digest;
+		this.size = size;
+	}
+
+	/**
+	 * @return the hex-encoded SHA-256 digest of the content
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * @return the size of the content in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the reference to hold in a form's data holder
+	 */
+	public String getReference() {
+		return REFERENCE_PREFIX + digest;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof StoredBlob)) {
+			return false;
+		}
+		final StoredBlob other = (StoredBlob) o;
+		return digest.equals(other.digest) && size == other.size;
+	}
+
+	@Override
+	public int hashCode() {
+		return HASH_INIT * HASH_PRIME + digest.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Blob [%s, %d bytes]", digest, Long.valueOf(size));
+	}
+
+}
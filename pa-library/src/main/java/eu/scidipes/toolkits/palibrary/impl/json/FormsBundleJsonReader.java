@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import eu.scidipes.toolkits.palibrary.impl.FormFieldImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormField;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Reads a JSON Form Bundle hierarchy token by token with a {@link JsonReader}, so that no intermediate tree of the
+ * whole document is built. The bundle's forms and each form's fields are created as they are read and given their
+ * parent references straight away; every other property is read into its field by the {@link Gson} adapter for the
+ * field's type, so custom adapters registered with the Gson instance still apply.
+ * <p>
+ * Fields are bound by name, as Gson binds them: static and transient fields, and those excluded by any of the passed
+ * {@link ExclusionStrategy}s, are not bound. Properties with no bound field are skipped. The reflective field lookups
+ * are made once, on construction, and instances may be shared between threads.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class FormsBundleJsonReader {
+
+	/**
+	 * A field to be read from a JSON property with the Gson adapter for its type
+	 */
+	private static final class BoundField {
+
+		private final Field field;
+
+		private final TypeAdapter<?> adapter;
+
+		BoundField(final Field field, final TypeAdapter<?> adapter) {
+			this.field = field;
+			this.adapter = adapter;
+		}
+
+		void read(final JsonReader in, final Object target) throws IOException {
+			final Object value = adapter.read(in);
+			/* As Gson does, leave primitives at their defaults when null: */
+			if (value != null || !field.getType().isPrimitive()) {
+				set(field, target, value);
+			}
+		}
+	}
+
+	private static final String FORMS = "forms";
+
+	private static final String FORM_FIELDS = "formFields";
+
+	private final Constructor<FormsBundleImpl> bundleConstructor;
+
+	private final Map<String, BoundField> bundleFields;
+
+	private final Map<String, BoundField> formFields;
+
+	private final Map<String, BoundField> formFieldFields;
+
+	private final Field formsField;
+
+	private final Field formFieldsField;
+
+	private final Field parentBundleField;
+
+	private final Field parentFormField;
+
+	/**
+	 * @param gson
+	 *            the Gson instance whose type adapters read property values
+	 * @param exclusionStrategies
+	 *            strategies for fields which are not to be read
+	 * @throws IllegalStateException
+	 *             if the Form Bundle classes do not have the expected fields
+	 */
+	FormsBundleJsonReader(final Gson gson, final ExclusionStrategy... exclusionStrategies) {
+		try {
+			bundleConstructor = FormsBundleImpl.class.getDeclaredConstructor();
+			bundleConstructor.setAccessible(true);
+
+			formsField = accessibleField(FormsBundleImpl.class, FORMS);
+			formFieldsField = accessibleField(FormImpl.class, FORM_FIELDS);
+			parentBundleField = accessibleField(FormImpl.class, "parentBundle");
+			parentFormField = accessibleField(FormFieldImpl.class, "parentForm");
+
+		} catch (final NoSuchFieldException | NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+
+		/* The hierarchy itself is read explicitly rather than by adapter: */
+		bundleFields = bindFields(gson, FormsBundleImpl.class, FORMS, exclusionStrategies);
+		formFields = bindFields(gson, FormImpl.class, FORM_FIELDS, exclusionStrategies);
+		formFieldFields = bindFields(gson, FormFieldImpl.class, null, exclusionStrategies);
+	}
+
+	/**
+	 * Reads a single, complete JSON Form Bundle hierarchy
+	 * 
+	 * @param source
+	 *            the JSON; not closed
+	 * @return the bundle, with its forms and their fields
+	 * @throws IOException
+	 *             if the JSON could not be read or is malformed
+	 */
+	FormsBundle read(final Reader source) throws IOException {
+		final JsonReader in = new JsonReader(source);
+		in.setLenient(true);
+
+		final FormsBundleImpl bundle;
+		try {
+			bundle = bundleConstructor.newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+
+		in.beginObject();
+		while (in.hasNext()) {
+			final String name = in.nextName();
+			if (FORMS.equals(name)) {
+				set(formsField, bundle, readForms(in, bundle));
+			} else {
+				readProperty(in, bundle, bundleFields.get(name));
+			}
+		}
+		in.endObject();
+
+		return bundle;
+	}
+
+	private List<Form> readForms(final JsonReader in, final FormsBundle bundle) throws IOException {
+		final List<Form> forms = new ArrayList<>();
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return forms;
+		}
+
+		in.beginArray();
+		while (in.hasNext()) {
+			final FormImpl form = new FormImpl();
+			set(parentBundleField, form, bundle);
+
+			in.beginObject();
+			while (in.hasNext()) {
+				final String name = in.nextName();
+				if (FORM_FIELDS.equals(name)) {
+					set(formFieldsField, form, readFormFields(in, form));
+				} else {
+					readProperty(in, form, formFields.get(name));
+				}
+			}
+			in.endObject();
+
+			forms.add(form);
+		}
+		in.endArray();
+
+		return forms;
+	}
+
+	private List<FormField> readFormFields(final JsonReader in, final Form form) throws IOException {
+		final List<FormField> fields = new ArrayList<>();
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return fields;
+		}
+
+		in.beginArray();
+		while (in.hasNext()) {
+			final FormFieldImpl formField = new FormFieldImpl();
+			set(parentFormField, formField, form);
+
+			in.beginObject();
+			while (in.hasNext()) {
+				readProperty(in, formField, formFieldFields.get(in.nextName()));
+			}
+			in.endObject();
+
+			fields.add(formField);
+		}
+		in.endArray();
+
+		return fields;
+	}
+
+	private static void readProperty(final JsonReader in, final Object target, final BoundField field)
+			throws IOException {
+		if (field == null) {
+			in.skipValue();
+		} else {
+			field.read(in, target);
+		}
+	}
+
+	private static Map<String, BoundField> bindFields(final Gson gson, final Class<?> type, final String unbound,
+			final ExclusionStrategy... exclusionStrategies) {
+		final Map<String, BoundField> bound = new HashMap<>();
+
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (final Field field : c.getDeclaredFields()) {
+				if (!field.getName().equals(unbound) && !isExcluded(field, exclusionStrategies)
+						&& !bound.containsKey(field.getName())) {
+					field.setAccessible(true);
+					bound.put(field.getName(), new BoundField(field, gson.getAdapter(TypeToken.get(field
+							.getGenericType()))));
+				}
+			}
+		}
+		return bound;
+	}
+
+	private static boolean isExcluded(final Field field, final ExclusionStrategy... exclusionStrategies) {
+		if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0 || field.isSynthetic()) {
+			return true;
+		}
+
+		final FieldAttributes attributes = new FieldAttributes(field);
+		for (final ExclusionStrategy strategy : exclusionStrategies) {
+			if (strategy.shouldSkipField(attributes) || strategy.shouldSkipClass(field.getType())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Field accessibleField(final Class<?> type, final String name) throws NoSuchFieldException {
+		final Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+
+	private static void set(final Field field, final Object target, final Object value) {
+		try {
+			field.set(target, value);
+		} catch (final IllegalAccessException e) {
+			/* Fields are made accessible when bound */
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -18,28 +18,15 @@ package eu.scidipes.toolkits.palibrary.impl.ontologies;
 
 import java.io.File;
 
-import org.apache.log4j.Logger;
-import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.io.FileDocumentSource;
-import org.semanticweb.owlapi.model.MissingImportEvent;
-import org.semanticweb.owlapi.model.MissingImportHandlingStrategy;
-import org.semanticweb.owlapi.model.MissingImportListener;
-import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
-import org.semanticweb.owlapi.model.OWLOntologyManager;
-import org.semanticweb.owlapi.reasoner.ConsoleProgressMonitor;
-import org.semanticweb.owlapi.reasoner.OWLReasoner;
-import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
-import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
-import org.semanticweb.owlapi.reasoner.SimpleConfiguration;
-import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
-
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
 import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 
 /**
- * Provides base OWL API operations common to all concrete {@link Ontology} processors
+ * Provides base OWL API operations common to all concrete {@link Ontology} processors. Each source is loaded into its
+ * own {@link OntologySession}, which is closed as soon as the bundle has been extracted, so that neither the ontology
+ * nor its imports are retained once processed. Imports are resolved from local copies where available; see
+ * {@link LocalImportIRIMapper}.
  * 
  * @author Tom Bunting
  * 
@@ -49,70 +36,42 @@ import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
  */
 public abstract class AbstractOntologyProcessor extends AbstractFileSourceProcessor {
 
-	private static final Logger LOG = Logger.getLogger(AbstractOntologyProcessor.class);
-
-	protected final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-
-	/**
-	 * Creates a configured {@link OWLReasoner} instance and uses it to reason over the give ontology. Returns the
-	 * reasoner for further use.
-	 * 
-	 * @param owl
-	 * @return the owl reasoner object
-	 */
-	protected OWLReasoner reasonOverOntology(final OWLOntology owl) {
-
-		final OWLReasonerFactory reasonerFactory = new StructuralReasonerFactory();
-		final ConsoleProgressMonitor progressMonitor = new ConsoleProgressMonitor();
-
-		final OWLReasonerConfiguration config = new SimpleConfiguration(progressMonitor);
-
-		final OWLReasoner reasoner = reasonerFactory.createReasoner(owl, config);
-
-		reasoner.precomputeInferences();
-
-		if (reasoner.isConsistent()) {
-			LOG.trace("Loaded consistent ontology: " + owl);
-		} else {
-			LOG.warn("Inconsistent ontology loaded, could be problematic: " + owl);
-		}
-
-		return reasoner;
-	}
-
-	protected OWLOntology loadOntology(final Object source) throws PreservationInitialisationException {
+	@Override
+	public final FormsBundle sourceToBundle(final Object source) throws PreservationInitialisationException {
 
 		if (!(source instanceof File)) {
 			throw new PreservationInitialisationException("Ontology source object must be an instance of: "
 					+ File.class.getName());
 		}
 
-		final FileDocumentSource owlDocSource = new FileDocumentSource((File) source);
-		final OWLOntology owl;
-
-		// Get hold of an ontology manager, and load the ontology file
-		final OWLOntologyLoaderConfiguration owlLoaderConfig = new OWLOntologyLoaderConfiguration();
-
-		// Loading stops completely if imports fail, so create a listener to log these events
-		final MissingImportListener missingImportListener = new MissingImportListener() {
-			@Override
-			public void importMissing(final MissingImportEvent event) {
-				LOG.warn("Import failed for URI: " + event.getImportedOntologyURI().toQuotedString(),
-						event.getCreationException());
-			}
-		};
-
-		manager.addMissingImportListener(missingImportListener);
-
-		try {
-			// Load the ontology with silent handling of missing imports
-			owl = manager.loadOntologyFromOntologyDocument(owlDocSource,
-					owlLoaderConfig.setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT));
-		} catch (final OWLOntologyCreationException e) {
-			throw new PreservationInitialisationException(e.toString(), e);
+		try (final OntologySession session = new OntologySession((File) source,
+				LocalImportIRIMapper.fromSystemProperties(), ReasoningStrategy.fromSystemProperties())) {
+			return extractBundle(session);
 		}
+	}
 
-		return owl;
+	/**
+	 * Adds the settings which affect the bundle extracted from an ontology: the {@link ReasoningStrategy} and the way
+	 * imports are resolved, including the content of the local imports directory.
+	 * 
+	 * @see eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor#getCacheConfiguration()
+	 */
+	@Override
+	protected String getCacheConfiguration() {
+		return super.getCacheConfiguration() + " reasoner=" + ReasoningStrategy.fromSystemProperties() + " "
+				+ LocalImportIRIMapper.fromSystemProperties().getCacheConfiguration();
 	}
 
+	/**
+	 * Extracts a template bundle from a loaded ontology. Nothing obtained from the session should be retained once
+	 * this method returns, as the session is then closed.
+	 * 
+	 * @param session
+	 *            the session holding the loaded ontology
+	 * @return the template bundle
+	 * @throws PreservationInitialisationException
+	 *             if the bundle could not be extracted
+	 */
+	protected abstract FormsBundle extractBundle(OntologySession session) throws PreservationInitialisationException;
+
 }
@@ -19,15 +19,11 @@ package eu.scidipes.toolkits.palibrary.impl.ontologies;
 import info.digitalpreserve.exceptions.RIException;
 
 import java.util.List;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.model.IRI;
-import org.semanticweb.owlapi.model.OWLAnnotation;
-import org.semanticweb.owlapi.model.OWLAnnotationValue;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLDataFactory;
-import org.semanticweb.owlapi.model.OWLLiteral;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLOntology;
@@ -40,6 +36,7 @@ import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationExcep
 import eu.scidipes.toolkits.palibrary.impl.FormFieldImpl;
 import eu.scidipes.toolkits.palibrary.impl.FormImpl;
 import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.impl.ontologies.OntologyAnnotationIndex.LiteralAnnotation;
 import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormField;
 import eu.scidipes.toolkits.palibrary.interfaces.FormType;
@@ -59,11 +56,11 @@ public final class ESOntologyProcessor extends AbstractOntologyProcessor {
 	private static final Logger LOG = Logger.getLogger(ESOntologyProcessor.class);
 
 	@Override
-	public FormsBundle sourceToBundle(final Object source) throws PreservationInitialisationException {
+	protected FormsBundle extractBundle(final OntologySession session) throws PreservationInitialisationException {
 
-		final OWLOntology owl = loadOntology(source);
+		final OWLOntology owl = session.getOntology();
 
-		final OWLReasoner reasoner = reasonOverOntology(owl);
+		final OWLReasoner reasoner = session.getReasoner();
 
 		// Process this particular OWL:
 		final IRI ontologyIRI = owl.getOntologyID().getOntologyIRI();
@@ -72,7 +69,10 @@ public final class ESOntologyProcessor extends AbstractOntologyProcessor {
 		final FormsBundleImpl esaBundle = new FormsBundleImpl(ontologyName, getName());
 		esaBundle.setDisplayName(ontologyName);
 
-		final OWLDataFactory fac = manager.getOWLDataFactory();
+		final OWLDataFactory fac = session.getDataFactory();
+
+		// Index the annotations of every entity in one pass, rather than scanning per individual and class:
+		final OntologyAnnotationIndex annotationIndex = new OntologyAnnotationIndex(owl);
 
 		final OWLClass campaignPhase = fac.getOWLClass(IRI.create(ontologyIRI + "#CAMPAIGN_PHASE"));
 		final NodeSet<OWLClass> subClasses = reasoner.getSubClasses(campaignPhase, true);
@@ -86,32 +86,23 @@ public final class ESOntologyProcessor extends AbstractOntologyProcessor {
 
 			// Iterate over the individuals of each subclass and create a Form item for each:
 			for (final OWLNamedIndividual individual : individuals.getFlattened()) {
-				final Set<OWLAnnotation> annotations = individual.getAnnotations(owl);
-
 				String formName = "";
 				String displayName = "";
 				String introText = "";
 
 				// Iterate over the annotations of each individual and pick out what we need:
-				for (final OWLAnnotation annotation : annotations) {
-					final OWLAnnotationValue value = annotation.getValue();
-					final IRI propIRI = annotation.getProperty().getIRI();
-					if (value instanceof OWLLiteral) {
-
-						final OWLLiteral literalVal = (OWLLiteral) value;
-
-						if (LOG.isTraceEnabled()) {
-							LOG.trace("    " + propIRI.getFragment() + ": " + literalVal.getLiteral());
-						}
+				for (final LiteralAnnotation annotation : annotationIndex.getLiteralAnnotations(individual.getIRI())) {
+					if (LOG.isTraceEnabled()) {
+						LOG.trace("    " + annotation.getProperty() + ": " + annotation.getValue());
+					}
 
-						if (annotation.getProperty().isLabel()) {
-							displayName = literalVal.getLiteral();
-						} else if ("name".equals(propIRI.getFragment())) {
-							/* Trim any trailing whitespace from name which may cause problems with queries: */
-							formName = literalVal.getLiteral().trim();
-						} else if ("description".equals(propIRI.getFragment())) {
-							introText = literalVal.getLiteral();
-						}
+					if (annotation.isLabel()) {
+						displayName = annotation.getValue();
+					} else if ("name".equals(annotation.getProperty())) {
+						/* Trim any trailing whitespace from name which may cause problems with queries: */
+						formName = annotation.getValue().trim();
+					} else if ("description".equals(annotation.getProperty())) {
+						introText = annotation.getValue();
 					}
 				}
 				final FormImpl form = new FormImpl(formName, esaBundle);
@@ -150,7 +141,7 @@ public final class ESOntologyProcessor extends AbstractOntologyProcessor {
 					// fragment (DOCUMENT, SOFTWARE, DATA)
 					final String namespace = phaseType.getIRI().getNamespace();
 					final String fragment = phaseType.getIRI().getFragment().toUpperCase();
-					addFlexFields(owl, IRI.create(namespace, fragment), form);
+					addFlexFields(annotationIndex, IRI.create(namespace, fragment), form);
 
 					// Set RIL-CPID and Category defaults
 					try {
@@ -188,28 +179,18 @@ public final class ESOntologyProcessor extends AbstractOntologyProcessor {
 		return esaBundle;
 	}
 
-	private void addFlexFields(final OWLOntology owl, final IRI classIRI, final Form form)
-			throws PreservationInitialisationException {
+	private static void addFlexFields(final OntologyAnnotationIndex annotationIndex, final IRI classIRI,
+			final Form form) throws PreservationInitialisationException {
 		final List<FormField> fields = form.getFormFields();
 
-		final OWLDataFactory fac = manager.getOWLDataFactory();
-		final OWLClass inventoryItemSubclass = fac.getOWLClass(classIRI);
-		final Set<OWLAnnotation> annotations = inventoryItemSubclass.getAnnotations(owl);
-
-		for (final OWLAnnotation annotation : annotations) {
-			final OWLAnnotationValue value = annotation.getValue();
-			final IRI propIRI = annotation.getProperty().getIRI();
+		for (final LiteralAnnotation annotation : annotationIndex.getLiteralAnnotations(classIRI)) {
+			final FormFieldImpl field = new FormFieldImpl(annotation.getProperty(), form);
+			field.setDefaultValue(annotation.getValue());
 
-			if (value instanceof OWLLiteral) {
-				final OWLLiteral literalVal = (OWLLiteral) value;
-				final FormFieldImpl field = new FormFieldImpl(propIRI.getFragment(), form);
-				field.setDefaultValue(literalVal.getLiteral());
-
-				if (LOG.isTraceEnabled()) {
-					LOG.trace("    ADDED FLEX FIELD: " + propIRI.getFragment() + ": " + literalVal.getLiteral());
-				}
-				fields.add(field);
+			if (LOG.isTraceEnabled()) {
+				LOG.trace("    ADDED FLEX FIELD: " + annotation.getProperty() + ": " + annotation.getValue());
 			}
+			fields.add(field);
 		}
 	}
 
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
+import org.semanticweb.owlapi.util.AutoIRIMapper;
+
+/**
+ * Maps the IRIs of imported ontologies to local copies held in a directory of imports, by default
+ * <code>&lt;pa.sources.path&gt;/imports</code>, so that imports are resolved from disk rather than the network. The
+ * ontology IRI of each document in the directory, or its sub-directories, is read by an {@link AutoIRIMapper}.
+ * <p>
+ * In offline mode, enabled by setting the system property <code>pa.ontology.offline</code> to <code>true</code>,
+ * imports with no local copy are never fetched over the network: they are mapped to a document which does not exist,
+ * so they fail immediately and are reported as missing imports instead of waiting for a network timeout.
+ * <p>
+ * Reading the ontology IRIs of the local copies means parsing every document in the directory, so
+ * {@link #fromSystemProperties()} shares one mapper between ontology loads, replacing it only when the mode or the
+ * names, sizes or modification times of the local copies change.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class LocalImportIRIMapper implements OWLOntologyIRIMapper {
+
+	private static final Logger LOG = Logger.getLogger(LocalImportIRIMapper.class);
+
+	/** Name of the sub-directory of the sources directory holding local copies of imported ontologies */
+	static final String IMPORTS_DIRECTORY = "imports";
+
+	/** The shared mappers, keyed by imports directory and mode */
+	private static final ConcurrentMap<String, LocalImportIRIMapper> MAPPERS = new ConcurrentHashMap<>();
+
+	private final File importsDirectory;
+
+	private final boolean offline;
+
+	private final AutoIRIMapper localMapper;
+
+	/** The names, sizes and modification times of the local copies when the mapper was created */
+	private final String fingerprint;
+
+	/**
+	 * Gets a mapper over the imports directory of the sources directory defined by the system property
+	 * <code>pa.sources.path</code>, creating the imports directory if it does not exist, in the mode defined by
+	 * <code>pa.ontology.offline</code>. The mapper returned by the previous call is reused if the local copies have not
+	 * changed since.
+	 * 
+	 * @return the mapper
+	 */
+	static LocalImportIRIMapper fromSystemProperties() {
+		final String sourceRootPath = System.getProperty("pa.sources.path");
+		File importsDirectory = null;
+
+		if (sourceRootPath != null && new File(sourceRootPath).isDirectory()) {
+			importsDirectory = new File(sourceRootPath, IMPORTS_DIRECTORY);
+			if (!importsDirectory.exists() && importsDirectory.mkdir()) {
+				LOG.info("Created ontology imports directory: " + importsDirectory);
+			}
+		}
+
+		final boolean offline = Boolean.getBoolean("pa.ontology.offline");
+		if (importsDirectory == null) {
+			/* Nothing to read, so nothing worth sharing: */
+			return new LocalImportIRIMapper(null, offline);
+		}
+
+		final String key = importsDirectory.getAbsolutePath() + (offline ? " offline" : " online");
+		final LocalImportIRIMapper shared = MAPPERS.get(key);
+		if (shared != null && shared.fingerprint.equals(fingerprint(importsDirectory))) {
+			return shared;
+		}
+
+		final LocalImportIRIMapper mapper = new LocalImportIRIMapper(importsDirectory, offline);
+		MAPPERS.put(key, mapper);
+		return mapper;
+	}
+
+	/**
+	 * @param importsDirectory
+	 *            the directory holding local copies of imported ontologies, may be null if there is none
+	 * @param offline
+	 *            whether imports with no local copy must not be fetched over the network
+	 */
+	LocalImportIRIMapper(final File importsDirectory, final boolean offline) {
+		this.importsDirectory = importsDirectory;
+		this.offline = offline;
+		this.fingerprint = fingerprint(importsDirectory);
+		this.localMapper = importsDirectory != null && importsDirectory.isDirectory() ? new AutoIRIMapper(
+				importsDirectory, true) : null;
+	}
+
+	@Override
+	public IRI getDocumentIRI(final IRI ontologyIRI) {
+		if (localMapper != null) {
+			final IRI documentIRI;
+			/* The mapper may be shared by concurrent loads, and reads the directory lazily on first use: */
+			synchronized (localMapper) {
+				documentIRI = localMapper.getDocumentIRI(ontologyIRI);
+			}
+			if (documentIRI != null) {
+				LOG.debug("Resolved import " + ontologyIRI + " to local copy: " + documentIRI);
+				return documentIRI;
+			}
+		}
+
+		if (offline && isRemote(ontologyIRI)) {
+			LOG.warn("Not fetching import " + ontologyIRI + " in offline mode; place a copy of it in: "
+					+ importsDirectory);
+			return unresolvable();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Describes how this mapper resolves imports, for {@link AbstractOntologyProcessor#getCacheConfiguration()}: its
+	 * mode, and a SHA-256 digest of the paths and content of every file in the imports directory, so that adding,
+	 * changing or removing a local copy changes the description.
+	 * 
+	 * @return the description
+	 */
+	String getCacheConfiguration() {
+		return "offline=" + offline + " imports=" + digestImports();
+	}
+
+	private String digestImports() {
+		if (importsDirectory == null || !importsDirectory.isDirectory()) {
+			return "none";
+		}
+
+		final MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			/* Every JVM is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+
+		try {
+			for (final Map.Entry<String, File> entry : listFiles(importsDirectory).entrySet()) {
+				messageDigest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+				messageDigest.update((byte) 0);
+				messageDigest.update(Files.readAllBytes(entry.getValue().toPath()));
+				messageDigest.update((byte) 0);
+			}
+		} catch (final IOException e) {
+			LOG.warn("Could not read ontology imports directory " + importsDirectory + " (" + e + ")");
+			/* Never matches a previous description, so nothing cached against the imports is reused: */
+			return "unreadable-" + UUID.randomUUID();
+		}
+		return Hex.encodeHexString(messageDigest.digest());
+	}
+
+	/**
+	 * Describes the files in an imports directory cheaply, i.e. without reading them, to tell whether a shared mapper
+	 * is still current
+	 */
+	private static String fingerprint(final File importsDirectory) {
+		if (importsDirectory == null || !importsDirectory.isDirectory()) {
+			return "none";
+		}
+
+		final StringBuilder fingerprint = new StringBuilder();
+		try {
+			for (final Map.Entry<String, File> entry : listFiles(importsDirectory).entrySet()) {
+				fingerprint.append(entry.getKey()).append(' ').append(entry.getValue().length()).append(' ')
+						.append(entry.getValue().lastModified()).append('\n');
+			}
+		} catch (final IOException e) {
+			LOG.warn("Could not list ontology imports directory " + importsDirectory + " (" + e + ")");
+			/* Never matches, so the mapper is not reused: */
+			return "unreadable-" + UUID.randomUUID();
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * @return every file in the directory and its sub-directories, by path relative to the directory, in path order
+	 */
+	private static SortedMap<String, File> listFiles(final File directory) throws IOException {
+		final SortedMap<String, File> files = new TreeMap<>();
+		listFiles(directory, "", files);
+		return files;
+	}
+
+	private static void listFiles(final File directory, final String path, final SortedMap<String, File> files)
+			throws IOException {
+		final File[] children = directory.listFiles();
+		if (children == null) {
+			throw new IOException("Could not list directory: " + directory);
+		}
+
+		for (final File child : children) {
+			final String childPath = path + '/' + child.getName();
+			if (child.isDirectory()) {
+				listFiles(child, childPath, files);
+			} else {
+				files.put(childPath, child);
+			}
+		}
+	}
+
+	private IRI unresolvable() {
+		final File parent = importsDirectory != null ? importsDirectory : new File(
+				System.getProperty("java.io.tmpdir"));
+		return IRI.create(new File(parent, ".unresolved-offline-import").toURI());
+	}
+
+	private static boolean isRemote(final IRI iri) {
+		final String scheme = iri.getScheme();
+		return scheme != null && !"file".equalsIgnoreCase(scheme) && !"jar".equalsIgnoreCase(scheme);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * The literal-valued annotation assertions of an ontology, indexed by subject IRI in a single pass over its axioms, so
+ * that looking up the annotations of an entity does not scan the ontology again. Like
+ * {@link org.semanticweb.owlapi.model.OWLEntity#getAnnotations(OWLOntology)}, only the ontology's own axioms are
+ * indexed, not those of its imports.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class OntologyAnnotationIndex {
+
+	/**
+	 * A literal annotation value, with the fragment of its annotation property's IRI
+	 */
+	static final class LiteralAnnotation {
+
+		private final String property;
+
+		private final boolean label;
+
+		private final String value;
+
+		private LiteralAnnotation(final String property, final boolean label, final String value) {
+			this.property = property;
+			this.label = label;
+			this.value = value;
+		}
+
+		/**
+		 * @return the fragment of the annotation property's IRI
+		 */
+		String getProperty() {
+			return property;
+		}
+
+		/**
+		 * @return true if the annotation property is <code>rdfs:label</code>
+		 */
+		boolean isLabel() {
+			return label;
+		}
+
+		/**
+		 * @return the literal value
+		 */
+		String getValue() {
+			return value;
+		}
+
+	}
+
+	private final Map<IRI, List<LiteralAnnotation>> annotationsBySubject = new HashMap<>();
+
+	/**
+	 * @param owl
+	 *            the ontology to index
+	 */
+	OntologyAnnotationIndex(final OWLOntology owl) {
+		for (final OWLAnnotationAssertionAxiom axiom : owl.getAxioms(AxiomType.ANNOTATION_ASSERTION)) {
+			if (axiom.getSubject() instanceof IRI && axiom.getValue() instanceof OWLLiteral) {
+				final IRI subject = (IRI) axiom.getSubject();
+
+				List<LiteralAnnotation> annotations = annotationsBySubject.get(subject);
+				if (annotations == null) {
+					annotations = new ArrayList<>(4);
+					annotationsBySubject.put(subject, annotations);
+				}
+				annotations.add(new LiteralAnnotation(axiom.getProperty().getIRI().getFragment(), axiom.getProperty()
+						.isLabel(), ((OWLLiteral) axiom.getValue()).getLiteral()));
+			}
+		}
+	}
+
+	/**
+	 * @param subject
+	 *            the IRI of an annotated entity
+	 * @return the literal annotations of the entity, empty if it has none
+	 */
+	List<LiteralAnnotation> getLiteralAnnotations(final IRI subject) {
+		final List<LiteralAnnotation> annotations = annotationsBySubject.get(subject);
+		return annotations == null ? Collections.<LiteralAnnotation> emptyList() : annotations;
+	}
+
+	/**
+	 * @return the number of annotated entities
+	 */
+	int size() {
+		return annotationsBySubject.size();
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.model.MissingImportEvent;
+import org.semanticweb.owlapi.model.MissingImportHandlingStrategy;
+import org.semanticweb.owlapi.model.MissingImportListener;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+
+/**
+ * The OWL API state needed to extract a bundle from a single ontology source: a manager of its own, the ontology and
+ * its imports loaded into it, and a reasoner over the ontology. Imports are located by the IRI mapper passed in.
+ * Everything is released by {@link #close()}, so that no ontology outlives the extraction of its bundle.
+ * <p>
+ * A session is not thread-safe, but different sessions share no mutable state.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class OntologySession implements AutoCloseable {
+
+	private static final Logger LOG = Logger.getLogger(OntologySession.class);
+
+	private final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+
+	// Loading stops completely if imports fail, so log these events
+	private final MissingImportListener missingImportListener = new MissingImportListener() {
+		@Override
+		public void importMissing(final MissingImportEvent event) {
+			LOG.warn("Import failed for URI: " + event.getImportedOntologyURI().toQuotedString(),
+					event.getCreationException());
+		}
+	};
+
+	private final ReasoningStrategy reasoningStrategy;
+
+	private OWLOntology ontology;
+
+	private OWLReasoner reasoner;
+
+	/**
+	 * Loads an ontology, with silent handling of missing imports, into a new manager
+	 * 
+	 * @param source
+	 *            the ontology document
+	 * @param importMapper
+	 *            maps the IRIs of the ontology's imports to the documents to load them from
+	 * @param reasoningStrategy
+	 *            how to create the session's reasoner
+	 * @throws PreservationInitialisationException
+	 *             if the ontology could not be loaded
+	 */
+	OntologySession(final File source, final OWLOntologyIRIMapper importMapper,
+			final ReasoningStrategy reasoningStrategy) throws PreservationInitialisationException {
+		this.reasoningStrategy = reasoningStrategy;
+		manager.addMissingImportListener(missingImportListener);
+		manager.addIRIMapper(importMapper);
+
+		final OWLOntologyLoaderConfiguration owlLoaderConfig = new OWLOntologyLoaderConfiguration()
+				.setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+
+		try {
+			ontology = manager.loadOntologyFromOntologyDocument(new FileDocumentSource(source), owlLoaderConfig);
+		} catch (final OWLOntologyCreationException e) {
+			close();
+			throw new PreservationInitialisationException(e.toString(), e);
+		}
+	}
+
+	/**
+	 * @return the loaded ontology, or null once the session is closed
+	 */
+	public OWLOntology getOntology() {
+		return ontology;
+	}
+
+	/**
+	 * @return the data factory of the session's manager
+	 */
+	public OWLDataFactory getDataFactory() {
+		return manager.getOWLDataFactory();
+	}
+
+	/**
+	 * Gets a reasoner over the ontology, creating it on first use as the session's {@link ReasoningStrategy} defines
+	 * 
+	 * @return the owl reasoner object
+	 */
+	public OWLReasoner getReasoner() {
+		if (reasoner == null) {
+			reasoner = reasoningStrategy.createReasoner(ontology);
+		}
+		return reasoner;
+	}
+
+	/**
+	 * @return the session's manager
+	 */
+	OWLOntologyManager getManager() {
+		return manager;
+	}
+
+	/**
+	 * Disposes of the reasoner and removes the ontology and its imports from the manager
+	 */
+	@Override
+	public void close() {
+		if (reasoner != null) {
+			reasoner.dispose();
+			reasoner = null;
+		}
+		for (final OWLOntology loaded : new ArrayList<>(manager.getOntologies())) {
+			manager.removeOntology(loaded);
+		}
+		ontology = null;
+		manager.removeMissingImportListener(missingImportListener);
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
+
+/**
+ * How the reasoner of an {@link OntologySession} is created, selected by the system property
+ * <code>pa.ontology.reasoner</code> (one of <code>none</code>, <code>structural</code> or <code>hermit</code>,
+ * defaulting to <code>structural</code>).
+ * <p>
+ * Bundle extraction only asks for direct sub-classes, direct instances and object property values, so only the
+ * {@link #USED_INFERENCES} are ever precomputed.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public enum ReasoningStrategy {
+
+	/**
+	 * Asserted axioms only: a structural reasoner with nothing precomputed and no consistency check, so that only the
+	 * parts of the ontology actually queried are ever examined
+	 */
+	NONE(new StructuralReasonerFactory(), false),
+
+	/** A structural reasoner over the asserted axioms, with the used inferences precomputed */
+	STRUCTURAL(new StructuralReasonerFactory(), true),
+
+	/**
+	 * The HermiT reasoner, with the used inferences precomputed, so that sub-classes and instances which are only
+	 * entailed by the ontology are found as well as asserted ones
+	 */
+	HERMIT(new Reasoner.ReasonerFactory(), true);
+
+	/** The types of inference which bundle extraction queries the reasoner for */
+	static final InferenceType[] USED_INFERENCES = { InferenceType.CLASS_HIERARCHY, InferenceType.CLASS_ASSERTIONS,
+			InferenceType.OBJECT_PROPERTY_ASSERTIONS };
+
+	private static final Logger LOG = Logger.getLogger(ReasoningStrategy.class);
+
+	/**
+	 * Gets the strategy named by the system property <code>pa.ontology.reasoner</code>
+	 * 
+	 * @return the configured strategy, or {@link #STRUCTURAL} if none or an unknown one is configured
+	 */
+	public static ReasoningStrategy fromSystemProperties() {
+		final String name = System.getProperty("pa.ontology.reasoner");
+		if (name == null || name.trim().isEmpty()) {
+			return STRUCTURAL;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (final IllegalArgumentException e) {
+			LOG.warn("Unknown ontology reasoner '" + name + "', using " + STRUCTURAL);
+			return STRUCTURAL;
+		}
+	}
+
+	private final OWLReasonerFactory factory;
+
+	private final boolean precompute;
+
+	private ReasoningStrategy(final OWLReasonerFactory factory, final boolean precompute) {
+		this.factory = factory;
+		this.precompute = precompute;
+	}
+
+	/**
+	 * Creates a reasoner over the passed ontology, precomputing the used inferences if the strategy calls for it
+	 * 
+	 * @param ontology
+	 *            the ontology to reason over
+	 * @return the reasoner
+	 */
+	OWLReasoner createReasoner(final OWLOntology ontology) {
+		final long start = System.nanoTime();
+		final OWLReasoner reasoner = factory.createReasoner(ontology);
+
+		if (precompute) {
+			reasoner.precomputeInferences(USED_INFERENCES);
+
+			if (reasoner.isConsistent()) {
+				LOG.trace("Loaded consistent ontology: " + ontology);
+			} else {
+				LOG.warn("Inconsistent ontology loaded, could be problematic: " + ontology);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("Created %s reasoner for %s in %d ms", this, ontology.getOntologyID(),
+					Long.valueOf((System.nanoTime() - start) / 1000000L)));
+		}
+		return reasoner;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.interfaces;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import eu.scidipes.toolkits.palibrary.impl.blob.StoredBlob;
+
+/**
+ * Content-addressed store for the binary content of {@link Form} data holders. Blobs are keyed by the hex-encoded
+ * SHA-256 digest of their content, so identical content is only ever stored once.
+ *
+ * @author Tom Bunting
+ *
+ */
+public interface BlobStore {
+
+	/**
+	 * Reads the passed stream to its end and stores its content. The stream is not closed.
+	 *
+	 * @param content
+	 *            the content to store
+	 * @return the digest and size of the stored content
+	 * @throws IOException
+	 *             if the content could not be read or stored
+	 */
+	StoredBlob put(InputStream content) throws IOException;
+
+	/**
+	 * Opens the content stored under the passed digest. The caller must close the returned stream.
+	 *
+	 * @param digest
+	 *            the hex-encoded SHA-256 digest of the content
+	 * @return a stream of the content
+	 * @throws IOException
+	 *             if no content is stored under <code>digest</code> or it could not be opened
+	 */
+	InputStream open(String digest) throws IOException;
+
+	/**
+	 * @param digest
+	 *            the hex-encoded SHA-256 digest of the content
+	 * @return true if content is stored under <code>digest</code>
+	 */
+	boolean contains(String digest);
+
+}
@@ -4,9 +4,11 @@
 package eu.scidipes.toolkits.palibrary.interfaces;
 
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationException;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.BundleMetadata;
 
 /**
  * Defines a library of operations on preservation datasets and source bundles
@@ -20,5 +22,55 @@ public interface LibraryAPI {
 
 	FormsBundle getEmptyStructureForBundle(String bundleName) throws PreservationException;
 
+	/**
+	 * Gets a single form of a template bundle, without copying the bundle. The returned form is read-only; use
+	 * {@link eu.scidipes.toolkits.palibrary.impl.FormImpl#copy(Form, FormsBundle)} to create a new form from it.
+	 * 
+	 * @param bundleName
+	 *            the name of the template bundle
+	 * @param formName
+	 *            the name of the form in the bundle
+	 * @return the read-only template form
+	 * @throws PreservationException
+	 *             if no such bundle or form exists
+	 */
+	Form getTemplateForm(String bundleName, String formName) throws PreservationException;
+
+	/**
+	 * Gets the metadata of a template bundle, without copying the bundle
+	 * 
+	 * @param bundleName
+	 *            the name of the template bundle
+	 * @return the bundle's metadata
+	 * @throws PreservationException
+	 *             if no such bundle exists
+	 */
+	BundleMetadata getBundleMetadata(String bundleName) throws PreservationException;
+
 	boolean deleteBundle(FormsBundle bundle) throws PreservationInitialisationException;
+
+	/**
+	 * Removes a template bundle from the library
+	 * 
+	 * @param bundleName
+	 *            the name of the bundle to remove
+	 * @return true if the bundle was found and removed
+	 */
+	boolean deleteBundle(String bundleName);
+
+	/**
+	 * Gets the progress of the library's template discovery, which runs in the background once the library has been
+	 * initialised. Until discovery is {@link TemplateDiscoveryState#READY ready}, only the templates loaded so far are
+	 * available.
+	 * 
+	 * @return the state of template discovery
+	 */
+	TemplateDiscoveryState getTemplateDiscoveryState();
+
+	/**
+	 * Gets a future which completes once template discovery has finished, for callers which need every template
+	 * 
+	 * @return the template discovery future
+	 */
+	Future<Void> getTemplateDiscovery();
 }
@@ -50,6 +50,22 @@ public interface PreservationManager {
 	 */
 	boolean preserve(final FormsBundle formsBundle, final Registry registry) throws PreservationException;
 
+	/**
+	 * Submits a new job for preservation, as {@link #preserve(FormsBundle, Registry)}, in the given mode. In
+	 * {@link PreservationMode#INCREMENTAL} mode only the forms and RILs which have changed since they were last
+	 * preserved are uploaded.
+	 * 
+	 * @param formsBundle
+	 * @param registry
+	 * @param mode
+	 * @return true if the job was successfully started, false if not (another job for the same data set may be in
+	 *         progress)
+	 * @throws PreservationException
+	 *             if the given registry is not currently writable or some IO error occurs
+	 */
+	boolean preserve(final FormsBundle formsBundle, final Registry registry, final PreservationMode mode)
+			throws PreservationException;
+
 	/**
 	 * Deletes the job corresponding to the given datasetName
 	 * 
@@ -58,4 +74,11 @@ public interface PreservationManager {
 	 */
 	boolean deleteJob(final String datasetName);
 
+	/**
+	 * Resumes, in the background, any jobs left unfinished by a previous shutdown or crash. Must only be called once
+	 * the framework and its registries have been loaded. Jobs whose registry cannot currently be written to are left
+	 * queued and retried later.
+	 */
+	void resumeUnfinishedJobs();
+
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.interfaces;
+
+/**
+ * The progress of the library's background discovery of template bundles
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public enum TemplateDiscoveryState {
+
+	/** Discovery has not yet been started */
+	NOT_STARTED,
+
+	/** Discovery is in progress; the templates loaded so far are available */
+	LOADING,
+
+	/** Every template source has been processed */
+	READY,
+
+	/** Discovery could not complete; only the templates loaded before the failure are available */
+	FAILED;
+}
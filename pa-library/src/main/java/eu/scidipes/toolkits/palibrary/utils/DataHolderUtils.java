@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import static eu.scidipes.toolkits.palibrary.interfaces.FormFieldType.BYTESTREAM;
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang.StringUtils;
+
+import eu.scidipes.toolkits.palibrary.impl.blob.StoredBlob;
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+
+/**
+ * Utility methods for accessing the content of {@link Form} data holders
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class DataHolderUtils {
+
+	private DataHolderUtils() {
+		/* Private constructor */
+	}
+
+	/**
+	 * Opens the bytestream content of a form. Forms normally refer to content held in a {@link BlobStore}; forms saved
+	 * before the blob store was introduced hold their content inline as Base64, which is decoded instead.
+	 *
+	 * @param form
+	 *            a form whose data holder type is {@link eu.scidipes.toolkits.palibrary.interfaces.FormFieldType#BYTESTREAM}
+	 * @param blobStore
+	 *            the store holding the form's content
+	 * @return a stream of the form's content, which the caller must close
+	 * @throws IOException
+	 *             if the content could not be opened
+	 * @throws IllegalArgumentException
+	 *             if the form does not hold a bytestream
+	 */
+	public static InputStream openBytestream(final Form form, final BlobStore blobStore) throws IOException {
+		notNull(form, "The form must not be null");
+		notNull(blobStore, "The blobStore must not be null");
+
+		final String dataHolder = form.getDataHolder();
+
+		if (form.getDataHolderType() != BYTESTREAM || StringUtils.isEmpty(dataHolder)) {
+			throw new IllegalArgumentException(form + " does not hold a bytestream");
+		}
+
+		if (StoredBlob.isReference(dataHolder)) {
+			return blobStore.open(StoredBlob.digestOf(dataHolder));
+		}
+		return new ByteArrayInputStream(Base64.decodeBase64(dataHolder));
+	}
+
+}
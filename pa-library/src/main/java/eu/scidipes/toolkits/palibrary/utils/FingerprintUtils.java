@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
+import info.digitalpreserve.interfaces.RepInfoCategory;
+import info.digitalpreserve.interfaces.RepInfoGroup;
+import info.digitalpreserve.interfaces.RepInfoLabel;
+import info.digitalpreserve.interfaces.RepresentationInformation;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.binary.Hex;
+
+import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
+import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel.CoreRIType;
+import eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormField;
+
+/**
+ * Computes content fingerprints of preservable items, so that items unchanged since they were last preserved can be
+ * skipped by an incremental preservation job. A fingerprint is the hex-encoded SHA-256 digest of everything about an
+ * item that is uploaded to the registry; collections are sorted first so that fingerprints do not depend on iteration
+ * order.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class FingerprintUtils {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Orders form fields by display name, then value, whatever the order in which a form holds them */
+	private static final Comparator<FormField> FIELD_ORDER = new Comparator<FormField>() {
+		@Override
+		public int compare(final FormField f1, final FormField f2) {
+			final int byName = compareNullsFirst(f1.getDisplayName(), f2.getDisplayName());
+			return byName != 0 ? byName : compareNullsFirst(f1.getValue(), f2.getValue());
+		}
+	};
+
+	private FingerprintUtils() {
+		/* Private constructor */
+	}
+
+	/**
+	 * Fingerprints a form from its data holder, file metadata, item file name, flex field values, categories and RIL
+	 * CPID. Uploaded content is not re-read: its data holder is a blob store reference, which is itself a digest of the
+	 * content.
+	 * 
+	 * @param form
+	 *            the form to fingerprint
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(final Form form) {
+		final MessageDigest digest = newMessageDigest();
+
+		update(digest, String.valueOf(form.getDataHolderType()));
+		update(digest, form.getDataHolder());
+		update(digest, form.getItemFileName());
+
+		for (final Map.Entry<CoreFieldMetadata, String> entry : new TreeMap<>(form.getDataHolderMetadata()).entrySet()) {
+			update(digest, entry.getKey().name());
+			update(digest, entry.getValue());
+		}
+
+		final List<FormField> fields = new ArrayList<>(form.getFormFields());
+		Collections.sort(fields, FIELD_ORDER);
+		for (final FormField field : fields) {
+			update(digest, field.getDisplayName());
+			update(digest, field.getValue());
+		}
+
+		final List<String> categories = new ArrayList<>();
+		for (final RepInfoCategory category : form.getCategories()) {
+			categories.add(category.getName());
+		}
+		Collections.sort(categories);
+		for (final String category : categories) {
+			update(digest, category);
+		}
+
+		update(digest, uidOf(form.getRILCPID()));
+
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * Fingerprints a dataset RIL from its CPID, display name, description and the CPIDs of the representation
+	 * information in each of its core sections.
+	 * 
+	 * @param datasetRIL
+	 *            the dataset RIL to fingerprint
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(final DatasetRIL datasetRIL) {
+		final MessageDigest digest = newMessageDigest();
+		final RepInfoLabel ril = datasetRIL.getRil();
+
+		update(digest, datasetRIL.getRilCPID());
+		update(digest, ril.getDisplayname());
+		update(digest, ril.getDescription());
+
+		final List<String> repInfo = new ArrayList<>();
+		for (final RepresentationInformation child : ril.getRepresentationInformationChildren()) {
+			if (child.getRepresentationInformation() instanceof RepInfoGroup) {
+				final String section = sectionOf(child);
+				for (final RepresentationInformation grandChild : ((RepInfoGroup) child.getRepresentationInformation())
+						.getRepresentationInformationChildren()) {
+					repInfo.add(section + '=' + uidOf(grandChild.getCpid()));
+				}
+			}
+		}
+		Collections.sort(repInfo);
+		for (final String entry : repInfo) {
+			update(digest, entry);
+		}
+
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	private static String sectionOf(final RepresentationInformation child) {
+		for (final CoreRIType type : CoreRIType.getValues()) {
+			if (type.getType().isAssignableFrom(child.getClass())) {
+				return type.getName();
+			}
+		}
+		return child.getClass().getName();
+	}
+
+	private static int compareNullsFirst(final String s1, final String s2) {
+		if (s1 == null) {
+			return s2 == null ? 0 : -1;
+		}
+		return s2 == null ? 1 : s1.compareTo(s2);
+	}
+
+	private static String uidOf(final CurationPersistentIdentifier cpid) {
+		return cpid == null ? null : cpid.getUID();
+	}
+
+	/**
+	 * Updates the digest with a length-prefixed value, so that adjacent values cannot run into one another
+	 */
+	private static void update(final MessageDigest digest, final String value) {
+		if (value == null) {
+			digest.update((byte) 0);
+		} else {
+			final byte[] bytes = value.getBytes(UTF8);
+			digest.update((byte) 1);
+			digest.update(Integer.toString(bytes.length).getBytes(UTF8));
+			digest.update((byte) ':');
+			digest.update(bytes);
+		}
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			/* Every JVM is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
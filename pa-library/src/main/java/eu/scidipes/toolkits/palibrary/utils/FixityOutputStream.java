@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Hex;
+
+import eu.scidipes.toolkits.palibrary.exceptions.PARuntimeException;
+
+/**
+ * {@link FilterOutputStream} which, as content is written through it, computes the SHA-256 and MD5 fixity digests of
+ * the content and counts its bytes, so that the fixity of a preserved payload is known without reading it again.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class FixityOutputStream extends FilterOutputStream {
+
+	private final MessageDigest sha256 = newDigest("SHA-256");
+
+	private final MessageDigest md5 = newDigest("MD5");
+
+	private long count;
+
+	private String sha256Hex;
+
+	private String md5Hex;
+
+	/**
+	 * @param out
+	 *            the stream to write to
+	 */
+	public FixityOutputStream(final OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		out.write(b);
+		sha256.update((byte) b);
+		md5.update((byte) b);
+		count++;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		/* FilterOutputStream would write a byte at a time, so write the whole range through in one go: */
+		out.write(b, off, len);
+		sha256.update(b, off, len);
+		md5.update(b, off, len);
+		count += len;
+	}
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Must only be called once all of the content has been written
+	 * 
+	 * @return the hex-encoded SHA-256 digest of the content written
+	 */
+	public String getSHA256() {
+		if (sha256Hex == null) {
+			sha256Hex = Hex.encodeHexString(sha256.digest());
+		}
+		return sha256Hex;
+	}
+
+	/**
+	 * Must only be called once all of the content has been written
+	 * 
+	 * @return the hex-encoded MD5 digest of the content written
+	 */
+	public String getMD5() {
+		if (md5Hex == null) {
+			md5Hex = Hex.encodeHexString(md5.digest());
+		}
+		return md5Hex;
+	}
+
+	private static MessageDigest newDigest(final String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (final NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support both SHA-256 and MD5: */
+			throw new PARuntimeException(e.toString(), e);
+		}
+	}
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Detects the MIME type of content from the 'magic numbers' in its first few bytes, for the formats most commonly
+ * deposited as data, documentation and software.
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class MimeSniffer {
+
+	/** Number of leading bytes of content examined when sniffing */
+	public static final int HEADER_LENGTH = 512;
+
+	public static final String OCTET_STREAM = "application/octet-stream";
+
+	/**
+	 * Generic container or text types: when one of these is sniffed but the client declared a more specific type (e.g.
+	 * an OOXML document, which is a ZIP), the declared type is kept
+	 */
+	private static final Set<String> CONTAINER_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"application/zip", "application/xml", "application/x-ole-storage", "text/plain")));
+
+	/**
+	 * Types sharing the ISO base media file format (an <code>ftyp</code> box followed by a brand), which the major
+	 * brand alone does not always distinguish reliably: when one of these is sniffed and the client declared another of
+	 * them, the declared type is kept
+	 */
+	private static final Set<String> ISO_BMFF_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"video/mp4", "audio/mp4", "audio/x-m4a", "video/x-m4v", "video/quicktime", "video/3gpp", "video/3gpp2",
+			"image/heic", "image/heic-sequence", "image/heif", "image/heif-sequence", "image/avif")));
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private MimeSniffer() {
+		/* Private constructor */
+	}
+
+	/**
+	 * Sniffs the MIME type of content from its leading bytes.
+	 *
+	 * @param header
+	 *            buffer holding the leading bytes of the content
+	 * @param length
+	 *            the number of valid bytes in <code>header</code>
+	 * @return the detected MIME type, or <code>null</code> if the content is not recognised
+	 */
+	public static String sniff(final byte[] header, final int length) {
+		if (header == null || length <= 0) {
+			return null;
+		}
+
+		final int len = Math.min(length, header.length);
+
+		if (startsWith(header, len, 0, "%PDF-")) {
+			return "application/pdf";
+		} else if (startsWith(header, len, 0, 'P', 'K', 0x03, 0x04)) {
+			return "application/zip";
+		} else if (startsWith(header, len, 0, 0x1f, 0x8b)) {
+			return "application/gzip";
+		} else if (startsWith(header, len, 0, "BZh")) {
+			return "application/x-bzip2";
+		} else if (startsWith(header, len, 0, 0xfd, '7', 'z', 'X', 'Z', 0x00)) {
+			return "application/x-xz";
+		} else if (startsWith(header, len, 0, '7', 'z', 0xbc, 0xaf, 0x27, 0x1c)) {
+			return "application/x-7z-compressed";
+		} else if (startsWith(header, len, 0, 0x89, 'P', 'N', 'G', 0x0d, 0x0a, 0x1a, 0x0a)) {
+			return "image/png";
+		} else if (startsWith(header, len, 0, 0xff, 0xd8, 0xff)) {
+			return "image/jpeg";
+		} else if (startsWith(header, len, 0, "GIF87a") || startsWith(header, len, 0, "GIF89a")) {
+			return "image/gif";
+		} else if (startsWith(header, len, 0, 'I', 'I', 0x2a, 0x00)
+				|| startsWith(header, len, 0, 'M', 'M', 0x00, 0x2a)) {
+			return "image/tiff";
+		} else if (startsWith(header, len, 0, 0x89, 'H', 'D', 'F', 0x0d, 0x0a, 0x1a, 0x0a)) {
+			return "application/x-hdf5";
+		} else if (startsWith(header, len, 0, 'C', 'D', 'F', 0x01) || startsWith(header, len, 0, 'C', 'D', 'F', 0x02)) {
+			return "application/x-netcdf";
+		} else if (startsWith(header, len, 0, "SIMPLE  =")) {
+			return "application/fits";
+		} else if (startsWith(header, len, 4, "ftyp")) {
+			return isoBmffType(header, len);
+		} else if (startsWith(header, len, 0, "RIFF") && startsWith(header, len, 8, "WAVE")) {
+			return "audio/wav";
+		} else if (startsWith(header, len, 0, "RIFF") && startsWith(header, len, 8, "AVI ")) {
+			return "video/x-msvideo";
+		} else if (startsWith(header, len, 0, "ID3")) {
+			return "audio/mpeg";
+		} else if (startsWith(header, len, 0, "OggS")) {
+			return "application/ogg";
+		} else if (startsWith(header, len, 0, 0xd0, 0xcf, 0x11, 0xe0, 0xa1, 0xb1, 0x1a, 0xe1)) {
+			return "application/x-ole-storage";
+		} else if (startsWith(header, len, skipBOMAndWhitespace(header, len), "<?xml")) {
+			return "application/xml";
+		} else if (isText(header, len)) {
+			return "text/plain";
+		}
+
+		return null;
+	}
+
+	/**
+	 * Chooses between a sniffed and a client-declared MIME type. The sniffed type is preferred unless it is missing or
+	 * is a generic container type for which the client declared something more specific.
+	 *
+	 * @param sniffed
+	 *            the sniffed type, may be <code>null</code>
+	 * @param declared
+	 *            the type declared by the client, may be <code>null</code>
+	 * @return the type to record, never <code>null</code>
+	 */
+	public static String resolve(final String sniffed, final String declared) {
+		final boolean declaredSpecific = StringUtils.isNotBlank(declared) && !OCTET_STREAM.equalsIgnoreCase(declared);
+
+		if (sniffed == null) {
+			return declaredSpecific ? declared : OCTET_STREAM;
+		}
+		if (declaredSpecific && CONTAINER_TYPES.contains(sniffed)) {
+			return declared;
+		}
+		if (declaredSpecific && ISO_BMFF_TYPES.contains(sniffed)
+				&& ISO_BMFF_TYPES.contains(StringUtils.substringBefore(declared, ";").trim().toLowerCase())) {
+			return declared;
+		}
+		return sniffed;
+	}
+
+	/**
+	 * Maps the major brand of an ISO base media file, held in the four bytes following its <code>ftyp</code> box
+	 * type, to a MIME type; unknown or missing brands are assumed to be MP4 video.
+	 */
+	private static String isoBmffType(final byte[] header, final int len) {
+		if (len < 12) {
+			return "video/mp4";
+		}
+		final String brand = new String(header, 8, 4, ASCII);
+
+		if ("M4A ".equals(brand) || "M4B ".equals(brand) || "M4P ".equals(brand)) {
+			return "audio/mp4";
+		} else if ("heic".equals(brand) || "heix".equals(brand) || "heim".equals(brand) || "heis".equals(brand)) {
+			return "image/heic";
+		} else if ("hevc".equals(brand) || "hevx".equals(brand)) {
+			return "image/heic-sequence";
+		} else if ("mif1".equals(brand)) {
+			return "image/heif";
+		} else if ("msf1".equals(brand)) {
+			return "image/heif-sequence";
+		} else if ("avif".equals(brand) || "avis".equals(brand)) {
+			return "image/avif";
+		} else if ("qt  ".equals(brand)) {
+			return "video/quicktime";
+		} else if (brand.startsWith("3g2")) {
+			return "video/3gpp2";
+		} else if (brand.startsWith("3gp")) {
+			return "video/3gpp";
+		}
+		return "video/mp4";
+	}
+
+	private static boolean startsWith(final byte[] header, final int len, final int offset, final String magic) {
+		return startsWith(header, len, offset, magic.getBytes(ASCII));
+	}
+
+	private static boolean startsWith(final byte[] header, final int len, final int offset, final int... magic) {
+		final byte[] bytes = new byte[magic.length];
+		for (int i = 0; i < magic.length; i++) {
+			bytes[i] = (byte) magic[i];
+		}
+		return startsWith(header, len, offset, bytes);
+	}
+
+	private static boolean startsWith(final byte[] header, final int len, final int offset, final byte[] magic) {
+		if (offset + magic.length > len) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if (header[offset + i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int skipBOMAndWhitespace(final byte[] header, final int len) {
+		int i = startsWith(header, len, 0, 0xef, 0xbb, 0xbf) ? 3 : 0;
+		while (i < len && Character.isWhitespace(header[i])) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Content is considered text if its header contains no control characters other than whitespace; bytes above 0x7f
+	 * are allowed so that UTF-8 and Latin-1 text qualify.
+	 */
+	private static boolean isText(final byte[] header, final int len) {
+		for (int i = 0; i < len; i++) {
+			final int b = header[i] & 0xff;
+			if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') {
+				return false;
+			}
+			if (b == 0x7f) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
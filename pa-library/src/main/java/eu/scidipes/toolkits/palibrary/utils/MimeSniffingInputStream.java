@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FilterInputStream} which, as content is read through it, counts the bytes read and keeps a copy of the first
+ * {@link MimeSniffer#HEADER_LENGTH} of them so that the content's MIME type can be sniffed once it has been consumed.
+ * Only a fixed-size header is retained, whatever the length of the content.
+ *
+ * @author Tom Bunting
+ *
+ */
+public class MimeSniffingInputStream extends FilterInputStream {
+
+	private final byte[] header = new byte[MimeSniffer.HEADER_LENGTH];
+
+	private int headerLength;
+
+	private long count;
+
+	/**
+	 * @param in
+	 *            the stream to read from
+	 */
+	public MimeSniffingInputStream(final InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b != -1) {
+			if (headerLength < header.length) {
+				header[headerLength++] = (byte) b;
+			}
+			count++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int read = super.read(b, off, len);
+		if (read > 0) {
+			if (headerLength < header.length) {
+				final int toCopy = Math.min(read, header.length - headerLength);
+				System.arraycopy(b, off, header, headerLength, toCopy);
+				headerLength += toCopy;
+			}
+			count += read;
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		/* Skipped bytes would leave a hole in the header, so read through them instead: */
+		final byte[] buffer = new byte[(int) Math.min(n, 4096)];
+		long remaining = n;
+		while (remaining > 0) {
+			final int read = read(buffer, 0, (int) Math.min(remaining, buffer.length));
+			if (read == -1) {
+				break;
+			}
+			remaining -= read;
+		}
+		return n - remaining;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * @return the number of bytes read so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the MIME type sniffed from the bytes read so far, or <code>null</code> if not recognised
+	 * @see MimeSniffer#sniff(byte[], int)
+	 */
+	public String getSniffedType() {
+		return MimeSniffer.sniff(header, headerLength);
+	}
+
+}
@@ -19,6 +19,7 @@ package eu.scidipes.toolkits.palibrary.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.Collection;
 import java.util.Properties;
@@ -26,8 +27,12 @@ import java.util.Properties;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -45,6 +50,9 @@ import eu.scidipes.toolkits.palibrary.exceptions.PARuntimeException;
 import eu.scidipes.toolkits.palibrary.interfaces.FormField;
 
 /**
+ * XML utilities. Document builders and transformers are not thread-safe, so each thread keeps its own, created on
+ * first use; flex field metadata can also be streamed without building a DOM at all.
+ * 
  * @author Tom Bunting
  * 
  */
@@ -52,14 +60,45 @@ public final class XMLUtils {
 
 	private static final Logger LOG = LoggerFactory.getLogger(XMLUtils.class);
 
+	private static final String ENCODING = "UTF-8";
+
 	private static TransformerFactory transformerFactory;
 	private static DocumentBuilderFactory documentBuilderFactory;
+	private static XMLOutputFactory xmlOutputFactory;
 
 	static {
 		transformerFactory = TransformerFactory.newInstance();
 		documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		xmlOutputFactory = XMLOutputFactory.newInstance();
 	}
 
+	private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>() {
+		@Override
+		protected DocumentBuilder initialValue() {
+			/* The factories are not guaranteed to be thread-safe, but this only runs once per thread: */
+			synchronized (documentBuilderFactory) {
+				try {
+					return documentBuilderFactory.newDocumentBuilder();
+				} catch (final ParserConfigurationException e) {
+					throw new PARuntimeException(e.toString(), e);
+				}
+			}
+		}
+	};
+
+	private static final ThreadLocal<Transformer> TRANSFORMER = new ThreadLocal<Transformer>() {
+		@Override
+		protected Transformer initialValue() {
+			synchronized (transformerFactory) {
+				try {
+					return transformerFactory.newTransformer();
+				} catch (final TransformerConfigurationException e) {
+					throw new PARuntimeException(e.toString(), e);
+				}
+			}
+		}
+	};
+
 	private XMLUtils() {
 		/* Private constructor */
 	}
@@ -74,45 +113,113 @@ public final class XMLUtils {
 	 */
 	public static Node formFieldsToMetadata(final Collection<? extends FormField> fields) {
 		if (fields != null && !fields.isEmpty()) {
-			try {
-				final Document xml;
+			final Document xml = documentBuilder().newDocument();
 
-				synchronized (documentBuilderFactory) {
-					xml = documentBuilderFactory.newDocumentBuilder().newDocument();
-				}
+			xml.setXmlStandalone(true);
+			final Element metaData = xml.createElement("metadata");
+			int completedFieldCount = 0;
 
-				xml.setXmlStandalone(true);
-				final Element metaData = xml.createElement("metadata");
-				int completedFieldCount = 0;
+			for (final FormField field : fields) {
+				if (!StringUtils.isEmpty(field.getValue())) {
+					completedFieldCount++;
+					final Element metaDataEntry = xml.createElement("metadataentry");
+					final Element entryName = xml.createElement("entryname");
+					final Element entryValue = xml.createElement("entryvalue");
 
-				for (final FormField field : fields) {
-					if (!StringUtils.isEmpty(field.getValue())) {
-						completedFieldCount++;
-						final Element metaDataEntry = xml.createElement("metadataentry");
-						final Element entryName = xml.createElement("entryname");
-						final Element entryValue = xml.createElement("entryvalue");
+					entryName.setTextContent(field.getDisplayName());
+					entryValue.setTextContent(field.getValue());
 
-						entryName.setTextContent(field.getDisplayName());
-						entryValue.setTextContent(field.getValue());
+					metaDataEntry.appendChild(entryName);
+					metaDataEntry.appendChild(entryValue);
+					metaData.appendChild(metaDataEntry);
+				}
+			}
 
-						metaDataEntry.appendChild(entryName);
-						metaDataEntry.appendChild(entryValue);
-						metaData.appendChild(metaDataEntry);
+			if (completedFieldCount > 0) {
+				xml.appendChild(metaData);
+				return xml;
+			} else {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Streams the non-empty form fields of a collection as a <code>metadata</code> document, with one
+	 * <code>metadataentry</code> per field, straight to the passed stream. The document is equivalent to that
+	 * serialised from {@link #formFieldsToMetadata(Collection)} by {@link #nodeToString(Node, boolean, boolean)} with
+	 * indentation and an XML declaration, but no DOM is built. The passed stream is flushed but not closed.
+	 * 
+	 * @param fields
+	 *            a collection of form fields
+	 * @param out
+	 *            the stream to write the UTF-8 encoded document to
+	 * @throws IOException
+	 *             if the document could not be written
+	 * @see #hasMetadata(Collection)
+	 */
+	public static void writeMetadata(final Collection<? extends FormField> fields, final OutputStream out)
+			throws IOException {
+		try {
+			final XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(out, ENCODING);
+			try {
+				writer.writeStartDocument(ENCODING, "1.0");
+				writer.writeCharacters("\n");
+				writer.writeStartElement("metadata");
+
+				if (fields != null) {
+					for (final FormField field : fields) {
+						if (!StringUtils.isEmpty(field.getValue())) {
+							writer.writeCharacters("\n  ");
+							writer.writeStartElement("metadataentry");
+							writer.writeCharacters("\n    ");
+							writeElement(writer, "entryname", field.getDisplayName());
+							writer.writeCharacters("\n    ");
+							writeElement(writer, "entryvalue", field.getValue());
+							writer.writeCharacters("\n  ");
+							writer.writeEndElement();
+						}
 					}
 				}
 
-				if (completedFieldCount > 0) {
-					xml.appendChild(metaData);
-					return xml;
-				} else {
-					return null;
-				}
+				writer.writeCharacters("\n");
+				writer.writeEndElement();
+				writer.writeCharacters("\n");
+				writer.writeEndDocument();
+				writer.flush();
+			} finally {
+				/* Closing a stream writer does not close the underlying stream: */
+				writer.close();
+			}
+		} catch (final XMLStreamException e) {
+			throw new IOException(e.toString(), e);
+		}
+	}
 
-			} catch (final ParserConfigurationException e) {
-				LOG.error(e.getMessage(), e);
+	/**
+	 * @param fields
+	 *            a collection of form fields
+	 * @return true if any of the passed form fields has a value, and so would be written as metadata
+	 */
+	public static boolean hasMetadata(final Collection<? extends FormField> fields) {
+		if (fields != null) {
+			for (final FormField field : fields) {
+				if (!StringUtils.isEmpty(field.getValue())) {
+					return true;
+				}
 			}
 		}
-		return null;
+		return false;
+	}
+
+	private static void writeElement(final XMLStreamWriter writer, final String name, final String text)
+			throws XMLStreamException {
+		writer.writeStartElement(name);
+		if (text != null) {
+			writer.writeCharacters(text);
+		}
+		writer.writeEndElement();
 	}
 
 	/**
@@ -125,10 +232,9 @@ public final class XMLUtils {
 	 *             containing details of any exceptions encountered during processing
 	 */
 	public static Node fileToDoc(final File file) {
-		try {
-			final DocumentBuilder dBuilder = documentBuilderFactory.newDocumentBuilder();
-			return dBuilder.parse(new FileInputStream(file));
-		} catch (ParserConfigurationException | SAXException | IOException e) {
+		try (final FileInputStream in = new FileInputStream(file)) {
+			return documentBuilder().parse(in);
+		} catch (SAXException | IOException e) {
 			throw new PARuntimeException(e.toString(), e);
 		}
 	}
@@ -143,9 +249,8 @@ public final class XMLUtils {
 	 */
 	public static Node stringToDoc(final String source) {
 		try {
-			final DocumentBuilder dBuilder = documentBuilderFactory.newDocumentBuilder();
-			return dBuilder.parse(source);
-		} catch (ParserConfigurationException | SAXException | IOException e) {
+			return documentBuilder().parse(source);
+		} catch (SAXException | IOException e) {
 			throw new PARuntimeException(e.toString(), e);
 		}
 	}
@@ -169,9 +274,10 @@ public final class XMLUtils {
 
 	private static String nodeToString(final Node doc, final Properties outputProperties) {
 		try {
-			final Transformer transformer = transformerFactory.newTransformer();
+			final Transformer transformer = TRANSFORMER.get();
+			transformer.reset();
 			outputProperties.put(OutputKeys.METHOD, "xml");
-			outputProperties.put(OutputKeys.ENCODING, "UTF-8");
+			outputProperties.put(OutputKeys.ENCODING, ENCODING);
 			transformer.setOutputProperties(outputProperties);
 			final StringWriter writer = new StringWriter();
 			transformer.transform(new DOMSource(doc), new StreamResult(writer));
@@ -182,4 +288,13 @@ public final class XMLUtils {
 		return "";
 	}
 
+	/**
+	 * @return this thread's document builder, reset for reuse
+	 */
+	private static DocumentBuilder documentBuilder() {
+		final DocumentBuilder builder = DOCUMENT_BUILDER.get();
+		builder.reset();
+		return builder;
+	}
+
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils.zip;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.apache.log4j.Logger;
+
+import eu.scidipes.toolkits.palibrary.utils.MimeSniffer;
+
+/**
+ * Decides how hard to compress each entry of a zip archive. Entries whose content is already compressed (archives,
+ * most image, audio and video formats, or anything whose leading bytes look random) are stored uncompressed, since
+ * deflating them costs CPU for no gain in size; text-like entries are deflated at the configured level.
+ * <p>
+ * The level is configured with the system property <code>pa.zip.compressionLevel</code>, from 0 (store everything) to
+ * 9, defaulting to {@link Deflater#DEFAULT_COMPRESSION}. The entropy above which content of an unknown type is taken
+ * to be incompressible is configured with <code>pa.zip.entropyThreshold</code>, in bits per byte (default 7.5).
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class CompressionPolicy {
+
+	private static final Logger LOG = Logger.getLogger(CompressionPolicy.class);
+
+	/** Number of leading bytes of an entry examined to choose its compression level */
+	public static final int SAMPLE_LENGTH = 64 * 1024;
+
+	private static final double DEFAULT_ENTROPY_THRESHOLD = 7.5d;
+
+	/** Types whose content is already compressed */
+	private static final Set<String> COMPRESSED_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2", "application/x-xz",
+			"application/x-7z-compressed", "application/x-rar-compressed", "application/java-archive",
+			"application/ogg", "image/jpeg", "image/png", "image/gif", "audio/mpeg", "audio/ogg", "audio/mp4")));
+
+	/** Prefixes of families of types whose content is already compressed */
+	private static final String[] COMPRESSED_TYPE_PREFIXES = { "video/",
+			"application/vnd.openxmlformats-officedocument.", "application/vnd.oasis.opendocument." };
+
+	/** Types, other than <code>text/*</code>, whose content is text */
+	private static final Set<String> TEXT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"application/xml", "application/json", "application/javascript", "application/rdf+xml",
+			"application/x-sh", "application/sql")));
+
+	/**
+	 * @return the policy configured by the system properties <code>pa.zip.compressionLevel</code> and
+	 *         <code>pa.zip.entropyThreshold</code>
+	 */
+	public static CompressionPolicy fromSystemProperties() {
+		int level = Integer.getInteger("pa.zip.compressionLevel", Deflater.DEFAULT_COMPRESSION).intValue();
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			LOG.warn("Invalid pa.zip.compressionLevel " + level + ", using the default");
+			level = Deflater.DEFAULT_COMPRESSION;
+		}
+
+		double entropyThreshold = DEFAULT_ENTROPY_THRESHOLD;
+		final String threshold = System.getProperty("pa.zip.entropyThreshold");
+		if (threshold != null) {
+			try {
+				entropyThreshold = Double.parseDouble(threshold);
+			} catch (final NumberFormatException e) {
+				LOG.warn("Invalid pa.zip.entropyThreshold '" + threshold + "', using the default");
+			}
+		}
+
+		return new CompressionPolicy(level, entropyThreshold);
+	}
+
+	private final int level;
+
+	private final double entropyThreshold;
+
+	/**
+	 * @param level
+	 *            the deflate level for compressible entries, or {@link Deflater#NO_COMPRESSION} to store every entry
+	 * @param entropyThreshold
+	 *            the entropy, in bits per byte, at or above which content is taken to be incompressible
+	 */
+	public CompressionPolicy(final int level, final double entropyThreshold) {
+		this.level = level;
+		this.entropyThreshold = entropyThreshold;
+	}
+
+	/**
+	 * Chooses the compression level for an entry
+	 * 
+	 * @param mimeType
+	 *            the declared MIME type of the entry, or <code>null</code> if unknown, in which case it is sniffed from
+	 *            the sample
+	 * @param sample
+	 *            buffer holding the leading bytes of the entry
+	 * @param length
+	 *            the number of valid bytes in <code>sample</code>
+	 * @return the level to deflate the entry at, {@link Deflater#NO_COMPRESSION} if it should be stored as is
+	 */
+	public int levelFor(final String mimeType, final byte[] sample, final int length) {
+		if (level == Deflater.NO_COMPRESSION) {
+			return Deflater.NO_COMPRESSION;
+		}
+
+		final String type = normalise(mimeType != null ? mimeType : MimeSniffer.sniff(sample, length));
+		if (type != null) {
+			if (type.startsWith("text/") || type.endsWith("+xml") || TEXT_TYPES.contains(type)) {
+				return level;
+			}
+			if (COMPRESSED_TYPES.contains(type) || startsWithAny(type, COMPRESSED_TYPE_PREFIXES)) {
+				return Deflater.NO_COMPRESSION;
+			}
+		}
+
+		/* Otherwise (e.g. HDF5, which may or may not use compressed chunks) judge by the content itself: */
+		final double entropy = entropy(sample, length);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("Entry of type %s has entropy %.2f bits/byte", type, Double.valueOf(entropy)));
+		}
+		return entropy >= entropyThreshold ? Deflater.NO_COMPRESSION : level;
+	}
+
+	/**
+	 * @return the deflate level for compressible entries
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Calculates the Shannon entropy of a sample of bytes: 8 bits per byte for random (or well compressed) content,
+	 * typically below 5 for text.
+	 * 
+	 * @param sample
+	 *            buffer holding the bytes
+	 * @param length
+	 *            the number of valid bytes in <code>sample</code>
+	 * @return the entropy in bits per byte, 0 for an empty sample
+	 */
+	static double entropy(final byte[] sample, final int length) {
+		if (length <= 0) {
+			return 0d;
+		}
+
+		final int[] counts = new int[256];
+		for (int i = 0; i < length; i++) {
+			counts[sample[i] & 0xff]++;
+		}
+
+		double entropy = 0d;
+		for (final int count : counts) {
+			if (count > 0) {
+				final double p = (double) count / length;
+				entropy -= p * Math.log(p);
+			}
+		}
+		return entropy / Math.log(2d);
+	}
+
+	private static String normalise(final String mimeType) {
+		if (mimeType == null) {
+			return null;
+		}
+		final int params = mimeType.indexOf(';');
+		return (params >= 0 ? mimeType.substring(0, params) : mimeType).trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	private static boolean startsWithAny(final String type, final String[] prefixes) {
+		for (final String prefix : prefixes) {
+			if (type.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CompressionPolicy [level %d, entropy threshold %.2f]", Integer.valueOf(level),
+				Double.valueOf(entropyThreshold));
+	}
+
+}
@@ -16,14 +16,16 @@
  */
 package eu.scidipes.toolkits.palibrary.utils.zip;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Set;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
 
 /**
@@ -32,30 +34,18 @@ import org.apache.commons.io.IOUtils;
  */
 public final class ZipUtils {
 
-	public static class ByteArrayZipEntry {
-
-		private final byte[] bytes;
-
-		private final ZipEntry zipEntry;
-
-		public ByteArrayZipEntry(final byte[] bytes, final ZipEntry zipEntry) {
-			this.bytes = Arrays.copyOf(bytes, bytes.length);
-			this.zipEntry = zipEntry;
-		}
-
-		/**
-		 * @return the bytes
-		 */
-		private byte[] getBytes() {
-			return bytes;
-		}
+	/**
+	 * Writes the content of a zip entry which is generated rather than read from an existing stream
+	 */
+	public interface ZipEntryWriter {
 
 		/**
-		 * @return the zipEntry
+		 * @param out
+		 *            the stream to write the entry's content to, which must not be closed
+		 * @throws IOException
+		 *             if the content could not be written
 		 */
-		private ZipEntry getZipEntry() {
-			return zipEntry;
-		}
+		void writeTo(OutputStream out) throws IOException;
 
 	}
 
@@ -64,32 +54,130 @@ public final class ZipUtils {
 	}
 
 	/**
-	 * Zips one or more {@link ByteArrayZipEntry} objects together and returns the archive as a base64-encoded
-	 * <code>String</code>
+	 * Streams one or more entries into a zip archive written to the passed output stream, each entry's content being
+	 * written directly into the archive by its {@link ZipEntryWriter}. The first
+	 * {@link CompressionPolicy#SAMPLE_LENGTH} bytes of each entry are held back until the policy has chosen the entry's
+	 * compression level from them and the entry's MIME type, so no entry is read twice. The passed output stream is
+	 * closed once the archive is complete.
 	 * 
 	 * @param entries
-	 * @return a base64-encoded <code>String</code> which is the zip archive of the passed entries
+	 *            map of entry names to the writers of their content, written in the map's iteration order
+	 * @param mimeTypes
+	 *            map of entry names to their MIME types, where known
+	 * @param policy
+	 *            the policy choosing each entry's compression level
+	 * @param out
+	 *            the stream to write the archive to
 	 * 
 	 * @throws IOException
-	 *             in the event of an exception writing to the zip output stream
+	 *             in the event of an exception writing an entry or writing to the zip output stream
 	 * @throws IllegalArgumentException
 	 *             if passed entries is null or empty
 	 */
-	public static String byteArrayZipEntriesToBase64(final Set<? extends ByteArrayZipEntry> entries) throws IOException {
+	public static void writeZipEntries(final Map<String, ? extends ZipEntryWriter> entries,
+			final Map<String, String> mimeTypes, final CompressionPolicy policy, final OutputStream out)
+			throws IOException {
 		if (entries == null || entries.isEmpty()) {
 			throw new IllegalArgumentException("entries cannot be null or empty");
 		}
 
-		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		try (final ZipOutputStream zos = new ZipOutputStream(bos)) {
-			for (final ByteArrayZipEntry entry : entries) {
-				zos.putNextEntry(entry.getZipEntry());
-				IOUtils.write(entry.getBytes(), zos);
+		try (final ZipOutputStream zos = new ZipOutputStream(out)) {
+			for (final Entry<String, ? extends ZipEntryWriter> entry : entries.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				final SampledEntryOutputStream entryOut = new SampledEntryOutputStream(zos, policy,
+						mimeTypes.get(entry.getKey()));
+				entry.getValue().writeTo(entryOut);
+				entryOut.finish();
 				zos.closeEntry();
 			}
 		}
+	}
+
+	/**
+	 * Buffers the leading bytes of a zip entry until the compression policy can choose the entry's level from them,
+	 * then sets the level and passes all content straight through. Deflating at {@link Deflater#NO_COMPRESSION} stores
+	 * the content in raw blocks, so the entry's size and CRC need not be known before it is written.
+	 */
+	private static final class SampledEntryOutputStream extends FilterOutputStream {
+
+		private final ZipOutputStream zos;
+
+		private final CompressionPolicy policy;
+
+		private final String mimeType;
+
+		private byte[] sample = new byte[CompressionPolicy.SAMPLE_LENGTH];
+
+		private int sampleLength;
+
+		SampledEntryOutputStream(final ZipOutputStream zos, final CompressionPolicy policy, final String mimeType) {
+			super(zos);
+			this.zos = zos;
+			this.policy = policy;
+			this.mimeType = mimeType;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (sample != null) {
+				sample[sampleLength++] = (byte) b;
+				if (sampleLength == sample.length) {
+					flushSample();
+				}
+			} else {
+				zos.write(b);
+			}
+		}
 
-		return Base64.encodeBase64String(bos.toByteArray());
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			if (sample != null) {
+				final int toCopy = Math.min(len, sample.length - sampleLength);
+				System.arraycopy(b, off, sample, sampleLength, toCopy);
+				sampleLength += toCopy;
+				if (sampleLength == sample.length) {
+					flushSample();
+					zos.write(b, off + toCopy, len - toCopy);
+				}
+			} else {
+				zos.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void close() {
+			/* The archive is closed by its owner, not by an entry's writer */
+		}
+
+		/**
+		 * Chooses the entry's level if the sample is not yet full, and writes out anything still held back
+		 */
+		void finish() throws IOException {
+			if (sample != null) {
+				flushSample();
+			}
+		}
+
+		private void flushSample() throws IOException {
+			zos.setLevel(policy.levelFor(mimeType, sample, sampleLength));
+			zos.write(sample, 0, sampleLength);
+			sample = null;
+		}
+
+	}
+
+	/**
+	 * @param in
+	 *            the content of an entry
+	 * @return a writer which copies the passed stream into the entry through a fixed-size buffer
+	 */
+	public static ZipEntryWriter copyOf(final InputStream in) {
+		return new ZipEntryWriter() {
+			@Override
+			public void writeTo(final OutputStream out) throws IOException {
+				IOUtils.copy(in, out);
+			}
+		};
 	}
 
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor;
+
+/**
+ * Unit tests for {@link TemplateDiscovery}, using processors whose sources may block or fail
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestTemplateDiscovery extends AbstractTest {
+
+	/** A per-file timeout short enough to keep the tests quick */
+	private static final long FILE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	/**
+	 * Processes a fixed list of sources, named "slow*" to block until interrupted, "bad*" to fail, or otherwise into a
+	 * bundle named after the source. Counts the sources processed and the times its cache is pruned.
+	 */
+	private static final class StubProcessor extends AbstractFileSourceProcessor {
+
+		private final String name;
+
+		private final boolean concurrent;
+
+		private final List<File> sources = new ArrayList<>();
+
+		private final AtomicInteger processed = new AtomicInteger();
+
+		private final AtomicInteger prunes = new AtomicInteger();
+
+		StubProcessor(final String name, final boolean concurrent, final String... sourceNames) {
+			this.name = name;
+			this.concurrent = concurrent;
+			for (final String sourceName : sourceNames) {
+				sources.add(new File(sourceName));
+			}
+		}
+
+		@Override
+		public List<File> listSources() {
+			return sources;
+		}
+
+		@Override
+		public FormsBundle processSource(final File source) throws PreservationInitialisationException {
+			return sourceToBundle(source);
+		}
+
+		@Override
+		public FormsBundle sourceToBundle(final Object source) throws PreservationInitialisationException {
+			final String sourceName = ((File) source).getName();
+			if (sourceName.startsWith("slow")) {
+				try {
+					new CountDownLatch(1).await();
+				} catch (final InterruptedException e) {
+					throw new PreservationInitialisationException("Interrupted processing " + sourceName, e);
+				}
+			} else if (sourceName.startsWith("bad")) {
+				throw new PreservationInitialisationException("Could not process " + sourceName);
+			}
+			processed.incrementAndGet();
+			return new FormsBundleImpl(sourceName, name);
+		}
+
+		@Override
+		public void pruneCache() {
+			prunes.incrementAndGet();
+		}
+
+		@Override
+		public boolean supportsConcurrentProcessing() {
+			return concurrent;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	private TemplateRegistry registry;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		registry = new TemplateRegistry();
+	}
+
+	private TemplateDiscovery discover(final PreservationDatasourceProcessor... processors)
+			throws InterruptedException {
+		final Map<String, PreservationDatasourceProcessor> byName = new LinkedHashMap<>();
+		for (final PreservationDatasourceProcessor processor : processors) {
+			byName.put(processor.getName(), processor);
+		}
+		final TemplateDiscovery discovery = new TemplateDiscovery(byName, registry, FILE_TIMEOUT_NANOS);
+		discovery.discover();
+		return discovery;
+	}
+
+	private void assertLoaded(final String... bundleNames) {
+		for (final String bundleName : bundleNames) {
+			assertNotNull(bundleName + " not loaded", registry.snapshot().getBundle(bundleName));
+		}
+	}
+
+	/**
+	 * Test method for {@link TemplateDiscovery#discover()} with sources which all load.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testDiscoverAll() throws Exception {
+		final StubProcessor serial = new StubProcessor("serial", false, "a.json", "b.json");
+		final StubProcessor concurrent = new StubProcessor("concurrent", true, "c.json", "d.json");
+
+		final TemplateDiscovery discovery = discover(serial, concurrent);
+
+		assertLoaded("a.json", "b.json", "c.json", "d.json");
+		assertEquals("ok", discovery.getOutcome("serial: a.json"));
+		assertEquals("ok", discovery.getOutcome("concurrent: d.json"));
+		assertEquals(1, serial.prunes.get());
+		assertEquals(1, concurrent.prunes.get());
+	}
+
+	/**
+	 * Test method for {@link TemplateDiscovery#discover()} with a slow source of a processor which does not support
+	 * concurrent processing: the slow source times out, the processor's later sources still load, and its cache is
+	 * not pruned.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSerialSourceTimesOut() throws Exception {
+		final StubProcessor serial = new StubProcessor("serial", false, "a.json", "slow.json", "b.json", "c.json");
+		final StubProcessor other = new StubProcessor("other", false, "d.json");
+
+		final long started = System.nanoTime();
+		final TemplateDiscovery discovery = discover(serial, other);
+		final long elapsed = System.nanoTime() - started;
+
+		assertEquals("timed out", discovery.getOutcome("serial: slow.json"));
+		assertNull(registry.snapshot().getBundle("slow.json"));
+
+		assertEquals("ok", discovery.getOutcome("serial: b.json"));
+		assertEquals("ok", discovery.getOutcome("serial: c.json"));
+		assertLoaded("a.json", "b.json", "c.json", "d.json");
+		assertEquals(3, serial.processed.get());
+
+		assertEquals(0, serial.prunes.get());
+		assertEquals(1, other.prunes.get());
+
+		assertTrue("Took " + elapsed + " ns", elapsed < FILE_TIMEOUT_NANOS * 4);
+	}
+
+	/**
+	 * Test method for {@link TemplateDiscovery#discover()} with a slow source of a processor which supports concurrent
+	 * processing.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testConcurrentSourceTimesOut() throws Exception {
+		final StubProcessor concurrent = new StubProcessor("concurrent", true, "slow.json", "a.json", "b.json");
+
+		final TemplateDiscovery discovery = discover(concurrent);
+
+		assertEquals("timed out", discovery.getOutcome("concurrent: slow.json"));
+		assertNull(registry.snapshot().getBundle("slow.json"));
+		assertLoaded("a.json", "b.json");
+		assertEquals(0, concurrent.prunes.get());
+	}
+
+	/**
+	 * Test method for {@link TemplateDiscovery#discover()} with a source which fails: it is reported and skipped, and
+	 * the other sources still load.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testFailedSourceSkipped() throws Exception {
+		final StubProcessor serial = new StubProcessor("serial", false, "a.json", "bad.json", "b.json");
+
+		final TemplateDiscovery discovery = discover(serial);
+
+		assertTrue(discovery.getOutcome("serial: bad.json"),
+				discovery.getOutcome("serial: bad.json").startsWith("failed: "));
+		assertNull(registry.snapshot().getBundle("bad.json"));
+		assertLoaded("a.json", "b.json");
+		assertEquals(2, serial.processed.get());
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+
+/**
+ * Unit tests for {@link TemplateRegistry}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestTemplateRegistry extends AbstractTest {
+
+	private TemplateRegistry registry;
+
+	private static FormsBundleImpl newBundle(final String bundleName, final String... formNames) throws Exception {
+		final FormsBundleImpl bundle = new FormsBundleImpl(bundleName, "TestProcessor");
+		for (final String formName : formNames) {
+			bundle.addForm(new FormImpl(formName, bundle));
+		}
+		return bundle;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		registry = new TemplateRegistry();
+	}
+
+	/**
+	 * Test method for {@link TemplateRegistry#add(eu.scidipes.toolkits.palibrary.interfaces.FormsBundle)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testAddAndLookup() throws Exception {
+		final FormsBundleImpl bundle = newBundle("Bundle A", "Form 1", "Form 2");
+		registry.add(bundle);
+		registry.add(newBundle("Bundle B", "Form 1"));
+
+		final TemplateRegistry.Snapshot snapshot = registry.snapshot();
+		assertEquals(2, snapshot.getBundles().size());
+		assertSame(bundle, snapshot.getBundle("Bundle A"));
+		assertEquals("Form 2", snapshot.getTemplateForm("Bundle A", "Form 2").getName());
+		assertNull(snapshot.getTemplateForm("Bundle B", "Form 2"));
+		assertNull(snapshot.getBundle("Bundle C"));
+	}
+
+	/**
+	 * Test method for {@link TemplateRegistry#remove(String)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testRemoveLeavesEarlierSnapshotsIntact() throws Exception {
+		registry.add(newBundle("Bundle A", "Form 1"));
+		final TemplateRegistry.Snapshot before = registry.snapshot();
+
+		assertTrue(registry.remove("Bundle A"));
+		assertFalse(registry.remove("Bundle A"));
+
+		assertNull(registry.snapshot().getBundle("Bundle A"));
+		assertNotNull(before.getBundle("Bundle A"));
+		assertNotNull(before.getTemplateForm("Bundle A", "Form 1"));
+	}
+
+	/**
+	 * Test method for {@link TemplateRegistry#replace(String, eu.scidipes.toolkits.palibrary.interfaces.FormsBundle)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testReplace() throws Exception {
+		registry.add(newBundle("Bundle A", "Form 1"));
+		registry.add(newBundle("Bundle B", "Form 1"));
+
+		/* A reloaded source whose bundle has been renamed: */
+		final FormsBundleImpl renamed = newBundle("Bundle A2", "Form 2");
+		registry.replace("Bundle A", renamed);
+
+		final TemplateRegistry.Snapshot snapshot = registry.snapshot();
+		assertNull(snapshot.getBundle("Bundle A"));
+		assertSame(renamed, snapshot.getBundle("Bundle A2"));
+		assertNotNull(snapshot.getTemplateForm("Bundle A2", "Form 2"));
+		assertEquals(2, snapshot.getBundles().size());
+
+		/* A deleted source: */
+		registry.replace("Bundle A2", null);
+		assertNull(registry.snapshot().getBundle("Bundle A2"));
+		assertEquals(1, registry.snapshot().getBundles().size());
+	}
+
+	/**
+	 * Test method for {@link TemplateRegistry.Snapshot#getBundles()}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testSnapshotUnmodifiable() throws Exception {
+		registry.snapshot().getBundles().add(newBundle("Bundle A"));
+	}
+
+}
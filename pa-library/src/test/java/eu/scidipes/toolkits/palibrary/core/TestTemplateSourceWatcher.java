@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor;
+
+/**
+ * Unit tests for {@link TemplateSourceWatcher}, watching a temporary sources directory
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestTemplateSourceWatcher extends AbstractTest {
+
+	/** How long to wait for a change to be picked up, well beyond the debounce delay */
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Compiles a source into a bundle named by the source's content, counting the sources processed
+	 */
+	private static final class CountingProcessor extends AbstractFileSourceProcessor {
+
+		private final AtomicInteger processed = new AtomicInteger();
+
+		@Override
+		public FormsBundle sourceToBundle(final Object source) throws PreservationInitialisationException {
+			processed.incrementAndGet();
+			try {
+				return new FormsBundleImpl(FileUtils.readFileToString((File) source, "UTF-8").trim(), getName());
+			} catch (final IOException e) {
+				throw new PreservationInitialisationException("Could not read source: " + source, e);
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "Counting processor";
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private CountingProcessor processor;
+
+	private TemplateRegistry registry;
+
+	private TemplateSourceWatcher watcher;
+
+	private File source;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty("pa.sources.path", folder.getRoot().getAbsolutePath());
+
+		processor = new CountingProcessor();
+		registry = new TemplateRegistry();
+		watcher = TemplateSourceWatcher.start(Collections.<PreservationDatasourceProcessor> singleton(processor),
+				registry);
+		source = new File(processor.getSourceDirectory(), "template.json");
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		watcher.stop();
+		System.clearProperty("pa.sources.path");
+	}
+
+	private void awaitBundle(final String bundleName, final boolean present) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while ((registry.snapshot().getBundle(bundleName) != null) != present) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Timed out waiting for bundle " + bundleName + (present ? " to be loaded" : " to be removed"));
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	/**
+	 * Test method for {@link TemplateSourceWatcher#run()} with a new source.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCreatedSourceLoaded() throws Exception {
+		FileUtils.writeStringToFile(source, "Bundle A", "UTF-8");
+
+		awaitBundle("Bundle A", true);
+		assertEquals("template.json", registry.snapshot().getBundle("Bundle A").getTemplateSource());
+	}
+
+	/**
+	 * Test method for {@link TemplateSourceWatcher#run()} with a source written several times in quick succession.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testRepeatedWritesDebounced() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			FileUtils.writeStringToFile(source, "Bundle A", "UTF-8");
+			Thread.sleep(TemplateSourceWatcher.DEBOUNCE_MILLIS / 10);
+		}
+
+		awaitBundle("Bundle A", true);
+		Thread.sleep(TemplateSourceWatcher.DEBOUNCE_MILLIS * 2);
+		assertEquals(1, processor.processed.get());
+	}
+
+	/**
+	 * Test method for {@link TemplateSourceWatcher#run()} with a changed source.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testModifiedSourceReloaded() throws Exception {
+		FileUtils.writeStringToFile(source, "Bundle A", "UTF-8");
+		awaitBundle("Bundle A", true);
+
+		FileUtils.writeStringToFile(source, "Bundle B", "UTF-8");
+		awaitBundle("Bundle B", true);
+
+		/* The old bundle is replaced, not kept alongside the new one: */
+		assertNull(registry.snapshot().getBundle("Bundle A"));
+		assertEquals(1, registry.snapshot().getBundles().size());
+	}
+
+	/**
+	 * Test method for {@link TemplateSourceWatcher#run()} with a deleted source.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testDeletedSourceRemoved() throws Exception {
+		FileUtils.writeStringToFile(source, "Bundle A", "UTF-8");
+		awaitBundle("Bundle A", true);
+
+		assertTrue(source.delete());
+		awaitBundle("Bundle A", false);
+	}
+
+	/**
+	 * Test method for {@link TemplateSourceWatcher#stop()}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testStop() throws Exception {
+		watcher.stop();
+
+		FileUtils.writeStringToFile(source, "Bundle A", "UTF-8");
+		Thread.sleep(TemplateSourceWatcher.DEBOUNCE_MILLIS * 2);
+
+		assertNull(registry.snapshot().getBundle("Bundle A"));
+		assertEquals(0, processor.processed.get());
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Unit tests for {@link TemplateSnapshotCache}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestTemplateSnapshotCache extends AbstractTest {
+
+	private static final String CONFIGURATION = "TestProcessor version=1";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File cacheDir;
+
+	private File source;
+
+	private FormsBundleImpl bundle;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		cacheDir = new File(folder.getRoot(), ".cache");
+		source = folder.newFile("template.json");
+		FileUtils.writeStringToFile(source, "{ \"bundleName\": \"Test Bundle\" }", "UTF-8");
+
+		bundle = new FormsBundleImpl("Test Bundle", "TestProcessor");
+		final FormImpl form = new FormImpl("Test Form", bundle);
+		form.getFormFields().add(new FormFieldImpl("Test Field", form));
+		bundle.addForm(form);
+	}
+
+	/**
+	 * Test method for {@link TemplateSnapshotCache#store(String, FormsBundle)} and
+	 * {@link TemplateSnapshotCache#load(String)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testStoreAndLoad() throws Exception {
+		final TemplateSnapshotCache cache = new TemplateSnapshotCache(cacheDir, CONFIGURATION);
+		final String digest = cache.digest(source);
+
+		assertNull(cache.load(digest));
+		cache.store(digest, bundle);
+		assertTrue(new File(cacheDir, digest + ".bin").isFile());
+
+		final FormsBundle loaded = new TemplateSnapshotCache(cacheDir, CONFIGURATION).load(digest);
+		assertEquals("Test Bundle", loaded.getBundleName());
+		assertEquals(1, loaded.getForms().size());
+		assertEquals(1, loaded.getForms().get(0).getFormFields().size());
+	}
+
+	/**
+	 * Test method for {@link TemplateSnapshotCache#digest(File)} with a changed source.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testChangedSourceMisses() throws Exception {
+		final TemplateSnapshotCache cache = new TemplateSnapshotCache(cacheDir, CONFIGURATION);
+		final String digest = cache.digest(source);
+		cache.store(digest, bundle);
+
+		FileUtils.writeStringToFile(source, "{ \"bundleName\": \"Changed Bundle\" }", "UTF-8");
+		final String changedDigest = cache.digest(source);
+
+		assertFalse(digest.equals(changedDigest));
+		assertNull(cache.load(changedDigest));
+	}
+
+	/**
+	 * Test method for {@link TemplateSnapshotCache#digest(File)} with a changed processor configuration.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testChangedConfigurationMisses() throws Exception {
+		final TemplateSnapshotCache cache = new TemplateSnapshotCache(cacheDir, CONFIGURATION);
+		final String digest = cache.digest(source);
+		cache.store(digest, bundle);
+
+		final TemplateSnapshotCache reconfigured = new TemplateSnapshotCache(cacheDir, CONFIGURATION
+				+ " reasoner=HERMIT");
+		final String changedDigest = reconfigured.digest(source);
+
+		assertFalse(digest.equals(changedDigest));
+		assertNull(reconfigured.load(changedDigest));
+	}
+
+	/**
+	 * Test method for {@link TemplateSnapshotCache#load(String)} with a corrupt entry.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCorruptEntryDiscarded() throws Exception {
+		final TemplateSnapshotCache cache = new TemplateSnapshotCache(cacheDir, CONFIGURATION);
+		final String digest = cache.digest(source);
+		final File entry = new File(cacheDir, digest + ".bin");
+		FileUtils.writeStringToFile(entry, "not a cache entry", "UTF-8");
+
+		assertNull(cache.load(digest));
+		assertFalse(entry.exists());
+	}
+
+	/**
+	 * Test method for {@link TemplateSnapshotCache#prune()}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testPrune() throws Exception {
+		final TemplateSnapshotCache cache = new TemplateSnapshotCache(cacheDir, CONFIGURATION);
+		final String digest = cache.digest(source);
+		cache.store(digest, bundle);
+
+		FileUtils.writeStringToFile(source, "{ \"bundleName\": \"Changed Bundle\" }", "UTF-8");
+		final TemplateSnapshotCache restarted = new TemplateSnapshotCache(cacheDir, CONFIGURATION);
+		final String changedDigest = restarted.digest(source);
+		restarted.store(changedDigest, bundle);
+		restarted.prune();
+
+		assertFalse(new File(cacheDir, digest + ".bin").exists());
+		assertTrue(new File(cacheDir, changedDigest + ".bin").exists());
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormField;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Unit tests for {@link UnmodifiableForm}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestUnmodifiableForm extends AbstractTest {
+
+	private FormsBundleImpl templateBundle;
+
+	private Form template;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		templateBundle = new FormsBundleImpl("Test Bundle", "TestProcessor");
+
+		final FormImpl form = new FormImpl("Test Form", templateBundle);
+		form.setDisplayName("A test form");
+		final FormFieldImpl field = new FormFieldImpl("Test Field", form);
+		field.setHelpText("Some help");
+		field.setDefaultValue("default");
+		form.getFormFields().add(field);
+		templateBundle.addForm(form);
+
+		template = new UnmodifiableFormsBundle(templateBundle).getForms().get(0);
+	}
+
+	/**
+	 * Test method for {@link UnmodifiableForm#getFormFields()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testFormFieldsUnmodifiable() {
+		template.getFormFields().clear();
+	}
+
+	/**
+	 * Test method for {@link UnmodifiableForm#getFormFields()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testFormFieldValueUnmodifiable() {
+		template.getFormFields().get(0).setValue("changed");
+	}
+
+	/**
+	 * Test method for {@link UnmodifiableForm#getDataHolderMetadata()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testMetadataUnmodifiable() {
+		template.getDataHolderMetadata().put(CoreFieldMetadata.FILE_NAME, "file.txt");
+	}
+
+	/**
+	 * Test method for {@link UnmodifiableForm#getParentBundle()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testParentBundleFormsUnmodifiable() {
+		template.getParentBundle().getForms().clear();
+	}
+
+	/**
+	 * Test method for {@link UnmodifiableForm#getParentBundle()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testParentBundleFormUnmodifiable() {
+		final FormsBundle parentBundle = template.getParentBundle();
+		assertNotSame(templateBundle, parentBundle);
+		assertEquals("Test Bundle", parentBundle.getBundleName());
+		assertSame(parentBundle, parentBundle.getForms().get(0).getParentBundle());
+
+		parentBundle.getForms().get(0).getFormFields().get(0).setValue("changed");
+	}
+
+	/**
+	 * Test method for {@link UnmodifiableForm#getParentBundle()}: the view belongs to the forms of its parent view.
+	 */
+	@Test
+	public final void testParentBundleContainsView() {
+		final FormsBundle parentBundle = template.getParentBundle();
+		assertTrue(parentBundle.getForms().contains(template));
+		assertSame(template, parentBundle.getForms().get(0));
+	}
+
+	/**
+	 * Test method for {@link FormImpl#copy(Form, eu.scidipes.toolkits.palibrary.interfaces.FormsBundle)} from a
+	 * read-only template.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCopyFromTemplate() throws Exception {
+		final FormsBundleImpl dataset = new FormsBundleImpl("Test Bundle", "TestProcessor");
+
+		final FormImpl copy = FormImpl.copy(template, dataset);
+		assertSame(dataset, copy.getParentBundle());
+		assertEquals("Test Form", copy.getName());
+		assertEquals("A test form", copy.getDisplayName());
+		assertEquals(1, copy.getFormFields().size());
+
+		final FormField field = copy.getFormFields().get(0);
+		assertNotSame(template.getFormFields().get(0), field);
+		assertSame(copy, field.getParentForm());
+		assertEquals("Some help", field.getHelpText());
+
+		/* The copy is modifiable: */
+		field.setValue("changed");
+		assertEquals("changed", field.getValue());
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+
+/**
+ * Unit tests for {@link FileSystemBlobStore}
+ *
+ * @author Tom Bunting
+ *
+ */
+public class TestFileSystemBlobStore extends AbstractTest {
+
+	/* SHA-256 of the ASCII string "abc" */
+	private static final String ABC_DIGEST = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystemBlobStore blobStore;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		blobStore = new FileSystemBlobStore(folder.getRoot());
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty(FileSystemBlobStore.BLOBSTORE_PATH_PROPERTY);
+		System.clearProperty(FileSystemBlobStore.SOURCES_PATH_PROPERTY);
+	}
+
+	/**
+	 * Test method for {@link FileSystemBlobStore#fromSystemProperties()}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testFromSystemProperties() throws Exception {
+		System.clearProperty(FileSystemBlobStore.BLOBSTORE_PATH_PROPERTY);
+		System.clearProperty(FileSystemBlobStore.SOURCES_PATH_PROPERTY);
+		try {
+			FileSystemBlobStore.fromSystemProperties();
+			fail("Expected an IllegalStateException when no location is configured");
+		} catch (final IllegalStateException e) {
+			/* Expected */
+		}
+
+		final File sources = folder.newFolder("sources");
+		System.setProperty(FileSystemBlobStore.SOURCES_PATH_PROPERTY, sources.getPath());
+		assertEquals(new File(sources, FileSystemBlobStore.DEFAULT_DIRECTORY_NAME),
+				FileSystemBlobStore.fromSystemProperties().getRoot());
+
+		final File explicit = folder.newFolder("explicit");
+		System.setProperty(FileSystemBlobStore.BLOBSTORE_PATH_PROPERTY, explicit.getPath());
+		assertEquals(explicit, FileSystemBlobStore.fromSystemProperties().getRoot());
+	}
+
+	/**
+	 * Test method for {@link FileSystemBlobStore#put(java.io.InputStream)}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testPut() throws Exception {
+		final StoredBlob blob = blobStore.put(new ByteArrayInputStream("abc".getBytes("US-ASCII")));
+
+		assertEquals(ABC_DIGEST, blob.getDigest());
+		assertEquals(3, blob.getSize());
+		assertEquals("sha256:" + ABC_DIGEST, blob.getReference());
+		assertTrue(blobStore.contains(ABC_DIGEST));
+
+		/* Sharded by the first two pairs of hex characters: */
+		assertTrue(new File(folder.getRoot(), "ba/78/" + ABC_DIGEST).isFile());
+	}
+
+	/**
+	 * Test method for {@link FileSystemBlobStore#put(java.io.InputStream)} with duplicate content.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testPutDeduplicates() throws Exception {
+		final StoredBlob first = blobStore.put(new ByteArrayInputStream("abc".getBytes("US-ASCII")));
+		final StoredBlob second = blobStore.put(new ByteArrayInputStream("abc".getBytes("US-ASCII")));
+
+		assertEquals(first, second);
+		assertEquals(1, new File(folder.getRoot(), "ba/78").list().length);
+		assertEquals(0, new File(folder.getRoot(), "tmp").list().length);
+	}
+
+	/**
+	 * Test method for {@link FileSystemBlobStore#open(String)}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testOpen() throws Exception {
+		final byte[] content = new byte[FileSystemBlobStore.BUFFER_SIZE * 3 + 17];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		final StoredBlob blob = blobStore.put(new ByteArrayInputStream(content));
+		assertEquals(content.length, blob.getSize());
+
+		try (final InputStream in = blobStore.open(blob.getDigest())) {
+			assertArrayEquals(content, IOUtils.toByteArray(in));
+		}
+	}
+
+	/**
+	 * Test method for {@link FileSystemBlobStore#open(String)} with unknown content.
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = FileNotFoundException.class)
+	public final void testOpenMissing() throws Exception {
+		assertFalse(blobStore.contains(ABC_DIGEST));
+		blobStore.open(ABC_DIGEST);
+	}
+
+	/**
+	 * Test method for {@link StoredBlob#isReference(String)}.
+	 */
+	@Test
+	public final void testIsReference() {
+		assertTrue(StoredBlob.isReference("sha256:" + ABC_DIGEST));
+		assertFalse(StoredBlob.isReference(ABC_DIGEST));
+		assertFalse(StoredBlob.isReference("YWJj"));
+		assertFalse(StoredBlob.isReference(null));
+	}
+
+}
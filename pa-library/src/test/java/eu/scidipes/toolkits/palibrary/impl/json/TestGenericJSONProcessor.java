@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.FormFieldImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.impl.json.adapters.FormFieldInstanceCreator;
+import eu.scidipes.toolkits.palibrary.impl.json.adapters.FormFieldListDeserializer;
+import eu.scidipes.toolkits.palibrary.impl.json.adapters.FormInstanceCreator;
+import eu.scidipes.toolkits.palibrary.impl.json.adapters.FormListDeserializer;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormField;
+import eu.scidipes.toolkits.palibrary.interfaces.FormType;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Unit tests for {@link GenericJSONProcessor} and its {@link FormsBundleJsonReader}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestGenericJSONProcessor extends AbstractTest {
+
+	private static final Logger LOG = Logger.getLogger(TestGenericJSONProcessor.class);
+
+	private static final String BUNDLE_JSON = "{ \"bundleName\": \"Test Bundle\","
+			+ " \"processorName\": \"Generic JSON Processor\", \"displayName\": \"A test bundle\","
+			+ " \"unknown\": { \"nested\": [1, 2, 3] },"
+			+ " \"forms\": ["
+			+ "  { \"name\": \"Form 1\", \"groupOrder\": 2, \"type\": \"DOCUMENT\", \"group\": null,"
+			+ "    \"formFields\": [ { \"displayName\": \"Field 1\", \"helpText\": \"Some help\" },"
+			+ "                     { \"displayName\": \"Field 2\", \"max\": \"10\" } ] },"
+			+ "  { \"name\": \"Form 2\", \"groupOrder\": null, \"formFields\": null } ] }";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private GenericJSONProcessor processor;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		processor = new GenericJSONProcessor();
+	}
+
+	private File write(final String json) throws Exception {
+		final File source = folder.newFile();
+		FileUtils.writeStringToFile(source, json, "UTF-8");
+		return source;
+	}
+
+	/**
+	 * Test method for {@link GenericJSONProcessor#sourceToBundle(Object)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSourceToBundle() throws Exception {
+		final FormsBundle bundle = processor.sourceToBundle(write(BUNDLE_JSON));
+
+		assertEquals("Test Bundle", bundle.getBundleName());
+		assertEquals("Generic JSON Processor", bundle.getProcessorName());
+		assertEquals("A test bundle", bundle.getDisplayName());
+		assertEquals(2, bundle.getForms().size());
+
+		final Form form1 = bundle.getForms().get(0);
+		assertEquals("Form 1", form1.getName());
+		assertEquals(2, form1.getGroupOrder());
+		assertEquals(FormType.DOCUMENT, form1.getType());
+		assertSame(bundle, form1.getParentBundle());
+		assertEquals(2, form1.getFormFields().size());
+
+		final FormField field2 = form1.getFormFields().get(1);
+		assertEquals("Field 2", field2.getDisplayName());
+		assertEquals("10", field2.getMax());
+		assertSame(form1, field2.getParentForm());
+
+		final Form form2 = bundle.getForms().get(1);
+		assertEquals(0, form2.getGroupOrder());
+		assertSame(bundle, form2.getParentBundle());
+		assertTrue(form2.getFormFields().isEmpty());
+	}
+
+	/**
+	 * Test method for {@link GenericJSONProcessor#sourceToBundle(Object)} with malformed JSON.
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = PreservationInitialisationException.class)
+	public final void testSourceToBundleMalformed() throws Exception {
+		processor.sourceToBundle(write("{ \"bundleName\": \"Test Bundle\", \"forms\": [ { \"name\": "));
+	}
+
+	/**
+	 * Compares the time and peak heap taken to read a large generated template with the streaming reader and with the
+	 * previous tree-building Gson deserialisers.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	@Ignore("Benchmark")
+	public final void benchmarkLargeTemplate() throws Exception {
+		final File source = folder.newFile();
+		try (final Writer out = new OutputStreamWriter(new FileOutputStream(source), "UTF-8")) {
+			out.write("{ \"bundleName\": \"Large Bundle\", \"processorName\": \"Generic JSON Processor\",");
+			out.write(" \"forms\": [");
+			for (int f = 0; f < 5000; f++) {
+				out.write((f == 0 ? "" : ",") + "{ \"name\": \"Form " + f + "\", \"groupOrder\": " + f
+						+ ", \"introText\": \"Introductory text for form " + f + "\", \"formFields\": [");
+				for (int ff = 0; ff < 40; ff++) {
+					out.write((ff == 0 ? "" : ",") + "{ \"displayName\": \"Field " + ff + "\", \"helpText\": ");
+					out.write("\"Help for field " + ff + " of form " + f + "\", \"defaultValue\": \"\" }");
+				}
+				out.write("] }");
+			}
+			out.write("] }");
+		}
+		LOG.info("Benchmark template size: " + source.length() + " bytes");
+
+		final Gson treeGson = treeBuildingGson();
+
+		for (int run = 0; run < 5; run++) {
+			resetPeakHeap();
+			long start = System.nanoTime();
+			processor.sourceToBundle(source);
+			LOG.info(String.format("Streaming: %d ms, peak heap %d MB",
+					Long.valueOf((System.nanoTime() - start) / 1000000), Long.valueOf(peakHeap() >> 20)));
+
+			resetPeakHeap();
+			start = System.nanoTime();
+			readWithTree(treeGson, source);
+			LOG.info(String.format("Tree:      %d ms, peak heap %d MB",
+					Long.valueOf((System.nanoTime() - start) / 1000000), Long.valueOf(peakHeap() >> 20)));
+		}
+	}
+
+	/**
+	 * The Gson configuration used before streaming, which builds a tree of each form and field array
+	 */
+	private static Gson treeBuildingGson() {
+		final Type formListType = new TypeToken<List<Form>>() {}.getType();
+		final Type formFieldsListType = new TypeToken<List<FormField>>() {}.getType();
+
+		return new GsonBuilder()
+				.setExclusionStrategies(new ParentExclusionStrategy(), new JPATransientExclusionStrategy())
+				.registerTypeAdapter(Form.class, new FormInstanceCreator())
+				.registerTypeAdapter(FormField.class, new FormFieldInstanceCreator())
+				.registerTypeAdapter(formListType, new FormListDeserializer())
+				.registerTypeAdapter(formFieldsListType, new FormFieldListDeserializer()).create();
+	}
+
+	private static FormsBundle readWithTree(final Gson gson, final File source) throws Exception {
+		final Field parentBundleField = FormImpl.class.getDeclaredField("parentBundle");
+		parentBundleField.setAccessible(true);
+		final Field parentFormField = FormFieldImpl.class.getDeclaredField("parentForm");
+		parentFormField.setAccessible(true);
+
+		try (final Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(source), "UTF-8"))) {
+			final FormsBundle bundle = gson.fromJson(in, FormsBundleImpl.class);
+			for (final Form form : bundle.getForms()) {
+				parentBundleField.set(form, bundle);
+				for (final FormField formField : form.getFormFields()) {
+					parentFormField.set(formField, form);
+				}
+			}
+			return bundle;
+		}
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long peakHeap() {
+		long peak = 0;
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+}
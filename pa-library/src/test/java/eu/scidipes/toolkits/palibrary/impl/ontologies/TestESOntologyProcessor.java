@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.impl.ontologies.OntologyAnnotationIndex.LiteralAnnotation;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormType;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Unit tests for {@link ESOntologyProcessor}, its {@link OntologySession} and {@link OntologyAnnotationIndex}, using
+ * a small ontology in OWL functional syntax
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestESOntologyProcessor extends AbstractTest {
+
+	private static final Logger LOG = Logger.getLogger(TestESOntologyProcessor.class);
+
+	private ESOntologyProcessor processor;
+
+	private File source;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		processor = new ESOntologyProcessor();
+		source = new File(getClass().getResource("TestES.ofn").toURI());
+	}
+
+	/**
+	 * Test method for {@link AbstractOntologyProcessor#sourceToBundle(Object)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSourceToBundle() throws Exception {
+		final FormsBundle bundle = processor.sourceToBundle(source);
+
+		assertEquals("TestES", bundle.getBundleName());
+		assertEquals(1, bundle.getForms().size());
+
+		final Form form = bundle.getForms().get(0);
+		assertEquals("Proposal", form.getName());
+		assertEquals("Campaign proposal", form.getDisplayName());
+		assertEquals("CAMPAIGN_PREPARATION", form.getGroup());
+		assertEquals(1, form.getGroupOrder());
+		assertEquals(FormType.DOCUMENT, form.getType());
+		assertEquals(2, form.getFormFields().size());
+	}
+
+	/**
+	 * Test method for {@link OntologyAnnotationIndex#getLiteralAnnotations(IRI)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testAnnotationIndex() throws Exception {
+		try (final OntologySession session = new OntologySession(source, new LocalImportIRIMapper(null, true),
+				ReasoningStrategy.NONE)) {
+			final OntologyAnnotationIndex index = new OntologyAnnotationIndex(session.getOntology());
+			final String ns = "http://www.scidipes.eu/ontologies/TestES#";
+
+			assertEquals(2, index.size());
+			assertEquals(3, index.getLiteralAnnotations(IRI.create(ns + "Proposal")).size());
+			assertTrue(index.getLiteralAnnotations(IRI.create(ns + "document")).isEmpty());
+
+			final List<LiteralAnnotation> classAnnotations = index.getLiteralAnnotations(IRI.create(ns + "DOCUMENT"));
+			assertEquals(2, classAnnotations.size());
+			for (final LiteralAnnotation annotation : classAnnotations) {
+				assertFalse(annotation.isLabel());
+				assertTrue("author".equals(annotation.getProperty()) || "title".equals(annotation.getProperty()));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link OntologySession#close()}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSessionReleasesOntology() throws Exception {
+		final OntologySession session = new OntologySession(source, new LocalImportIRIMapper(null, true),
+				ReasoningStrategy.STRUCTURAL);
+		final WeakReference<OWLOntology> ontology = new WeakReference<>(session.getOntology());
+		session.getReasoner();
+
+		processor.extractBundle(session);
+		session.close();
+
+		assertTrue(session.getManager().getOntologies().isEmpty());
+		assertNull(collect(ontology));
+	}
+
+	/**
+	 * Measures the heap retained by repeatedly processing the same ontology, which should not grow with the number of
+	 * ontologies processed. The measurement depends on when the JVM actually collects garbage, so this is run by hand;
+	 * {@link #testSessionReleasesOntology()} checks that the ontology is released.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	@Ignore("Benchmark")
+	public final void benchmarkRetainedHeapPerOntology() throws Exception {
+		final int runs = 50;
+
+		/* Warm up, so that class loading and one-off caches are not counted: */
+		processor.sourceToBundle(source);
+		final long before = usedHeapAfterGC();
+
+		for (int i = 0; i < runs; i++) {
+			processor.sourceToBundle(source);
+		}
+		final long retainedPerOntology = (usedHeapAfterGC() - before) / runs;
+
+		LOG.info("Retained heap per processed ontology: " + retainedPerOntology + " bytes");
+		assertTrue("Retained " + retainedPerOntology + " bytes per ontology", retainedPerOntology < 32 * 1024);
+	}
+
+	private static <T> T collect(final WeakReference<T> reference) throws InterruptedException {
+		for (int i = 0; i < 20 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return reference.get();
+	}
+
+	private static long usedHeapAfterGC() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		/* Take the lowest of several readings, as a single System.gc() is only a hint: */
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(50);
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+}
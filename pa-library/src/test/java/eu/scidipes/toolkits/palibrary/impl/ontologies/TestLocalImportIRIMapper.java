@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.IRI;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+
+/**
+ * Unit tests for {@link LocalImportIRIMapper}, resolving imports from a temporary <code>imports</code> directory
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestLocalImportIRIMapper extends AbstractTest {
+
+	/** An import which is never resolvable over the network */
+	private static final IRI IMPORTED = IRI.create("http://imports.example.invalid/imported");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File importsDir;
+
+	private File source;
+
+	private static String ontology(final IRI ontologyIRI, final String body) {
+		return "<?xml version=\"1.0\"?>\n"
+				+ "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\""
+				+ " xmlns:owl=\"http://www.w3.org/2002/07/owl#\">\n" + "  <owl:Ontology rdf:about=\"" + ontologyIRI
+				+ "\">" + body + "</owl:Ontology>\n" + "</rdf:RDF>\n";
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		importsDir = folder.newFolder(LocalImportIRIMapper.IMPORTS_DIRECTORY);
+		source = folder.newFile("source.owl");
+		FileUtils.writeStringToFile(source, ontology(IRI.create("http://example.org/source"),
+				"<owl:imports rdf:resource=\"" + IMPORTED + "\"/>"), "UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty("pa.sources.path");
+		System.clearProperty("pa.ontology.offline");
+	}
+
+	private File writeLocalCopy() throws Exception {
+		final File copy = new File(importsDir, "imported.owl");
+		FileUtils.writeStringToFile(copy, ontology(IMPORTED, ""), "UTF-8");
+		return copy;
+	}
+
+	/**
+	 * Test method for {@link LocalImportIRIMapper#getDocumentIRI(IRI)} with a local copy of the import.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testLocalCopyResolved() throws Exception {
+		final File copy = writeLocalCopy();
+
+		assertEquals(IRI.create(copy), new LocalImportIRIMapper(importsDir, false).getDocumentIRI(IMPORTED));
+		assertEquals(IRI.create(copy), new LocalImportIRIMapper(importsDir, true).getDocumentIRI(IMPORTED));
+	}
+
+	/**
+	 * Test method for {@link LocalImportIRIMapper#getDocumentIRI(IRI)} with no local copy, online.
+	 */
+	@Test
+	public final void testNoLocalCopyOnline() {
+		/* Left to the manager's default resolution, i.e. the network: */
+		assertNull(new LocalImportIRIMapper(importsDir, false).getDocumentIRI(IMPORTED));
+	}
+
+	/**
+	 * Test method for {@link LocalImportIRIMapper#getDocumentIRI(IRI)} with no local copy, offline.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testNoLocalCopyOffline() throws Exception {
+		final IRI documentIRI = new LocalImportIRIMapper(importsDir, true).getDocumentIRI(IMPORTED);
+
+		assertNotNull(documentIRI);
+		assertEquals("file", documentIRI.getScheme());
+		assertFalse(new File(documentIRI.toURI()).exists());
+
+		/* Only remote imports are withheld: */
+		assertNull(new LocalImportIRIMapper(importsDir, true).getDocumentIRI(IRI.create(new File(folder.getRoot(),
+				"other.owl"))));
+	}
+
+	/**
+	 * Test method for loading an ontology whose import is resolved from the imports directory.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSessionImportsLocalCopy() throws Exception {
+		writeLocalCopy();
+
+		try (final OntologySession session = new OntologySession(source, new LocalImportIRIMapper(importsDir, true),
+				ReasoningStrategy.NONE)) {
+			assertEquals(1, session.getOntology().getImports().size());
+			assertEquals(IMPORTED, session.getOntology().getImports().iterator().next().getOntologyID()
+					.getOntologyIRI());
+		}
+	}
+
+	/**
+	 * Test method for loading an ontology whose import has no local copy, offline.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSessionOfflineSkipsMissingImport() throws Exception {
+		try (final OntologySession session = new OntologySession(source, new LocalImportIRIMapper(importsDir, true),
+				ReasoningStrategy.NONE)) {
+			assertEquals(0, session.getOntology().getImports().size());
+		}
+	}
+
+	/**
+	 * Test method for {@link LocalImportIRIMapper#fromSystemProperties()}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testFromSystemPropertiesShared() throws Exception {
+		System.setProperty("pa.sources.path", folder.getRoot().getAbsolutePath());
+
+		final LocalImportIRIMapper mapper = LocalImportIRIMapper.fromSystemProperties();
+		assertSame(mapper, LocalImportIRIMapper.fromSystemProperties());
+
+		/* A new local copy replaces the shared mapper: */
+		writeLocalCopy();
+		final LocalImportIRIMapper updated = LocalImportIRIMapper.fromSystemProperties();
+		assertNotSame(mapper, updated);
+		assertNotNull(updated.getDocumentIRI(IMPORTED));
+		assertSame(updated, LocalImportIRIMapper.fromSystemProperties());
+
+		/* As does a change of mode: */
+		System.setProperty("pa.ontology.offline", "true");
+		assertNotSame(updated, LocalImportIRIMapper.fromSystemProperties());
+	}
+
+	/**
+	 * Test method for {@link LocalImportIRIMapper#getCacheConfiguration()}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCacheConfiguration() throws Exception {
+		final File copy = writeLocalCopy();
+		final String configuration = new LocalImportIRIMapper(importsDir, false).getCacheConfiguration();
+
+		assertEquals(configuration, new LocalImportIRIMapper(importsDir, false).getCacheConfiguration());
+		assertFalse(configuration.equals(new LocalImportIRIMapper(importsDir, true).getCacheConfiguration()));
+
+		FileUtils.writeStringToFile(copy, ontology(IMPORTED, "<!-- changed -->"), "UTF-8");
+		assertFalse(configuration.equals(new LocalImportIRIMapper(importsDir, false).getCacheConfiguration()));
+	}
+
+}
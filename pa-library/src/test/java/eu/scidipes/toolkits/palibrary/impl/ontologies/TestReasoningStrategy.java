@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.impl.ontologies;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+
+/**
+ * Unit tests for {@link ReasoningStrategy}, with a benchmark of each strategy over synthetic ontologies
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestReasoningStrategy extends AbstractTest {
+
+	private static final Logger LOG = Logger.getLogger(TestReasoningStrategy.class);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void tearDown() {
+		System.clearProperty("pa.ontology.reasoner");
+	}
+
+	/**
+	 * Test method for {@link ReasoningStrategy#fromSystemProperties()}.
+	 */
+	@Test
+	public final void testFromSystemProperties() {
+		assertEquals(ReasoningStrategy.STRUCTURAL, ReasoningStrategy.fromSystemProperties());
+
+		System.setProperty("pa.ontology.reasoner", "hermit");
+		assertEquals(ReasoningStrategy.HERMIT, ReasoningStrategy.fromSystemProperties());
+
+		System.setProperty("pa.ontology.reasoner", " None ");
+		assertEquals(ReasoningStrategy.NONE, ReasoningStrategy.fromSystemProperties());
+
+		System.setProperty("pa.ontology.reasoner", "pellet");
+		assertEquals(ReasoningStrategy.STRUCTURAL, ReasoningStrategy.fromSystemProperties());
+	}
+
+	/**
+	 * Every strategy should extract the same bundle from an ontology whose structure is entirely asserted.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testStrategiesExtractSameBundle() throws Exception {
+		final File source = writeSyntheticOntology(3, 4);
+
+		for (final ReasoningStrategy strategy : ReasoningStrategy.values()) {
+			final FormsBundle bundle = extract(source, strategy);
+			assertEquals(strategy.toString(), 12, bundle.getForms().size());
+			assertEquals(strategy.toString(), 2, bundle.getForms().get(0).getFormFields().size());
+		}
+	}
+
+	/**
+	 * Compares the time taken to create a session, its reasoner and a bundle with each strategy, over synthetic
+	 * ontologies of increasing size.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	@Ignore("Benchmark")
+	public final void benchmarkStrategies() throws Exception {
+		final int[][] sizes = { { 5, 20 }, { 20, 100 }, { 50, 400 } };
+
+		for (final int[] size : sizes) {
+			final File source = writeSyntheticOntology(size[0], size[1]);
+			LOG.info(String.format("Ontology of %d phases x %d items (%d bytes):", Integer.valueOf(size[0]),
+					Integer.valueOf(size[1]), Long.valueOf(source.length())));
+
+			for (final ReasoningStrategy strategy : ReasoningStrategy.values()) {
+				/* Warm up: */
+				extract(source, strategy);
+
+				final int runs = 5;
+				final long start = System.nanoTime();
+				for (int run = 0; run < runs; run++) {
+					extract(source, strategy);
+				}
+				LOG.info(String.format("    %-10s %6d ms per bundle", strategy,
+						Long.valueOf((System.nanoTime() - start) / runs / 1000000)));
+			}
+		}
+	}
+
+	private static FormsBundle extract(final File source, final ReasoningStrategy strategy) throws Exception {
+		try (final OntologySession session = new OntologySession(source, new LocalImportIRIMapper(null, true),
+				strategy)) {
+			return new ESOntologyProcessor().extractBundle(session);
+		}
+	}
+
+	/**
+	 * Writes an ontology in OWL functional syntax with the given number of campaign phases, each with the given number
+	 * of inventory items of alternating type
+	 */
+	private File writeSyntheticOntology(final int phases, final int itemsPerPhase) throws Exception {
+		final File source = folder.newFile("Synthetic" + phases + "x" + itemsPerPhase + ".ofn");
+
+		try (final Writer out = new OutputStreamWriter(new FileOutputStream(source), "UTF-8")) {
+			out.write("Prefix(:=<http://www.scidipes.eu/ontologies/Synthetic#>)\n");
+			out.write("Prefix(rdfs:=<http://www.w3.org/2000/01/rdf-schema#>)\n");
+			out.write("Ontology(<http://www.scidipes.eu/ontologies/Synthetic>\n");
+			out.write("Declaration(Class(:CAMPAIGN_PHASE))\n");
+			out.write("Declaration(ObjectProperty(:hasPhaseType))\n");
+			for (final String property : new String[] { "name", "description", "author", "title" }) {
+				out.write("Declaration(AnnotationProperty(:" + property + "))\n");
+			}
+
+			final String[] types = { "DOCUMENT", "DATA", "SOFTWARE" };
+			for (final String type : types) {
+				out.write("Declaration(Class(:" + type + "))\n");
+				out.write("Declaration(NamedIndividual(:" + type.toLowerCase() + "))\n");
+				out.write("AnnotationAssertion(:author :" + type + " \"Unknown\")\n");
+				out.write("AnnotationAssertion(:title :" + type + " \"\")\n");
+			}
+
+			for (int p = 0; p < phases; p++) {
+				final String phase = ":PHASE_" + p;
+				out.write("Declaration(Class(" + phase + "))\n");
+				out.write("SubClassOf(" + phase + " :CAMPAIGN_PHASE)\n");
+
+				for (int i = 0; i < itemsPerPhase; i++) {
+					final String item = ":Item_" + p + "_" + i;
+					out.write("Declaration(NamedIndividual(" + item + "))\n");
+					out.write("ClassAssertion(" + phase + " " + item + ")\n");
+					out.write("ObjectPropertyAssertion(:hasPhaseType " + item + " :"
+							+ types[i % types.length].toLowerCase() + ")\n");
+					out.write("AnnotationAssertion(rdfs:label " + item + " \"Item " + i + " of phase " + p + "\")\n");
+					out.write("AnnotationAssertion(:name " + item + " \"Item_" + p + "_" + i + "\")\n");
+					out.write("AnnotationAssertion(:description " + item + " \"Synthetic inventory item\")\n");
+				}
+			}
+			out.write(")\n");
+		}
+		return source;
+	}
+
+}
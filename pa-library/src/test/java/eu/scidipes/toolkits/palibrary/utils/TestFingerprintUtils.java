@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_NAME;
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationInitialisationException;
+import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
+import eu.scidipes.toolkits.palibrary.impl.FormFieldImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel;
+
+/**
+ * Unit tests for {@link FingerprintUtils}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestFingerprintUtils extends AbstractTest {
+
+	private static FormImpl newForm(final String dataHolder) {
+		final FormImpl form = new FormImpl();
+		form.setDataHolder(dataHolder);
+		form.setItemFileName("data.csv");
+		form.getDataHolderMetadata().put(FILE_NAME, "data.csv");
+		form.getDataHolderMetadata().put(FILE_SIZE, "1024");
+		return form;
+	}
+
+	/**
+	 * Test method for {@link FingerprintUtils#fingerprint(eu.scidipes.toolkits.palibrary.interfaces.Form)}.
+	 */
+	@Test
+	public final void testFingerprintForm() {
+		final FormImpl form = newForm("sha256:0123");
+		final String fingerprint = FingerprintUtils.fingerprint(form);
+
+		assertEquals(64, fingerprint.length());
+		assertEquals(fingerprint, FingerprintUtils.fingerprint(form));
+		assertEquals(fingerprint, FingerprintUtils.fingerprint(newForm("sha256:0123")));
+
+		assertNotEquals(fingerprint, FingerprintUtils.fingerprint(newForm("sha256:4567")));
+
+		form.setItemFileName("data-v2.csv");
+		assertNotEquals(fingerprint, FingerprintUtils.fingerprint(form));
+	}
+
+	/**
+	 * Test method for {@link FingerprintUtils#fingerprint(eu.scidipes.toolkits.palibrary.interfaces.Form)} with forms
+	 * whose fields differ only in their order.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testFingerprintFormFieldOrder() throws Exception {
+		final FormImpl form = newForm("sha256:0123");
+		addField(form, "Instrument", "MERIS");
+		addField(form, "Level", "2");
+
+		final FormImpl reordered = newForm("sha256:0123");
+		addField(reordered, "Level", "2");
+		addField(reordered, "Instrument", "MERIS");
+
+		final String fingerprint = FingerprintUtils.fingerprint(form);
+		assertEquals(fingerprint, FingerprintUtils.fingerprint(reordered));
+
+		reordered.getFormFields().get(0).setValue("3");
+		assertNotEquals(fingerprint, FingerprintUtils.fingerprint(reordered));
+	}
+
+	private static void addField(final FormImpl form, final String displayName, final String value)
+			throws PreservationInitialisationException {
+		final FormFieldImpl field = new FormFieldImpl(displayName, form);
+		field.setValue(value);
+		form.getFormFields().add(field);
+	}
+
+	/**
+	 * Test method for {@link FingerprintUtils#fingerprint(DatasetRIL)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testFingerprintRIL() throws Exception {
+		final UploadRepInfoLabel dummyRIL = new UploadRepInfoLabel(IOUtils.toString(DatasetRIL.class
+				.getResourceAsStream("/eu/scidipes/toolkits/palibrary/impl/EmptyRIL.xml")));
+
+		final String fingerprint = FingerprintUtils.fingerprint(new DatasetRIL("0000-0000-0123-5678", "RIL", dummyRIL));
+
+		assertEquals(fingerprint, FingerprintUtils.fingerprint(new DatasetRIL("0000-0000-0123-5678", "RIL", dummyRIL)));
+		assertNotEquals(fingerprint,
+				FingerprintUtils.fingerprint(new DatasetRIL("0000-0000-0123-5679", "RIL", dummyRIL)));
+	}
+
+}
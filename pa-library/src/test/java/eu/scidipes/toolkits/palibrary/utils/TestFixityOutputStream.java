@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+
+/**
+ * Unit tests for {@link FixityOutputStream}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestFixityOutputStream extends AbstractTest {
+
+	/**
+	 * Test method for {@link FixityOutputStream#getSHA256()} and {@link FixityOutputStream#getMD5()}, using the
+	 * standard test vectors for "abc".
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testDigests() throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (final FixityOutputStream fixity = new FixityOutputStream(bytes)) {
+			fixity.write('a');
+			fixity.write("xbcx".getBytes("US-ASCII"), 1, 2);
+
+			assertEquals(3, fixity.getCount());
+			assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", fixity.getSHA256());
+			assertEquals("900150983cd24fb0d6963f7d28e17f72", fixity.getMD5());
+			/* Digests are completed once, so asking again gives the same result: */
+			assertEquals("900150983cd24fb0d6963f7d28e17f72", fixity.getMD5());
+		}
+
+		assertArrayEquals("abc".getBytes("US-ASCII"), bytes.toByteArray());
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+
+/**
+ * Unit tests for {@link MimeSniffer} and {@link MimeSniffingInputStream}
+ *
+ * @author Tom Bunting
+ *
+ */
+public class TestMimeSniffer extends AbstractTest {
+
+	private static String sniff(final byte[] header) {
+		return MimeSniffer.sniff(header, header.length);
+	}
+
+	/**
+	 * @return the start of an ISO base media file with the passed major brand
+	 */
+	private static byte[] ftyp(final String brand) throws Exception {
+		final byte[] header = new byte[16];
+		header[3] = 0x18;
+		System.arraycopy(("ftyp" + brand).getBytes("US-ASCII"), 0, header, 4, 8);
+		return header;
+	}
+
+	/**
+	 * Test method for {@link MimeSniffer#sniff(byte[], int)}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSniff() throws Exception {
+		assertEquals("application/pdf", sniff("%PDF-1.4\n".getBytes("US-ASCII")));
+		assertEquals("application/zip", sniff(new byte[] { 'P', 'K', 3, 4, 20, 0 }));
+		assertEquals("image/png", sniff(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0d, 0x0a, 0x1a, 0x0a }));
+		assertEquals("application/x-hdf5", sniff(new byte[] { (byte) 0x89, 'H', 'D', 'F', 0x0d, 0x0a, 0x1a, 0x0a }));
+		assertEquals("application/xml", sniff("\n  <?xml version=\"1.0\"?><a/>".getBytes("US-ASCII")));
+		assertEquals("text/plain", sniff("a,b,c\r\n1,2,3\r\n".getBytes("US-ASCII")));
+		assertEquals("video/mp4", sniff(ftyp("isom")));
+		assertEquals("audio/mp4", sniff(ftyp("M4A ")));
+		assertEquals("image/heic", sniff(ftyp("heic")));
+		assertEquals("image/heif", sniff(ftyp("mif1")));
+		assertNull(sniff(new byte[] { 0, 1, 2, 3 }));
+		assertNull(MimeSniffer.sniff(new byte[0], 0));
+	}
+
+	/**
+	 * Test method for {@link MimeSniffer#resolve(String, String)}.
+	 */
+	@Test
+	public final void testResolve() {
+		final String docx = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+		assertEquals("application/pdf", MimeSniffer.resolve("application/pdf", "application/octet-stream"));
+		assertEquals("application/pdf", MimeSniffer.resolve("application/pdf", "text/plain"));
+		assertEquals(docx, MimeSniffer.resolve("application/zip", docx));
+		assertEquals("application/zip", MimeSniffer.resolve("application/zip", null));
+		assertEquals("text/csv", MimeSniffer.resolve(null, "text/csv"));
+		assertEquals(MimeSniffer.OCTET_STREAM, MimeSniffer.resolve(null, ""));
+		assertEquals("audio/mp4", MimeSniffer.resolve("video/mp4", "audio/mp4"));
+		assertEquals("image/heif", MimeSniffer.resolve("image/heic", "image/heif"));
+		assertEquals("video/mp4", MimeSniffer.resolve("video/mp4", "application/pdf"));
+	}
+
+	/**
+	 * Test method for {@link MimeSniffingInputStream}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSniffingInputStream() throws Exception {
+		final byte[] content = new byte[MimeSniffer.HEADER_LENGTH * 4 + 3];
+		System.arraycopy("%PDF-".getBytes("US-ASCII"), 0, content, 0, 5);
+
+		try (final MimeSniffingInputStream in = new MimeSniffingInputStream(new ByteArrayInputStream(content))) {
+			assertArrayEquals(content, IOUtils.toByteArray(in));
+			assertEquals(content.length, in.getCount());
+			assertEquals("application/pdf", in.getSniffedType());
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.palibrary.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.impl.FormFieldImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+
+/**
+ * Unit tests for {@link XMLUtils}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestXMLUtils extends AbstractTest {
+
+	private static final Logger LOG = Logger.getLogger(TestXMLUtils.class);
+
+	private List<FormFieldImpl> fields;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		fields = newFields(3);
+		fields.get(1).setValue("");
+		fields.get(2).setValue("Values & <markup> are \"escaped\"");
+	}
+
+	/**
+	 * Test method for {@link XMLUtils#writeMetadata(java.util.Collection, java.io.OutputStream)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testWriteMetadata() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XMLUtils.writeMetadata(fields, out);
+
+		final List<String> entries = entries(out.toByteArray());
+		assertEquals(2, entries.size());
+		assertEquals("Field 0=Value 0", entries.get(0));
+		assertEquals("Field 2=Values & <markup> are \"escaped\"", entries.get(1));
+	}
+
+	/**
+	 * The streamed metadata should hold the same entries as the DOM built by
+	 * {@link XMLUtils#formFieldsToMetadata(java.util.Collection)}.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testWriteMetadataMatchesDom() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XMLUtils.writeMetadata(fields, out);
+
+		final String dom = XMLUtils.nodeToString(XMLUtils.formFieldsToMetadata(fields), true, false);
+		assertEquals(entries(dom.getBytes("UTF-8")), entries(out.toByteArray()));
+	}
+
+	/**
+	 * Test method for {@link XMLUtils#hasMetadata(java.util.Collection)}.
+	 */
+	@Test
+	public final void testHasMetadata() {
+		assertTrue(XMLUtils.hasMetadata(fields));
+		assertFalse(XMLUtils.hasMetadata(null));
+		assertFalse(XMLUtils.hasMetadata(Collections.<FormFieldImpl> emptyList()));
+
+		fields.get(0).setValue(null);
+		fields.get(2).setValue("");
+		assertFalse(XMLUtils.hasMetadata(fields));
+	}
+
+	/**
+	 * Each thread should get its own document builder and transformer, so concurrent serialisation must give the
+	 * same result as serialisation on a single thread.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testConcurrentNodeToString() throws Exception {
+		final String expected = XMLUtils.nodeToString(XMLUtils.formFieldsToMetadata(fields), true, false);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						return XMLUtils.nodeToString(XMLUtils.formFieldsToMetadata(fields), true, false);
+					}
+				}));
+			}
+			for (final Future<String> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Compares the throughput of building and serialising a DOM with that of streaming the same metadata, from several
+	 * threads at once as during a preservation job.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	@Ignore("Benchmark")
+	public final void benchmarkMetadata() throws Exception {
+		final List<FormFieldImpl> benchmarkFields = newFields(50);
+		final int threads = Runtime.getRuntime().availableProcessors();
+		final int iterations = 5000;
+
+		final Callable<Void> dom = new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (int i = 0; i < iterations; i++) {
+					final Node xml = XMLUtils.formFieldsToMetadata(benchmarkFields);
+					XMLUtils.nodeToString(xml, true, false).getBytes("UTF-8");
+				}
+				return null;
+			}
+		};
+		final Callable<Void> streaming = new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (int i = 0; i < iterations; i++) {
+					XMLUtils.writeMetadata(benchmarkFields, new NullOutputStream());
+				}
+				return null;
+			}
+		};
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int run = 0; run < 3; run++) {
+				LOG.info(String.format("DOM:       %d ms", Long.valueOf(time(executor, dom, threads))));
+				LOG.info(String.format("Streaming: %d ms", Long.valueOf(time(executor, streaming, threads))));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static long time(final ExecutorService executor, final Callable<Void> task, final int threads)
+			throws Exception {
+		final long start = System.nanoTime();
+		final List<Future<Void>> results = executor.invokeAll(Collections.nCopies(threads, task));
+		for (final Future<Void> result : results) {
+			result.get();
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	private static List<FormFieldImpl> newFields(final int count) throws Exception {
+		final FormImpl form = new FormImpl();
+		final List<FormFieldImpl> newFields = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final FormFieldImpl field = new FormFieldImpl("Field " + i, form);
+			field.setValue("Value " + i);
+			newFields.add(field);
+		}
+		return newFields;
+	}
+
+	/**
+	 * Parses a metadata document into a list of <code>name=value</code> entries
+	 */
+	private static List<String> entries(final byte[] xml) throws Exception {
+		final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(xml));
+		assertEquals("metadata", doc.getDocumentElement().getTagName());
+
+		final List<String> entries = new ArrayList<>();
+		final NodeList nodes = doc.getElementsByTagName("metadataentry");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			final Element entry = (Element) nodes.item(i);
+			entries.add(entry.getElementsByTagName("entryname").item(0).getTextContent() + "="
+					+ entry.getElementsByTagName("entryvalue").item(0).getTextContent());
+		}
+		return entries;
+	}
+
+}
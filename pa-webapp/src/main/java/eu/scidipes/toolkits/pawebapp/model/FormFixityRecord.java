@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Persisted fixity of the bytestream uploaded for one preservation of a form: its SHA-256 and MD5 digests and size, as
+ * computed while the bytestream was packaged and uploaded. Where the bytestream was packaged into a zip with its
+ * metadata, the fixity of the zip as uploaded is kept too; unlike that of the bytestream, it is not reproducible, as
+ * it depends on the compression and entry timestamps. Each preservation of a form adds a new version, so that a
+ * dataset can be audited against the digests without reading its content back.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+@Entity
+@Table(name = "form_fixity")
+public class FormFixityRecord {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "fixity_id")
+	private Integer fixityID;
+
+	@Column(name = "form_id")
+	private Integer formID;
+
+	private int version;
+
+	@Column(name = "manifest_cpid")
+	private String manifestCPID;
+
+	private String sha256;
+
+	private String md5;
+
+	private long size;
+
+	@Column(name = "package_sha256")
+	private String packageSha256;
+
+	@Column(name = "package_md5")
+	private String packageMd5;
+
+	@Column(name = "package_size")
+	private Long packageSize;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date created;
+
+	/**
+	 * No-arg constructor required by JPA
+	 */
+	protected FormFixityRecord() {
+		/* No action */
+	}
+
+	public FormFixityRecord(final Integer formID, final int version, final String manifestCPID, final String sha256,
+			final String md5, final long size) {
+		this.formID = formID;
+		this.version = version;
+		this.manifestCPID = manifestCPID;
+		this.sha256 = sha256;
+		this.md5 = md5;
+		this.size = size;
+		this.created = new Date();
+	}
+
+	/**
+	 * @return the fixityID
+	 */
+	public final Integer getFixityID() {
+		return fixityID;
+	}
+
+	/**
+	 * @return the formID
+	 */
+	public final Integer getFormID() {
+		return formID;
+	}
+
+	/**
+	 * @return the preservation version of the form, starting at 1
+	 */
+	public final int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the CPID of the manifest preserved for this version
+	 */
+	public final String getManifestCPID() {
+		return manifestCPID;
+	}
+
+	/**
+	 * @return the hex-encoded SHA-256 digest of the bytestream
+	 */
+	public final String getSha256() {
+		return sha256;
+	}
+
+	/**
+	 * @return the hex-encoded MD5 digest of the bytestream
+	 */
+	public final String getMd5() {
+		return md5;
+	}
+
+	/**
+	 * @return the size of the bytestream in bytes
+	 */
+	public final long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the hex-encoded SHA-256 digest of the uploaded package, or <code>null</code> if it was not packaged
+	 */
+	public final String getPackageSha256() {
+		return packageSha256;
+	}
+
+	/**
+	 * @return the hex-encoded MD5 digest of the uploaded package, or <code>null</code> if it was not packaged
+	 */
+	public final String getPackageMd5() {
+		return packageMd5;
+	}
+
+	/**
+	 * @return the size of the uploaded package in bytes, or <code>null</code> if it was not packaged
+	 */
+	public final Long getPackageSize() {
+		return packageSize;
+	}
+
+	/**
+	 * Records the fixity of the zip in which the bytestream was packaged and uploaded
+	 */
+	public final void setPackageFixity(final String packageSha256, final String packageMd5, final long packageSize) {
+		this.packageSha256 = packageSha256;
+		this.packageMd5 = packageMd5;
+		this.packageSize = Long.valueOf(packageSize);
+	}
+
+	/**
+	 * @return the created
+	 */
+	public final Date getCreated() {
+		return created == null ? null : new Date(created.getTime());
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof FormFixityRecord) || fixityID == null) {
+			return false;
+		}
+		return fixityID.equals(((FormFixityRecord) o).getFixityID());
+	}
+
+	@Override
+	public int hashCode() {
+		return fixityID == null ? 0 : fixityID.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FormFixityRecord: form %s v%d (sha256 %s, %d bytes)", formID, Integer.valueOf(version),
+				sha256, Long.valueOf(size));
+	}
+
+}
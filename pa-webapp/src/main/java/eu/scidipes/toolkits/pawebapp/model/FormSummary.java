@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
+
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+
+/**
+ * Lightweight, read-only projection of a {@link Form} holding just the columns needed by the item navigation and list
+ * screens, so that those screens need not load full form entities with their fields, categories and metadata.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class FormSummary {
+
+	private final Integer formID;
+
+	private final String group;
+
+	private final int groupOrder;
+
+	private final String itemFileName;
+
+	private final String manifestUID;
+
+	private final String name;
+
+	private final boolean preserved;
+
+	private final String size;
+
+	public FormSummary(final Integer formID, final String name, final String group, final int groupOrder,
+			final String itemFileName, final String size, final boolean preserved) {
+		this.formID = formID;
+		this.name = name;
+		this.group = group;
+		this.groupOrder = groupOrder;
+		this.itemFileName = itemFileName;
+		this.size = size;
+		this.preserved = preserved;
+		this.manifestUID = null;
+	}
+
+	public FormSummary(final Integer formID, final String name, final String group, final int groupOrder,
+			final String itemFileName, final String size, final boolean preserved,
+			final CurationPersistentIdentifier manifestCPID) {
+		this.formID = formID;
+		this.name = name;
+		this.group = group;
+		this.groupOrder = groupOrder;
+		this.itemFileName = itemFileName;
+		this.size = size;
+		this.preserved = preserved;
+		this.manifestUID = manifestCPID == null ? null : manifestCPID.getUID();
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof FormSummary)) {
+			return false;
+		}
+		final FormSummary other = (FormSummary) o;
+		return formID.equals(other.getFormID());
+	}
+
+	/**
+	 * @return the formID
+	 */
+	public final Integer getFormID() {
+		return formID;
+	}
+
+	/**
+	 * @return the group
+	 */
+	public final String getGroup() {
+		return group;
+	}
+
+	/**
+	 * @return the groupOrder
+	 */
+	public final int getGroupOrder() {
+		return groupOrder;
+	}
+
+	/**
+	 * @return the itemFileName
+	 */
+	public final String getItemFileName() {
+		return itemFileName;
+	}
+
+	/**
+	 * @return the UID of the form's manifest CPID, or <code>null</code> if it was not selected or not assigned
+	 */
+	public final String getManifestUID() {
+		return manifestUID;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public final String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the size of the form's data holder content as recorded in its metadata, or <code>null</code> if none
+	 */
+	public final String getSize() {
+		return size;
+	}
+
+	@Override
+	public int hashCode() {
+		return formID.hashCode();
+	}
+
+	/**
+	 * @return the preserved
+	 */
+	public final boolean isPreserved() {
+		return preserved;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FormSummary [%d, %s]", formID, name);
+	}
+
+}
@@ -63,12 +63,47 @@ public class PreservationJobDTO implements PreservationJob {
 
 	private final PreservationJob job;
 
-	private PreservationJobDTO(final PreservationJob job) {
+	private final Integer jobID;
+
+	private final int sequence;
+
+	private PreservationJobDTO(final PreservationJob job, final PreservationJobEventLog eventLog) {
 		this.job = job;
+		/* Read before the job items, so that no later event can be missed by a client resuming from this sequence: */
+		this.jobID = eventLog == null ? null : eventLog.getJobID();
+		this.sequence = eventLog == null ? 0 : eventLog.getSequence();
 	}
 
 	public static final PreservationJobDTO wrapJob(final PreservationJob job) {
-		return new PreservationJobDTO(job);
+		return new PreservationJobDTO(job, null);
+	}
+
+	/**
+	 * Wraps a job together with the sequence number its event log has reached, from which a client can follow the
+	 * job's subsequent events
+	 * 
+	 * @param job
+	 *            the job to wrap
+	 * @param eventLog
+	 *            the job's event log
+	 * @return the wrapped job
+	 */
+	public static final PreservationJobDTO wrapJob(final PreservationJob job, final PreservationJobEventLog eventLog) {
+		return new PreservationJobDTO(job, eventLog);
+	}
+
+	/**
+	 * @return the ID of the job, or null if it has no event log
+	 */
+	public Integer getJobID() {
+		return jobID;
+	}
+
+	/**
+	 * @return the sequence number of the job's event log when this DTO was created
+	 */
+	public int getSequence() {
+		return sequence;
 	}
 
 	/*
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import info.digitalpreserve.interfaces.Manifest;
+import info.digitalpreserve.interfaces.RegistryObject;
+import info.digitalpreserve.interfaces.RepInfoLabel;
+
+import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+
+/**
+ * Event published when an item of a preservation job completes, for serialising to clients as JSON. As with
+ * {@link PreservationJobDTO}, the preserved object is sanitised so that no sensitive details are exposed; this is done
+ * once when the event is created rather than on every request for it.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class PreservationJobEvent {
+
+	private final int sequence;
+
+	private final Preservable preservable;
+
+	private final RegistryObject preservedObject;
+
+	private final boolean succeeded;
+
+	private final String error;
+
+	/**
+	 * Creates the event for a completed job item
+	 * 
+	 * @param sequence
+	 *            the position of the event in its job's event log, starting from 1
+	 * @param result
+	 *            the result of the job item
+	 * @return the new event
+	 */
+	public static PreservationJobEvent itemCompleted(final int sequence,
+			final PreservationJobItemResult<Preservable, ?> result) {
+
+		final Object preserved = result.getPreservedObject();
+		final RegistryObject sanitised;
+		if (preserved instanceof Manifest) {
+			sanitised = new SanitizedManifest((Manifest) preserved);
+		} else if (preserved instanceof RepInfoLabel) {
+			sanitised = new SanitizedRIL((RepInfoLabel) preserved);
+		} else {
+			sanitised = null;
+		}
+
+		final Throwable thrown = result.getThrown();
+		final String error = thrown == null ? null : String.valueOf(thrown.getMessage());
+
+		return new PreservationJobEvent(sequence, result.getPreservable(), sanitised, result.isSucceeded()
+				.booleanValue(), error);
+	}
+
+	private PreservationJobEvent(final int sequence, final Preservable preservable,
+			final RegistryObject preservedObject, final boolean succeeded, final String error) {
+		this.sequence = sequence;
+		this.preservable = preservable;
+		this.preservedObject = preservedObject;
+		this.succeeded = succeeded;
+		this.error = error;
+	}
+
+	/**
+	 * @return the position of this event in its job's event log, starting from 1
+	 */
+	public int getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the preservable item which completed
+	 */
+	public Preservable getPreservable() {
+		return preservable;
+	}
+
+	/**
+	 * @return the sanitised object stored in the registry, or null if the item failed
+	 */
+	public RegistryObject getPreservedObject() {
+		return preservedObject;
+	}
+
+	/**
+	 * @return true if the item was preserved
+	 */
+	public boolean isSucceeded() {
+		return succeeded;
+	}
+
+	/**
+	 * @return the message of the error which failed the item, or null if it succeeded
+	 */
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Event %d: %s %s", Integer.valueOf(sequence), preservable, succeeded ? "preserved"
+				: "failed");
+	}
+
+}
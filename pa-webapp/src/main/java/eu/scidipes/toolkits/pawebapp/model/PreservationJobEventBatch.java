@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The events of a preservation job after a client's last known sequence number, as returned to the client. The client
+ * passes back {@link #getSequence()} and {@link #getJobID()} to receive only the events following these.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class PreservationJobEventBatch {
+
+	private final Integer jobID;
+
+	private final int sequence;
+
+	private final boolean finished;
+
+	private final List<PreservationJobEvent> events;
+
+	public PreservationJobEventBatch(final Integer jobID, final int sequence, final boolean finished,
+			final List<PreservationJobEvent> events) {
+		this.jobID = jobID;
+		this.sequence = sequence;
+		this.finished = finished;
+		this.events = Collections.unmodifiableList(events);
+	}
+
+	/**
+	 * @return the ID of the job, which changes if the dataset is preserved again
+	 */
+	public Integer getJobID() {
+		return jobID;
+	}
+
+	/**
+	 * @return the sequence number of the last event published by the job so far
+	 */
+	public int getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return true if the job has finished, so will publish no further events
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return the events, in sequence
+	 */
+	public List<PreservationJobEvent> getEvents() {
+		return events;
+	}
+
+}
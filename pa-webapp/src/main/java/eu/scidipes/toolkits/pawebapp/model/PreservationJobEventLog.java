@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+
+/**
+ * Append-only log of the events of a single preservation job. Each event is numbered by its position in the log, so a
+ * client can ask for just the events after the last one it received, and can wait for new events rather than
+ * repeatedly fetching the whole state of the job.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class PreservationJobEventLog {
+
+	private final Integer jobID;
+
+	private final List<PreservationJobEvent> events = new ArrayList<>();
+
+	private boolean finished;
+
+	/**
+	 * @param jobID
+	 *            the ID of the persisted job record
+	 */
+	public PreservationJobEventLog(final Integer jobID) {
+		this.jobID = jobID;
+	}
+
+	/**
+	 * Appends an event for a completed job item and wakes any waiting clients
+	 * 
+	 * @param result
+	 *            the result of the job item
+	 */
+	public synchronized void append(final PreservationJobItemResult<Preservable, ?> result) {
+		events.add(PreservationJobEvent.itemCompleted(events.size() + 1, result));
+		notifyAll();
+	}
+
+	/**
+	 * Marks the job as finished and wakes any waiting clients
+	 */
+	public synchronized void finish() {
+		finished = true;
+		notifyAll();
+	}
+
+	/**
+	 * @return the ID of the persisted job record
+	 */
+	public Integer getJobID() {
+		return jobID;
+	}
+
+	/**
+	 * @return the sequence number of the last event appended, or 0 if there are none yet
+	 */
+	public synchronized int getSequence() {
+		return events.size();
+	}
+
+	/**
+	 * Returns the events after a given sequence number, waiting up to the given timeout for there to be any. Returns
+	 * straight away if there are already later events or the job has finished. A sequence number beyond the end of the
+	 * log (from a client out of step with it) is treated as 0, so the whole log is returned.
+	 * 
+	 * @param since
+	 *            the sequence number of the last event the client has received
+	 * @param timeout
+	 *            the longest time to wait for new events
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the events after <code>since</code>, which may be empty if the timeout elapsed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public synchronized PreservationJobEventBatch await(final int since, final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+
+		final int from = since < 0 || since > events.size() ? 0 : since;
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		long remaining = unit.toNanos(timeout);
+		while (events.size() <= from && !finished && remaining > 0) {
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			remaining = deadline - System.nanoTime();
+		}
+
+		return new PreservationJobEventBatch(jobID, events.size(), finished, new ArrayList<>(events.subList(from,
+				events.size())));
+	}
+
+}
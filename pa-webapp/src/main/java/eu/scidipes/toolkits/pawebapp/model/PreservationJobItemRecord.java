@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.QUEUED;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+/**
+ * Persisted record of a single item (a form or a RIL) within a {@link PreservationJobRecord}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+@Entity
+@Table(name = "preservation_job_item")
+public class PreservationJobItemRecord {
+
+	/**
+	 * The kinds of item which make up a preservation job
+	 */
+	public enum ItemType {
+		FORM, RIL
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "item_id")
+	private Integer itemID;
+
+	@ManyToOne
+	@JoinColumn(name = "job_id", referencedColumnName = "job_id")
+	private PreservationJobRecord job;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "item_type")
+	private ItemType itemType;
+
+	/* Form ID or RIL CPID, depending on the item type */
+	@Column(name = "item_key")
+	private String itemKey;
+
+	@Enumerated(EnumType.STRING)
+	private PreservationJobState state = QUEUED;
+
+	private int attempts;
+
+	/* CPID of the manifest or RIL once stored in the registry */
+	@Column(name = "result_cpid")
+	private String resultCPID;
+
+	private String error;
+
+	/**
+	 * No-arg constructor required by JPA
+	 */
+	protected PreservationJobItemRecord() {
+		/* No action */
+	}
+
+	PreservationJobItemRecord(final PreservationJobRecord job, final ItemType itemType, final String itemKey) {
+		this.job = job;
+		this.itemType = itemType;
+		this.itemKey = itemKey;
+	}
+
+	/**
+	 * @return the itemID
+	 */
+	public final Integer getItemID() {
+		return itemID;
+	}
+
+	/**
+	 * @return the job
+	 */
+	public final PreservationJobRecord getJob() {
+		return job;
+	}
+
+	/**
+	 * @return the itemType
+	 */
+	public final ItemType getItemType() {
+		return itemType;
+	}
+
+	/**
+	 * @return the itemKey
+	 */
+	public final String getItemKey() {
+		return itemKey;
+	}
+
+	/**
+	 * @return the state
+	 */
+	public final PreservationJobState getState() {
+		return state;
+	}
+
+	/**
+	 * @return the number of times this item has been claimed by a worker
+	 */
+	public final int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * @return the resultCPID
+	 */
+	public final String getResultCPID() {
+		return resultCPID;
+	}
+
+	/**
+	 * @return the error
+	 */
+	public final String getError() {
+		return error;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof PreservationJobItemRecord) || itemID == null) {
+			return false;
+		}
+		return itemID.equals(((PreservationJobItemRecord) o).getItemID());
+	}
+
+	@Override
+	public int hashCode() {
+		return itemID == null ? 0 : itemID.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PreservationJobItemRecord: %s (%s %s, %s)", itemID, itemType, itemKey, state);
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.QUEUED;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationMode;
+
+/**
+ * Persisted record of a dataset preservation job, so that a job interrupted by a redeploy or crash can be resumed
+ * 
+ * @author Tom Bunting
+ * 
+ */
+@Entity
+@Table(name = "preservation_job")
+public class PreservationJobRecord {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "job_id")
+	private Integer jobID;
+
+	@Column(name = "dataset_name")
+	private String datasetName;
+
+	@Column(name = "registry_uid")
+	private String registryUID;
+
+	@Enumerated(EnumType.STRING)
+	private PreservationJobState state = QUEUED;
+
+	@Enumerated(EnumType.STRING)
+	private PreservationMode mode = PreservationMode.FULL;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date created;
+
+	@OneToMany(mappedBy = "job", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+	@OrderBy("itemID")
+	private final List<PreservationJobItemRecord> items = new ArrayList<>();
+
+	/**
+	 * No-arg constructor required by JPA
+	 */
+	protected PreservationJobRecord() {
+		/* No action */
+	}
+
+	public PreservationJobRecord(final String datasetName, final String registryUID, final PreservationMode mode) {
+		this.datasetName = datasetName;
+		this.registryUID = registryUID;
+		this.mode = mode;
+		this.created = new Date();
+	}
+
+	/**
+	 * Adds a new, queued item to this job
+	 * 
+	 * @param itemType
+	 *            the type of the item to preserve
+	 * @param itemKey
+	 *            the key of the item to preserve, i.e. a form ID or RIL CPID
+	 * @return the new item
+	 */
+	public PreservationJobItemRecord addItem(final PreservationJobItemRecord.ItemType itemType, final String itemKey) {
+		final PreservationJobItemRecord item = new PreservationJobItemRecord(this, itemType, itemKey);
+		items.add(item);
+		return item;
+	}
+
+	/**
+	 * @return the jobID
+	 */
+	public final Integer getJobID() {
+		return jobID;
+	}
+
+	/**
+	 * @return the datasetName
+	 */
+	public final String getDatasetName() {
+		return datasetName;
+	}
+
+	/**
+	 * @return the registryUID
+	 */
+	public final String getRegistryUID() {
+		return registryUID;
+	}
+
+	/**
+	 * @return the state
+	 */
+	public final PreservationJobState getState() {
+		return state;
+	}
+
+	/**
+	 * @return the mode
+	 */
+	public final PreservationMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return the created
+	 */
+	public final Date getCreated() {
+		return created == null ? null : new Date(created.getTime());
+	}
+
+	/**
+	 * @return an unmodifiable view of this job's items
+	 */
+	public final List<PreservationJobItemRecord> getItems() {
+		return Collections.unmodifiableList(items);
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof PreservationJobRecord) || jobID == null) {
+			return false;
+		}
+		return jobID.equals(((PreservationJobRecord) o).getJobID());
+	}
+
+	@Override
+	public int hashCode() {
+		return jobID == null ? 0 : jobID.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PreservationJobRecord: %s (dataset: %s, registry: %s, %s, %s)", jobID, datasetName,
+				registryUID, mode, state);
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+/**
+ * Lifecycle states of a persisted preservation job and of each of its items
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public enum PreservationJobState {
+
+	/** Waiting to be claimed by a worker */
+	QUEUED,
+
+	/** Claimed by a worker, but not yet stored in the registry */
+	RUNNING,
+
+	/** Stored in the registry under its recorded CPID, but not yet confirmed as readable from it */
+	STORED,
+
+	/** Preserved and confirmed as readable from the registry */
+	DONE,
+
+	/** Preservation was attempted and failed */
+	FAILED;
+
+	/**
+	 * @return true if nothing further will happen to a job or item in this state
+	 */
+	public boolean isFinished() {
+		return this == DONE || this == FAILED;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_MIMETYPE;
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_NAME;
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.impl.blob.StoredBlob;
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
+import eu.scidipes.toolkits.palibrary.utils.MimeSniffer;
+import eu.scidipes.toolkits.palibrary.utils.MimeSniffingInputStream;
+
+/**
+ * An uploaded file which has been streamed into a {@link BlobStore}, ready to be attached to a form. Holds only a
+ * reference to the stored content plus its file name, size and MIME type.
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class StagedUpload implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Streams an uploaded file into the blob store in fixed-size buffers. Its size, SHA-256 digest and MIME type are all
+	 * computed in the same single pass, so heap use is constant whatever the size of the file.
+	 *
+	 * @param file
+	 *            the uploaded file
+	 * @param blobStore
+	 *            the store to stream it into
+	 * @return the staged upload
+	 * @throws IOException
+	 *             if the upload could not be read or stored
+	 */
+	public static StagedUpload stage(final MultipartFile file, final BlobStore blobStore) throws IOException {
+		try (final MimeSniffingInputStream content = new MimeSniffingInputStream(file.getInputStream())) {
+			final StoredBlob blob = blobStore.put(content);
+			final String mimeType = MimeSniffer.resolve(content.getSniffedType(), file.getContentType());
+
+			return new StagedUpload(blob.getReference(), file.getOriginalFilename(), blob.getSize(), mimeType);
+		}
+	}
+
+	private final String fileName;
+
+	private final String mimeType;
+
+	private final String reference;
+
+	private final long size;
+
+	public StagedUpload(final String reference, final String fileName, final long size, final String mimeType) {
+		this.reference = reference;
+		this.fileName = fileName;
+		this.size = size;
+		this.mimeType = mimeType;
+	}
+
+	/**
+	 * Sets the passed form's data holder to refer to the uploaded content, and records the upload's details in the
+	 * form's data holder metadata.
+	 *
+	 * @param form
+	 *            the form to attach the upload to
+	 */
+	public void applyTo(final FormImpl form) {
+		form.setDataHolder(reference);
+		form.getDataHolderMetadata().put(FILE_NAME, fileName);
+		form.getDataHolderMetadata().put(FILE_SIZE, String.valueOf(size));
+		form.getDataHolderMetadata().put(FILE_MIMETYPE, mimeType);
+	}
+
+	/**
+	 * @return the fileName
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return the mimeType
+	 */
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	/**
+	 * @return the reference to the stored content
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	/**
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Upload '%s' [%s, %d bytes, %s]", fileName, reference, Long.valueOf(size), mimeType);
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import info.digitalpreserve.interfaces.Manifest;
+import info.digitalpreserve.interfaces.RegistryObject;
+import info.digitalpreserve.interfaces.RepInfoLabel;
+
+import java.util.concurrent.Callable;
+
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationStorageException;
+import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+
+/**
+ * Callable task which runs a preservation task only once its persisted job item has been claimed from the
+ * {@link PreservationJobStore}, and writes the item's outcome back to the store as soon as it is known.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+class ClaimedJobItemTask implements Callable<PreservationJobItemResult<Preservable, RegistryObject>> {
+
+	private final PreservationJobItemRecord item;
+	private final Preservable preservable;
+	private final Callable<PreservationJobItemResult<Preservable, RegistryObject>> task;
+	private final PreservationJobStore jobStore;
+
+	ClaimedJobItemTask(final PreservationJobItemRecord item, final Preservable preservable,
+			final Callable<PreservationJobItemResult<Preservable, RegistryObject>> task,
+			final PreservationJobStore jobStore) {
+		this.item = item;
+		this.preservable = preservable;
+		this.task = task;
+		this.jobStore = jobStore;
+	}
+
+	@Override
+	public PreservationJobItemResult<Preservable, RegistryObject> call() throws PreservationStorageException {
+
+		if (!jobStore.claim(item)) {
+			throw new PreservationStorageException(new IllegalStateException(item
+					+ " could not be claimed as it is no longer queued"), preservable);
+		}
+
+		try {
+			final PreservationJobItemResult<Preservable, RegistryObject> result = task.call();
+			jobStore.markDone(item, getResultCPID(result.getPreservedObject()));
+			return result;
+
+		} catch (final PreservationStorageException e) {
+			jobStore.markFailed(item, e.getCause());
+			throw e;
+		} catch (final Exception e) {
+			jobStore.markFailed(item, e);
+			throw new PreservationStorageException(e, preservable);
+		}
+	}
+
+	private static String getResultCPID(final RegistryObject preserved) {
+		if (preserved instanceof Manifest) {
+			return ((Manifest) preserved).getManifestCpid().getUID();
+		} else if (preserved instanceof RepInfoLabel) {
+			return ((RepInfoLabel) preserved).getCpid().getUID();
+		}
+		return null;
+	}
+
+}
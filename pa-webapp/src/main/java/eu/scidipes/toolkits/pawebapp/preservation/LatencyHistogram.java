@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static java.lang.String.format;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe, fixed-bucket histogram of latencies in milliseconds. Percentiles are approximated by the upper bound of
+ * the bucket in which they fall.
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class LatencyHistogram {
+
+	/** Upper bounds (inclusive, in ms) of all but the last bucket; the last bucket is unbounded */
+	private static final long[] BUCKET_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2000, 5000, 10000, 30000, 60000 };
+
+	private final String name;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param name
+	 *            descriptive name of what is being measured, used in {@link #toString()}
+	 */
+	public LatencyHistogram(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records a single latency.
+	 *
+	 * @param millis
+	 *            the latency in milliseconds
+	 */
+	public void record(final long millis) {
+		int bucket = 0;
+		while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+		buckets.incrementAndGet(bucket);
+		count.incrementAndGet();
+		total.addAndGet(millis);
+
+		long currentMax = max.get();
+		while (millis > currentMax && !max.compareAndSet(currentMax, millis)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the largest latency recorded, or zero if none have been
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the mean latency recorded, or zero if none have been
+	 */
+	public long getMean() {
+		final long n = count.get();
+		return n == 0 ? 0 : total.get() / n;
+	}
+
+	/**
+	 * Returns an approximation of the passed percentile: the upper bound of the bucket containing it, or the maximum
+	 * recorded latency where that is lower or the percentile falls in the unbounded bucket.
+	 *
+	 * @param percentile
+	 *            a percentile between 0 and 100
+	 * @return the approximate latency at <code>percentile</code>, or zero if nothing has been recorded
+	 */
+	public long getPercentile(final double percentile) {
+		final long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+
+		final long rank = (long) Math.ceil(n * percentile / 100d);
+		long seen = 0;
+
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(BUCKET_BOUNDS[i], max.get());
+			}
+		}
+		return max.get();
+	}
+
+	@Override
+	public String toString() {
+		return format("%s latency: n=%d, mean=%dms, p50<=%dms, p90<=%dms, p99<=%dms, max=%dms", name,
+				Long.valueOf(getCount()), Long.valueOf(getMean()), Long.valueOf(getPercentile(50)),
+				Long.valueOf(getPercentile(90)), Long.valueOf(getPercentile(99)), Long.valueOf(getMax()));
+	}
+
+}
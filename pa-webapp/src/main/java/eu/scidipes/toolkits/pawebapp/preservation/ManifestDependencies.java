@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
+import info.digitalpreserve.interfaces.RepInfoGroup;
+import info.digitalpreserve.interfaces.RepresentationInformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+
+/**
+ * Tracks the dependencies between the items of a single preservation job: a {@link DatasetRIL} refers to the
+ * manifests of forms by their manifest CPIDs, so must not be stored until every such manifest in the same job has been
+ * stored. Manifests have no dependencies of their own.
+ * <p>
+ * Instances are not thread-safe; they are only used by the thread that submits and coordinates a job's items.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+final class ManifestDependencies {
+
+	/** Forms with manifests still to be stored in this job, keyed by the UID of their manifest CPID */
+	private final Map<String, Form> pendingManifests = new HashMap<>();
+
+	/** For each waiting RIL, the forms whose manifests it still waits for */
+	private final Map<DatasetRIL, Set<Form>> awaited = new HashMap<>();
+
+	/** For each form, the RILs waiting for its manifest */
+	private final Map<Form, List<DatasetRIL>> dependents = new HashMap<>();
+
+	/** RILs referring to at least one manifest which could not be stored */
+	private final Set<DatasetRIL> blocked = new HashSet<>();
+
+	/**
+	 * Registers a form whose manifest will be stored by the job. Forms without a manifest CPID cannot yet be referred
+	 * to by any RIL, so are ignored. All forms must be added before any RILs.
+	 * 
+	 * @param form
+	 *            the form to be preserved
+	 */
+	void addManifest(final Form form) {
+		if (form.getManifestCPID() != null) {
+			pendingManifests.put(form.getManifestCPID().getUID(), form);
+		}
+	}
+
+	/**
+	 * Registers a RIL to be stored by the job.
+	 * 
+	 * @param ril
+	 *            the RIL to be preserved
+	 * @return <code>true</code> if the RIL refers to none of the job's pending manifests, so may be stored straight
+	 *         away; <code>false</code> if it must wait to be returned by {@link #complete(Form, boolean)}
+	 */
+	boolean addRIL(final DatasetRIL ril) {
+		final Set<Form> forms = new HashSet<>();
+		for (final String cpid : referencedCPIDs(ril)) {
+			final Form form = pendingManifests.get(cpid);
+			if (form != null) {
+				forms.add(form);
+			}
+		}
+
+		if (forms.isEmpty()) {
+			return true;
+		}
+
+		awaited.put(ril, forms);
+		for (final Form form : forms) {
+			if (!dependents.containsKey(form)) {
+				dependents.put(form, new ArrayList<DatasetRIL>());
+			}
+			dependents.get(form).add(ril);
+		}
+		return false;
+	}
+
+	/**
+	 * Records that the job has finished with the manifest of a form, whether or not it was stored.
+	 * 
+	 * @param form
+	 *            the form whose manifest task has finished
+	 * @param succeeded
+	 *            whether the manifest was stored
+	 * @return the RILs which no longer wait for any manifest, in the order they were added for this form
+	 */
+	List<DatasetRIL> complete(final Form form, final boolean succeeded) {
+		final List<DatasetRIL> waiting = dependents.remove(form);
+		if (waiting == null) {
+			return Collections.emptyList();
+		}
+
+		final List<DatasetRIL> ready = new ArrayList<>();
+		for (final DatasetRIL ril : waiting) {
+			if (!succeeded) {
+				blocked.add(ril);
+			}
+
+			final Set<Form> forms = awaited.get(ril);
+			forms.remove(form);
+			if (forms.isEmpty()) {
+				awaited.remove(ril);
+				ready.add(ril);
+			}
+		}
+		return ready;
+	}
+
+	/**
+	 * @param ril
+	 *            a RIL returned by {@link #complete(Form, boolean)}
+	 * @return <code>true</code> if any manifest the RIL refers to could not be stored, in which case the RIL should not
+	 *         be stored either
+	 */
+	boolean isBlocked(final DatasetRIL ril) {
+		return blocked.contains(ril);
+	}
+
+	/**
+	 * @return the number of RILs still waiting for manifests
+	 */
+	int getWaitingCount() {
+		return awaited.size();
+	}
+
+	/**
+	 * Collects the UIDs of the CPIDs of the representation information in each core section of a RIL, which for RI
+	 * added from a form are the form's manifest CPID.
+	 */
+	static Set<String> referencedCPIDs(final DatasetRIL ril) {
+		final Set<String> cpids = new HashSet<>();
+		for (final RepresentationInformation child : ril.getRil().getRepresentationInformationChildren()) {
+			if (child.getRepresentationInformation() instanceof RepInfoGroup) {
+				for (final RepresentationInformation grandChild : ((RepInfoGroup) child.getRepresentationInformation())
+						.getRepresentationInformationChildren()) {
+					final CurationPersistentIdentifier cpid = grandChild.getCpid();
+					if (cpid != null) {
+						cpids.add(cpid.getUID());
+					}
+				}
+			}
+		}
+		return cpids;
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJob;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobEventLog;
+
+/**
+ * A {@link PreservationJob} which publishes an event as each of its items completes, so that clients can follow its
+ * progress without fetching its whole state each time
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public interface ObservablePreservationJob extends PreservationJob {
+
+	/**
+	 * @return the log of the job's events
+	 */
+	PreservationJobEventLog getEventLog();
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static org.apache.commons.lang.Validate.notNull;
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
+import eu.scidipes.toolkits.palibrary.utils.zip.CompressionPolicy;
+import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
+
+/**
+ * The application-wide collaborators shared by all preservation jobs and their tasks, as owned by
+ * {@link PreservationManagerImpl}.
+ *
+ * @author Tom Bunting
+ *
+ */
+final class PreservationContext {
+
+	private final DataSetRepository datasetRepo;
+
+	private final PreservationScheduler scheduler;
+
+	private final ReadAfterWriteConfirmer confirmer;
+
+	private final BlobStore blobStore;
+
+	private final PreservationJobStore jobStore;
+
+	private final CompressionPolicy compressionPolicy;
+
+	/**
+	 * @throws NullPointerException
+	 *             if any of the parameters are null
+	 */
+	PreservationContext(final DataSetRepository datasetRepo, final PreservationScheduler scheduler,
+			final ReadAfterWriteConfirmer confirmer, final BlobStore blobStore, final PreservationJobStore jobStore,
+			final CompressionPolicy compressionPolicy) {
+
+		notNull(datasetRepo, "The datasetRepo must not be null");
+		notNull(scheduler, "The scheduler must not be null");
+		notNull(confirmer, "The confirmer must not be null");
+		notNull(blobStore, "The blobStore must not be null");
+		notNull(jobStore, "The jobStore must not be null");
+		notNull(compressionPolicy, "The compressionPolicy must not be null");
+
+		this.datasetRepo = datasetRepo;
+		this.scheduler = scheduler;
+		this.confirmer = confirmer;
+		this.blobStore = blobStore;
+		this.jobStore = jobStore;
+		this.compressionPolicy = compressionPolicy;
+	}
+
+	DataSetRepository getDatasetRepo() {
+		return datasetRepo;
+	}
+
+	PreservationScheduler getScheduler() {
+		return scheduler;
+	}
+
+	ReadAfterWriteConfirmer getConfirmer() {
+		return confirmer;
+	}
+
+	BlobStore getBlobStore() {
+		return blobStore;
+	}
+
+	PreservationJobStore getJobStore() {
+		return jobStore;
+	}
+
+	CompressionPolicy getCompressionPolicy() {
+		return compressionPolicy;
+	}
+
+}
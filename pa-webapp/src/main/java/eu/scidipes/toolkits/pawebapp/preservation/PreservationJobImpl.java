@@ -17,22 +17,25 @@
 package eu.scidipes.toolkits.pawebapp.preservation;
 
 import static eu.scidipes.toolkits.palibrary.utils.MiscUtils.launderThrowable;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.DONE;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.FAILED;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.STORED;
 import static java.lang.String.format;
 import static org.apache.commons.lang.Validate.notNull;
 import info.digitalpreserve.interfaces.Registry;
 import info.digitalpreserve.interfaces.RegistryObject;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,8 +46,11 @@ import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel;
 import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
-import eu.scidipes.toolkits.palibrary.interfaces.PreservationJob;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobEventLog;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord.ItemType;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobRecord;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
 
 /**
@@ -53,55 +59,79 @@ import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
  * @author Tom Bunting
  * 
  */
-final class PreservationJobImpl implements PreservationJob, Runnable, Comparable<PreservationJobImpl> {
+final class PreservationJobImpl implements ObservablePreservationJob, Runnable, Comparable<PreservationJobImpl> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PreservationJobImpl.class);
 
 	/**
-	 * Creates a new preservation job and starts it in a single threaded {@link ExecutorService}
+	 * Creates a new preservation job, submits its items to the shared {@link PreservationScheduler} and starts
+	 * coordination of the job
 	 * 
 	 * @param formsBundle
 	 *            the formsBundle to preserve
 	 * @param registry
 	 *            the registry to preserve to
-	 * @param datasetRepo
+	 * @param context
+	 *            the collaborators shared by all jobs, including the scheduler on which the job and its items are run
+	 * @param jobRecord
+	 *            the persisted record of the job, either newly created or being resumed
 	 * @return the new job instance
 	 * @throws NullPointerException
 	 *             if any of the parameters are null
 	 */
 	public static PreservationJobImpl newInstance(final FormsBundle formsBundle, final Registry registry,
-			final DataSetRepository datasetRepo) {
+			final PreservationContext context, final PreservationJobRecord jobRecord) {
 
 		notNull(formsBundle, "The formsBundle must not be null");
 		notNull(registry, "The registry must not be null");
-		notNull(datasetRepo, "The datasetRepo must not be null");
+		notNull(context, "The context must not be null");
+		notNull(jobRecord, "The jobRecord must not be null");
 
-		final PreservationJobImpl job = new PreservationJobImpl(formsBundle, registry, datasetRepo);
+		final PreservationJobImpl job = new PreservationJobImpl(formsBundle, registry, context, jobRecord);
 		job.submitJobItems();
-		Executors.newSingleThreadExecutor().execute(job);
+		context.getScheduler().startJob(job);
 		return job;
 	}
 
 	private final AtomicInteger completed = new AtomicInteger();
 
-	private final CompletionService<PreservationJobItemResult<Preservable, RegistryObject>> completionService = new ExecutorCompletionService<>(
-			Executors.newCachedThreadPool());
+	private final CompletionService<PreservationJobItemResult<Preservable, RegistryObject>> completionService;
+
+	private final PreservationContext context;
 
 	private final FormsBundle dataset;
 
 	private final String datasetName;
 
 	private final DataSetRepository datasetRepo;
+
+	private final ManifestDependencies dependencies = new ManifestDependencies();
+
+	private final PreservationJobEventLog eventLog;
+
+	/** Job items of RILs held back until the manifests they refer to have been stored */
+	private final Map<DatasetRIL, PreservationJobItemRecord> deferredRILs = new HashMap<>();
+
+	private final PreservationJobRecord jobRecord;
+
+	private final PreservationJobStore jobStore;
+
 	private final Map<Preservable, PreservationJobItemResult<Preservable, ?>> preservationJobItemMap = Collections
 			.synchronizedMap(new HashMap<Preservable, PreservationJobItemResult<Preservable, ?>>());
 
 	private final Registry registry;
 
-	private PreservationJobImpl(final FormsBundle dataset, final Registry registry, final DataSetRepository datasetRepo) {
+	private PreservationJobImpl(final FormsBundle dataset, final Registry registry, final PreservationContext context,
+			final PreservationJobRecord jobRecord) {
 		this.dataset = dataset;
 		this.datasetName = dataset.getDatasetName();
 		this.registry = registry;
-		this.datasetRepo = datasetRepo;
+		this.datasetRepo = context.getDatasetRepo();
+		this.completionService = new ExecutorCompletionService<>(context.getScheduler().executorFor(registry));
+		this.context = context;
+		this.jobRecord = jobRecord;
+		this.jobStore = context.getJobStore();
+		this.eventLog = new PreservationJobEventLog(jobRecord.getJobID());
 	}
 
 	@Override
@@ -130,6 +160,11 @@ final class PreservationJobImpl implements PreservationJob, Runnable, Comparable
 		return datasetName;
 	}
 
+	@Override
+	public PreservationJobEventLog getEventLog() {
+		return eventLog;
+	}
+
 	@Override
 	public Map<Preservable, PreservationJobItemResult<Preservable, ?>> getPreservationJobItemMap() {
 		return Collections.unmodifiableMap(preservationJobItemMap);
@@ -150,15 +185,22 @@ final class PreservationJobImpl implements PreservationJob, Runnable, Comparable
 
 		LOG.info(format("Preservation job for dataset: '%s' started", dataset.getDatasetName()));
 
+		jobStore.startJob(jobRecord);
+
 		final int numJobItems = preservationJobItemMap.size();
+		boolean failed = false;
 
 		for (int i = 0; i < numJobItems; i++) {
 			try {
 				final PreservationJobItemResult<Preservable, ?> presObj = completionService.take().get();
 				preservationJobItemMap.put(presObj.getPreservable(), presObj);
+				eventLog.append(presObj);
+				failed |= !presObj.isSucceeded().booleanValue();
 
 				LOG.debug("Added ({}) to preservationJobItemMap", presObj);
 
+				releaseDependentRILs(presObj.getPreservable(), presObj.isSucceeded().booleanValue());
+
 			} catch (final InterruptedException e) {
 				LOG.error(e.getMessage(), e);
 				Thread.currentThread().interrupt();
@@ -172,8 +214,13 @@ final class PreservationJobImpl implements PreservationJob, Runnable, Comparable
 
 					LOG.error(pse.getCause().getMessage(), pse.getCause());
 
-					preservationJobItemMap.put(pse.getPreservable(),
-							new PreservationJobItemResultImpl(pse.getPreservable(), pse.getCause()));
+					final PreservationJobItemResultImpl presObj = new PreservationJobItemResultImpl(pse.getPreservable(),
+							pse.getCause());
+					preservationJobItemMap.put(pse.getPreservable(), presObj);
+					eventLog.append(presObj);
+					failed = true;
+
+					releaseDependentRILs(pse.getPreservable(), false);
 				} else {
 					throw launderThrowable(cause);
 				}
@@ -184,6 +231,9 @@ final class PreservationJobImpl implements PreservationJob, Runnable, Comparable
 		LOG.info(format(
 				"Preservation job for dataset: '%s' finished preserving %d manifests, digital objects and RILs",
 				dataset.getDatasetName(), Integer.valueOf(numJobItems)));
+		/* The confirmer is shared by all jobs, so its latencies are cumulative rather than for this job alone: */
+		LOG.info("Cumulative since startup: " + context.getConfirmer().getManifestLatencies());
+		LOG.info("Cumulative since startup: " + context.getConfirmer().getRILLatencies());
 
 		/* Update the RILs in the persistence context: */
 		for (final DatasetRIL ril : dataset.getRils()) {
@@ -191,24 +241,108 @@ final class PreservationJobImpl implements PreservationJob, Runnable, Comparable
 		}
 
 		datasetRepo.save((FormsBundleImpl) dataset);
+
+		jobStore.finishJob(jobRecord, failed ? FAILED : DONE);
+		eventLog.finish();
 	}
 
 	private void submitJobItems() {
 
-		/* Submit the forms to be uploaded as manifests: */
+		final Map<String, Preservable> formsByID = new HashMap<>();
 		for (final Form form : dataset.getForms()) {
+			formsByID.put(String.valueOf(form.getFormID()), form);
+		}
 
-			/* Skip 'empty' forms: */
-			if (StringUtils.isNotEmpty(form.getDataHolder())) {
-				completionService.submit(new PreserveFormManifestTask(form, registry));
-				preservationJobItemMap.put(form, null);
+		final Map<String, Preservable> rilsByCPID = new HashMap<>();
+		for (final DatasetRIL ril : dataset.getRils()) {
+			rilsByCPID.put(ril.getRilCPID(), ril);
+		}
+
+		/*
+		 * Submit a task per persisted job item: forms to be uploaded as manifests and dataset groups (RILs) as
+		 * RepInfoLabel instances. Items of a resumed job which were already stored are only confirmed or read back.
+		 * Manifests are all submitted straight away; a RIL referring to manifests still to be stored is held back until
+		 * they have been, so that it is never stored ahead of them.
+		 */
+		final List<PreservationJobItemRecord> rilItems = new ArrayList<>();
+
+		for (final PreservationJobItemRecord item : jobRecord.getItems()) {
+			final Preservable preservable = (item.getItemType() == ItemType.FORM ? formsByID : rilsByCPID).get(item
+					.getItemKey());
+
+			if (preservable == null) {
+				LOG.warn("{} is no longer part of dataset '{}' and will not be preserved", item, datasetName);
+				continue;
+			}
+
+			if (item.getState() == DONE || item.getState() == STORED) {
+				completionService.submit(new RestorePreservedItemTask(item, preservable, context));
+			} else if (preservable instanceof Form) {
+				dependencies.addManifest((Form) preservable);
+				completionService.submit(new ClaimedJobItemTask(item, preservable, new PreserveFormManifestTask(
+						(Form) preservable, item, registry, context), jobStore));
+			} else {
+				rilItems.add(item);
 			}
+			preservationJobItemMap.put(preservable, null);
 		}
 
-		/* Submit the dataset groups (RILs) to be uploaded as RepInfoLabel instances: */
-		for (final DatasetRIL ril : dataset.getRils()) {
-			completionService.submit(new PreserveRILTask(ril, registry));
-			preservationJobItemMap.put(ril, null);
+		for (final PreservationJobItemRecord item : rilItems) {
+			final DatasetRIL ril = (DatasetRIL) rilsByCPID.get(item.getItemKey());
+
+			if (dependencies.addRIL(ril)) {
+				submitRIL(item, ril);
+			} else {
+				deferredRILs.put(ril, item);
+			}
+		}
+
+		LOG.debug("{} RILs of dataset '{}' will wait for their manifests to be stored",
+				Integer.valueOf(deferredRILs.size()), datasetName);
+	}
+
+	/**
+	 * Submits the RILs which were waiting only for the manifest of the passed item, if it is a form. A RIL referring to
+	 * a manifest which could not be stored fails without being stored itself.
+	 */
+	private void releaseDependentRILs(final Preservable preservable, final boolean succeeded) {
+		if (!(preservable instanceof Form)) {
+			return;
+		}
+
+		for (final DatasetRIL ril : dependencies.complete((Form) preservable, succeeded)) {
+			final PreservationJobItemRecord item = deferredRILs.remove(ril);
+
+			if (dependencies.isBlocked(ril)) {
+				LOG.warn("{} will not be preserved as a manifest it refers to could not be preserved", ril);
+				completionService.submit(new ClaimedJobItemTask(item, ril, new BlockedRILTask(ril), jobStore));
+			} else {
+				submitRIL(item, ril);
+			}
+		}
+	}
+
+	private void submitRIL(final PreservationJobItemRecord item, final DatasetRIL ril) {
+		completionService.submit(new ClaimedJobItemTask(item, ril, new PreserveRILTask(ril, item, registry, context),
+				jobStore));
+	}
+
+	/**
+	 * Stands in for the task of a RIL which must not be stored, failing its job item
+	 */
+	private static final class BlockedRILTask implements
+			Callable<PreservationJobItemResult<Preservable, RegistryObject>> {
+
+		private final DatasetRIL ril;
+
+		BlockedRILTask(final DatasetRIL ril) {
+			this.ril = ril;
+		}
+
+		@Override
+		public PreservationJobItemResult<Preservable, RegistryObject> call() throws PreservationStorageException {
+			throw new PreservationStorageException(new IllegalStateException(ril
+					+ " refers to manifests which could not be preserved"), ril);
 		}
 	}
 
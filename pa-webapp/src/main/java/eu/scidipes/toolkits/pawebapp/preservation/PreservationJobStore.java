@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.DONE;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.FAILED;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.QUEUED;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.RUNNING;
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.STORED;
+import info.digitalpreserve.interfaces.Registry;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationMode;
+import eu.scidipes.toolkits.palibrary.utils.FingerprintUtils;
+import eu.scidipes.toolkits.palibrary.utils.FixityOutputStream;
+import eu.scidipes.toolkits.pawebapp.model.FormFixityRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord.ItemType;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobState;
+import eu.scidipes.toolkits.pawebapp.repository.FormFixityRepository;
+import eu.scidipes.toolkits.pawebapp.repository.PreservationJobItemRepository;
+import eu.scidipes.toolkits.pawebapp.repository.PreservationJobRepository;
+
+/**
+ * Durable store of preservation jobs and their items. Every state change is written through to the database as it
+ * happens, each in its own transaction, so that a job interrupted by a redeploy or crash can be resumed without
+ * storing again any item which had already been stored in the registry.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+@Component
+public class PreservationJobStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PreservationJobStore.class);
+
+	private static final int MAX_ERROR_LENGTH = 1024;
+
+	private static final int MAX_FIXITY_ATTEMPTS = 3;
+
+	@Autowired
+	private PreservationJobRepository jobRepo;
+
+	@Autowired
+	private PreservationJobItemRepository itemRepo;
+
+	@Autowired
+	private FormFixityRepository fixityRepo;
+
+	/**
+	 * Persists a new, queued job for the passed dataset, with one item per non-empty form and one per RIL. In
+	 * {@link PreservationMode#INCREMENTAL} mode, forms and RILs whose fingerprint matches that recorded at their last
+	 * successful preservation are left out.
+	 * 
+	 * @param dataset
+	 *            the dataset to preserve
+	 * @param registry
+	 *            the registry to preserve to
+	 * @param mode
+	 *            the preservation mode
+	 * @return the persisted job
+	 */
+	public PreservationJobRecord createJob(final FormsBundle dataset, final Registry registry,
+			final PreservationMode mode) {
+		final PreservationJobRecord job = new PreservationJobRecord(dataset.getDatasetName(),
+				registry.getLocationUID(), mode);
+		final boolean incremental = mode == PreservationMode.INCREMENTAL;
+		int unchanged = 0;
+
+		for (final Form form : dataset.getForms()) {
+			/* Skip 'empty' forms: */
+			if (StringUtils.isNotEmpty(form.getDataHolder())) {
+				if (incremental && form.isPreserved()
+						&& FingerprintUtils.fingerprint(form).equals(((FormImpl) form).getPreservedFingerprint())) {
+					unchanged++;
+				} else {
+					job.addItem(ItemType.FORM, String.valueOf(form.getFormID()));
+				}
+			}
+		}
+
+		for (final DatasetRIL ril : dataset.getRils()) {
+			if (incremental && ril.isPreserved()
+					&& FingerprintUtils.fingerprint(ril).equals(ril.getPreservedFingerprint())) {
+				unchanged++;
+			} else {
+				job.addItem(ItemType.RIL, ril.getRilCPID());
+			}
+		}
+
+		final PreservationJobRecord saved = jobRepo.save(job);
+		LOG.debug("Persisted {} with {} items ({} unchanged items skipped)", saved,
+				Integer.valueOf(saved.getItems().size()), Integer.valueOf(unchanged));
+		return saved;
+	}
+
+	/**
+	 * @return all jobs which were queued or running when last persisted, i.e. those to resume
+	 */
+	public List<PreservationJobRecord> findUnfinishedJobs() {
+		return jobRepo.findAllInStates(EnumSet.of(QUEUED, RUNNING));
+	}
+
+	/**
+	 * Prepares an unfinished job for resumption. Items which were stored in the registry, whether or not they were
+	 * then confirmed or failed, are left (or put back) in the {@link PreservationJobState#STORED} state so that they
+	 * are only confirmed, never uploaded again. Items left running or failed before anything was stored are queued
+	 * again, and items already done are left alone.
+	 * 
+	 * @param job
+	 *            the job to resume
+	 * @return the job as freshly read back from the database
+	 */
+	public PreservationJobRecord requeueInterrupted(final PreservationJobRecord job) {
+		final int stored = itemRepo.updateAllStoredInState(job.getJobID(), RUNNING, STORED)
+				+ itemRepo.updateAllStoredInState(job.getJobID(), FAILED, STORED);
+		final int requeued = itemRepo.updateAllInState(job.getJobID(), RUNNING, QUEUED)
+				+ itemRepo.updateAllInState(job.getJobID(), FAILED, QUEUED);
+		LOG.info("Resuming {}: {} interrupted or failed items re-queued, {} stored items to be confirmed", job,
+				Integer.valueOf(requeued), Integer.valueOf(stored));
+		return jobRepo.findOne(job.getJobID());
+	}
+
+	/**
+	 * Marks a job as started
+	 */
+	public void startJob(final PreservationJobRecord job) {
+		jobRepo.updateState(job.getJobID(), RUNNING);
+	}
+
+	/**
+	 * Marks a job as finished, either {@link PreservationJobState#DONE} or {@link PreservationJobState#FAILED}
+	 */
+	public void finishJob(final PreservationJobRecord job, final PreservationJobState state) {
+		jobRepo.updateState(job.getJobID(), state);
+	}
+
+	/**
+	 * Marks any unfinished jobs for the passed dataset as failed, e.g. when a new job for it supersedes them
+	 */
+	public void abandonUnfinishedJobs(final String datasetName) {
+		for (final PreservationJobRecord job : jobRepo.findAllByDatasetInStates(datasetName,
+				EnumSet.of(QUEUED, RUNNING))) {
+			LOG.warn("Abandoning unfinished {}", job);
+			jobRepo.updateState(job.getJobID(), FAILED);
+		}
+	}
+
+	/**
+	 * Deletes all finished jobs, and their items, for the passed dataset
+	 */
+	public void deleteFinishedJobs(final String datasetName) {
+		jobRepo.delete(jobRepo.findAllByDatasetInStates(datasetName, EnumSet.of(DONE, FAILED)));
+	}
+
+	/**
+	 * Atomically claims a queued item for the calling worker
+	 * 
+	 * @return true if the item was claimed, false if it was not queued (e.g. it has already been preserved)
+	 */
+	public boolean claim(final PreservationJobItemRecord item) {
+		return itemRepo.claim(item.getItemID(), QUEUED, RUNNING) == 1;
+	}
+
+	/**
+	 * Records that a claimed item has been stored in the registry, before its storage is confirmed. From here on the
+	 * item is never stored again, even if the job is interrupted.
+	 * 
+	 * @param resultCPID
+	 *            the CPID under which the manifest or RIL was stored
+	 */
+	public void markStored(final PreservationJobItemRecord item, final String resultCPID) {
+		if (itemRepo.complete(item.getItemID(), EnumSet.of(RUNNING), STORED, resultCPID, null) != 1) {
+			LOG.warn("{} was no longer running when marked as stored", item);
+		}
+	}
+
+	/**
+	 * Records that a claimed or stored item has been preserved and confirmed
+	 * 
+	 * @param resultCPID
+	 *            the CPID of the preserved manifest or RIL
+	 */
+	public void markDone(final PreservationJobItemRecord item, final String resultCPID) {
+		if (itemRepo.complete(item.getItemID(), EnumSet.of(RUNNING, STORED), DONE, resultCPID, null) != 1) {
+			LOG.warn("{} was no longer running or stored when marked as done", item);
+		}
+	}
+
+	/**
+	 * Records the fixity of the bytestream uploaded for a form as the form's next preservation version. Should another
+	 * preservation of the same form take that version first, the version is read again and the insert retried. Fixity
+	 * is only a record of what was uploaded, so failing to record it is logged rather than thrown: it must never fail
+	 * an item which has already been stored, as that would see it uploaded again.
+	 * 
+	 * @param form
+	 *            the preserved form
+	 * @param manifestCPID
+	 *            the CPID of the form's preserved manifest
+	 * @param fixity
+	 *            the stream through which the form's bytestream was written
+	 * @param packageFixity
+	 *            the stream through which the zip packaging the bytestream was written, or <code>null</code> if the
+	 *            bytestream was uploaded as it is
+	 * @return the persisted fixity record, or <code>null</code> if it could not be recorded
+	 */
+	public FormFixityRecord recordFixity(final Form form, final String manifestCPID, final FixityOutputStream fixity,
+			final FixityOutputStream packageFixity) {
+		for (int attempt = 1;; attempt++) {
+			final Integer latest = fixityRepo.findLatestVersion(form.getFormID());
+			final int version = latest == null ? 1 : latest.intValue() + 1;
+
+			final FormFixityRecord record = new FormFixityRecord(form.getFormID(), version, manifestCPID,
+					fixity.getSHA256(), fixity.getMD5(), fixity.getCount());
+			if (packageFixity != null) {
+				record.setPackageFixity(packageFixity.getSHA256(), packageFixity.getMD5(), packageFixity.getCount());
+			}
+
+			try {
+				/* Flushed, so that a clash on UNIQUE(form_id, version) surfaces here rather than at commit: */
+				final FormFixityRecord saved = fixityRepo.saveAndFlush(record);
+				LOG.debug("Recorded {}", saved);
+				return saved;
+
+			} catch (final DataAccessException | TransactionException e) {
+				if (attempt == MAX_FIXITY_ATTEMPTS) {
+					LOG.warn("Could not record fixity of {} as stored under {}", form, manifestCPID, e);
+					return null;
+				}
+				LOG.debug("Could not record fixity version {} of {}, retrying: {}", Integer.valueOf(version), form,
+						e.toString());
+			}
+		}
+	}
+
+	/**
+	 * Records that preservation of a claimed or stored item failed. The CPID of an item which had already been stored
+	 * is kept, so that it is only confirmed if the job is resumed.
+	 */
+	public void markFailed(final PreservationJobItemRecord item, final Throwable thrown) {
+		final String error = StringUtils.abbreviate(String.valueOf(thrown), MAX_ERROR_LENGTH);
+		if (itemRepo.complete(item.getItemID(), EnumSet.of(RUNNING, STORED), FAILED, null, error) != 1) {
+			LOG.warn("{} was no longer running or stored when marked as failed", item);
+		}
+	}
+
+}
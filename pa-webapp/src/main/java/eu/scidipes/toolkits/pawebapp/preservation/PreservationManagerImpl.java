@@ -21,19 +21,46 @@ import info.digitalpreserve.exceptions.RIException;
 import info.digitalpreserve.interfaces.Registry;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletContext;
+
+import org.jasypt.util.text.TextEncryptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.ServletContextAware;
+
+import eu.scidipes.common.framework.FrameworkWrapper;
+import eu.scidipes.common.framework.core.http.HTTPAuthCredentialsProvider;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationException;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationJob;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationManager;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationMode;
+import eu.scidipes.toolkits.palibrary.utils.zip.CompressionPolicy;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobState;
+import eu.scidipes.toolkits.pawebapp.model.RegistryAuth;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
+import eu.scidipes.toolkits.pawebapp.repository.RegistryAuthRepository;
+import eu.scidipes.toolkits.pawebapp.web.lifecycle.ContextListener;
 
 /**
  * @author Tom Bunting
@@ -41,19 +68,107 @@ import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
  */
 @Service("preservationManager")
 @Scope(ConfigurableBeanFactory.SCOPE_SINGLETON)
-public class PreservationManagerImpl implements PreservationManager {
+public class PreservationManagerImpl implements PreservationManager, ApplicationListener<ContextRefreshedEvent>,
+		ServletContextAware {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PreservationManagerImpl.class);
 
+	/** Delay before another attempt to resume jobs left queued, e.g. because their registry was not writable */
+	private static final long RESUME_RETRY_SECONDS = 60;
+
 	private final Set<PreservationJob> preservationJobs = Collections.synchronizedSet(new TreeSet<PreservationJob>());
 
+	private final PreservationScheduler scheduler = PreservationScheduler.fromSystemProperties();
+
+	private final ReadAfterWriteConfirmer confirmer = ReadAfterWriteConfirmer.fromSystemProperties();
+
+	private final CompressionPolicy compressionPolicy = CompressionPolicy.fromSystemProperties();
+
 	@Autowired
 	private DataSetRepository datasetRepo;
 
+	@Autowired
+	private BlobStore blobStore;
+
+	@Autowired
+	private PreservationJobStore jobStore;
+
+	@Autowired
+	private RegistryAuthRepository regAuthRepo;
+
+	@Autowired
+	private TextEncryptor textEncryptor;
+
+	private PreservationContext context;
+
+	private ServletContext servletContext;
+
+	private final AtomicBoolean resumeStarted = new AtomicBoolean();
+
+	/** Runs the resumption of unfinished jobs off the startup thread, as it authorises registries over the network */
+	private final ScheduledExecutorService resumer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "pa-preservation-resume");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	private PreservationManagerImpl() {
 		/* No public construction */
 	}
 
+	/**
+	 * Assembles the context shared by all preservation jobs once dependencies have been injected. Unfinished jobs are
+	 * not resumed until the application context has been refreshed, see
+	 * {@link #onApplicationEvent(ContextRefreshedEvent)}.
+	 */
+	@PostConstruct
+	public void init() {
+		context = new PreservationContext(datasetRepo, scheduler, confirmer, blobStore, jobStore, compressionPolicy);
+	}
+
+	/**
+	 * Starts resuming unfinished jobs, once only, when the application context has been refreshed.
+	 */
+	@Override
+	public void onApplicationEvent(final ContextRefreshedEvent event) {
+		if (resumeStarted.compareAndSet(false, true)) {
+			resumeUnfinishedJobs();
+		}
+	}
+
+	@Override
+	public void setServletContext(final ServletContext servletContext) {
+		this.servletContext = servletContext;
+	}
+
+	/**
+	 * Shuts down the resumption of unfinished jobs and the shared preservation scheduler when the application context
+	 * is closed.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		resumer.shutdownNow();
+		scheduler.shutdown();
+	}
+
+	/**
+	 * @return the scheduler on which all preservation jobs are run, e.g. for inspecting its queue-depth and
+	 *         active-worker gauges
+	 */
+	public PreservationScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * @return the confirmer used by all preservation jobs, e.g. for inspecting its confirmation latency distributions
+	 */
+	public ReadAfterWriteConfirmer getConfirmer() {
+		return confirmer;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -72,16 +187,47 @@ public class PreservationManagerImpl implements PreservationManager {
 	 */
 	@Override
 	public boolean preserve(final FormsBundle formsBundle, final Registry registry) throws PreservationException {
+		return preserve(formsBundle, registry, PreservationMode.FULL);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see PreservationManager#preserve(eu.scidipes.toolkits.palibrary.interfaces.FormsBundle,
+	 * info.digitalpreserve.interfaces.Registry, eu.scidipes.toolkits.palibrary.interfaces.PreservationMode)
+	 */
+	@Override
+	public boolean preserve(final FormsBundle formsBundle, final Registry registry, final PreservationMode mode)
+			throws PreservationException {
 
 		notNull(formsBundle, "The formsBundle must not be null");
 		notNull(registry, "The registry must not be null");
+		notNull(mode, "The mode must not be null");
 
 		try {
 			if (!registry.isWritable()) {
 				registry.authoriseForReadWrite();
 				LOG.trace("Registry '{}' tested as writable", registry);
 			}
-			return preservationJobs.add(PreservationJobImpl.newInstance(formsBundle, registry, datasetRepo));
+
+			synchronized (preservationJobs) {
+				/* Only one job per dataset may be held at a time: */
+				for (final PreservationJob job : preservationJobs) {
+					if (job.getDatasetName().equals(formsBundle.getDatasetName())) {
+						return false;
+					}
+				}
+
+				/* Any persisted job for the dataset that could not be resumed is superseded by this one: */
+				jobStore.abandonUnfinishedJobs(formsBundle.getDatasetName());
+				final PreservationJobRecord jobRecord = jobStore.createJob(formsBundle, registry, mode);
+				preservationJobs.add(PreservationJobImpl.newInstance(formsBundle, registry, context, jobRecord));
+			}
+
+			LOG.debug("Preservation scheduler: {} active workers, {} queued tasks, {} active jobs",
+					Integer.valueOf(scheduler.getActiveWorkers()), Integer.valueOf(scheduler.getQueueDepth()),
+					Integer.valueOf(scheduler.getActiveJobs()));
+			return true;
 		} catch (final RIException e) {
 			LOG.error(e.getMessage(), e);
 			throw new PreservationException(e.getCause());
@@ -109,9 +255,135 @@ public class PreservationManagerImpl implements PreservationManager {
 			if (jobToDelete == null) {
 				return false;
 			} else {
+				jobStore.deleteFinishedJobs(datasetName);
 				return preservationJobs.remove(jobToDelete);
 			}
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see PreservationManager#resumeUnfinishedJobs()
+	 */
+	@Override
+	public void resumeUnfinishedJobs() {
+		resumer.execute(new Runnable() {
+			@Override
+			public void run() {
+				resumeUnfinishedJobsNow();
+			}
+		});
+	}
+
+	private void retryResumeLater() {
+		LOG.debug("Retrying resumption of unfinished jobs in {}s", Long.valueOf(RESUME_RETRY_SECONDS));
+		resumer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				resumeUnfinishedJobsNow();
+			}
+		}, RESUME_RETRY_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Resumes each unfinished job that is not already running, provided the framework has been loaded (by
+	 * {@link ContextListener}) and the job's registry can be written to. If any job has to be left queued another
+	 * attempt is scheduled.
+	 */
+	private void resumeUnfinishedJobsNow() {
+		if (servletContext != null && !ContextListener.isFrameworkLoaded(servletContext)) {
+			LOG.info("Framework not yet loaded; unfinished jobs not resumed");
+			retryResumeLater();
+			return;
+		}
+
+		final List<PreservationJobRecord> unfinishedJobs;
+		try {
+			unfinishedJobs = jobStore.findUnfinishedJobs();
+		} catch (final RuntimeException e) {
+			LOG.error("Could not find unfinished jobs to resume", e);
+			retryResumeLater();
+			return;
+		}
+
+		boolean leftQueued = false;
+
+		for (final PreservationJobRecord jobRecord : unfinishedJobs) {
+			if (hasJob(jobRecord.getDatasetName())) {
+				continue;
+			}
+			try {
+				final FormsBundleImpl dataset = datasetRepo.findOne(jobRecord.getDatasetName());
+				if (dataset == null) {
+					LOG.warn("Dataset for {} no longer exists; marking job as failed", jobRecord);
+					jobStore.finishJob(jobRecord, PreservationJobState.FAILED);
+					continue;
+				}
+
+				final Registry registry = findWritableRegistry(jobRecord.getRegistryUID());
+				if (registry == null) {
+					LOG.warn("Registry for {} is not available for writing; job left queued", jobRecord);
+					leftQueued = true;
+					continue;
+				}
+
+				synchronized (preservationJobs) {
+					/* A new job for the dataset may have been started meanwhile, superseding this one: */
+					if (!hasJob(jobRecord.getDatasetName())) {
+						final PreservationJobRecord resumed = jobStore.requeueInterrupted(jobRecord);
+						preservationJobs.add(PreservationJobImpl.newInstance(dataset, registry, context, resumed));
+					}
+				}
+
+			} catch (final RuntimeException e) {
+				LOG.error("Could not resume " + jobRecord, e);
+				leftQueued = true;
+			}
+		}
+
+		if (leftQueued) {
+			retryResumeLater();
+		}
+	}
+
+	private boolean hasJob(final String datasetName) {
+		synchronized (preservationJobs) {
+			for (final PreservationJob job : preservationJobs) {
+				if (job.getDatasetName().equals(datasetName)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Finds an enabled registry by its UID and authorises it for writing, using any saved credentials
+	 * 
+	 * @return the writable registry, or null if it is not found or cannot be authorised
+	 */
+	private Registry findWritableRegistry(final String registryUID) {
+		for (final Registry reg : FrameworkWrapper.getEnabledRegistries()) {
+			if (registryUID.equals(reg.getLocationUID()) && reg.isEnabled()) {
+				try {
+					if (!reg.isWritable()) {
+						final RegistryAuth regAuth = regAuthRepo.findOne(registryUID);
+						if (regAuth != null) {
+							reg.setCredentialsProvider(new HTTPAuthCredentialsProvider(textEncryptor.decrypt(regAuth
+									.getPrincipal()), textEncryptor.decrypt(regAuth.getCredential())));
+						}
+						reg.authoriseForReadWrite();
+					}
+					return reg.isWritable() ? reg : null;
+
+				} catch (final RIException e) {
+					LOG.warn(e.getMessage(), e);
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
 }
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+import info.digitalpreserve.interfaces.Registry;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application-wide scheduler for preservation work. All preservation jobs share a single bounded pool of upload
+ * workers, and the number of workers that may be busy against any one registry at a time is further limited so that a
+ * single large dataset cannot monopolise the pool or flood a registry with concurrent uploads.
+ * <p>
+ * Jobs themselves are coordinated on a separate, small pool: a job's coordinator only waits for its items to complete
+ * and never performs uploads itself.
+ * <p>
+ * Limits are read from the following system properties, falling back to the stated defaults:
+ * <ul>
+ * <li>{@value #MAX_WORKERS_PROPERTY} - total number of upload workers (default {@value #DEFAULT_MAX_WORKERS})</li>
+ * <li>{@value #MAX_WORKERS_PER_REGISTRY_PROPERTY} - upload workers per registry (default
+ * {@value #DEFAULT_MAX_WORKERS_PER_REGISTRY})</li>
+ * <li>{@value #MAX_JOBS_PROPERTY} - number of jobs coordinated concurrently (default {@value #DEFAULT_MAX_JOBS})</li>
+ * </ul>
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class PreservationScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PreservationScheduler.class);
+
+	public static final String MAX_WORKERS_PROPERTY = "pa.preservation.maxWorkers";
+	public static final String MAX_WORKERS_PER_REGISTRY_PROPERTY = "pa.preservation.maxWorkersPerRegistry";
+	public static final String MAX_JOBS_PROPERTY = "pa.preservation.maxJobs";
+
+	public static final int DEFAULT_MAX_WORKERS = 8;
+	public static final int DEFAULT_MAX_WORKERS_PER_REGISTRY = 4;
+	public static final int DEFAULT_MAX_JOBS = 4;
+
+	/** Time allowed for running work to finish when the scheduler is shut down */
+	private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+	/**
+	 * Creates a new scheduler whose limits are taken from system properties, or the defaults where not set.
+	 *
+	 * @return a new scheduler
+	 */
+	public static PreservationScheduler fromSystemProperties() {
+		return new PreservationScheduler(Integer.getInteger(MAX_WORKERS_PROPERTY, DEFAULT_MAX_WORKERS).intValue(),
+				Integer.getInteger(MAX_WORKERS_PER_REGISTRY_PROPERTY, DEFAULT_MAX_WORKERS_PER_REGISTRY).intValue(),
+				Integer.getInteger(MAX_JOBS_PROPERTY, DEFAULT_MAX_JOBS).intValue());
+	}
+
+	private final ThreadPoolExecutor workers;
+
+	private final ThreadPoolExecutor coordinators;
+
+	private final ConcurrentMap<String, RegistryLane> lanes = new ConcurrentHashMap<>();
+
+	private final int maxWorkersPerRegistry;
+
+	/**
+	 * @param maxWorkers
+	 *            the total number of upload workers
+	 * @param maxWorkersPerRegistry
+	 *            the maximum number of upload workers that may be busy against a single registry
+	 * @param maxJobs
+	 *            the number of jobs that may be coordinated concurrently
+	 * @throws IllegalArgumentException
+	 *             if any of the limits are less than one
+	 */
+	public PreservationScheduler(final int maxWorkers, final int maxWorkersPerRegistry, final int maxJobs) {
+		isTrue(maxWorkers > 0, "maxWorkers must be at least one");
+		isTrue(maxWorkersPerRegistry > 0, "maxWorkersPerRegistry must be at least one");
+		isTrue(maxJobs > 0, "maxJobs must be at least one");
+
+		this.maxWorkersPerRegistry = maxWorkersPerRegistry;
+
+		workers = new ThreadPoolExecutor(maxWorkers, maxWorkers, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("pa-preservation-worker"));
+		workers.allowCoreThreadTimeOut(true);
+
+		coordinators = new ThreadPoolExecutor(maxJobs, maxJobs, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("pa-preservation-job"));
+		coordinators.allowCoreThreadTimeOut(true);
+
+		LOG.info("Preservation scheduler started with {} workers ({} per registry) and {} concurrent jobs",
+				Integer.valueOf(maxWorkers), Integer.valueOf(maxWorkersPerRegistry), Integer.valueOf(maxJobs));
+	}
+
+	/**
+	 * Returns an {@link Executor} which runs tasks on the shared worker pool, subject to the per-registry limit for the
+	 * passed registry.
+	 *
+	 * @param registry
+	 *            the registry that submitted tasks will preserve to
+	 * @return an executor for tasks preserving to <code>registry</code>
+	 */
+	public Executor executorFor(final Registry registry) {
+		notNull(registry, "The registry must not be null");
+
+		final String registryUID = registry.getLocationUID();
+		RegistryLane lane = lanes.get(registryUID);
+
+		if (lane == null) {
+			final RegistryLane newLane = new RegistryLane();
+			lane = lanes.putIfAbsent(registryUID, newLane);
+			if (lane == null) {
+				lane = newLane;
+			}
+		}
+		return lane;
+	}
+
+	/**
+	 * Starts coordination of a job. If the maximum number of jobs are already being coordinated, the job waits for a
+	 * free coordinator; items already submitted to the job continue to be processed in the meantime.
+	 *
+	 * @param job
+	 *            the job to coordinate
+	 */
+	public void startJob(final Runnable job) {
+		notNull(job, "The job must not be null");
+		coordinators.execute(job);
+	}
+
+	/**
+	 * @return the number of workers currently performing preservation work
+	 */
+	public int getActiveWorkers() {
+		return workers.getActiveCount();
+	}
+
+	/**
+	 * @param registryUID
+	 *            the location UID of a registry
+	 * @return the number of workers currently performing preservation work against the registry
+	 */
+	public int getActiveWorkers(final String registryUID) {
+		final RegistryLane lane = lanes.get(registryUID);
+		return lane == null ? 0 : lane.getRunning();
+	}
+
+	/**
+	 * @return the number of submitted tasks waiting for a worker, whether held back by a per-registry limit or queued on
+	 *         the shared pool
+	 */
+	public int getQueueDepth() {
+		int depth = workers.getQueue().size();
+		for (final RegistryLane lane : lanes.values()) {
+			depth += lane.getPending();
+		}
+		return depth;
+	}
+
+	/**
+	 * @param registryUID
+	 *            the location UID of a registry
+	 * @return the number of tasks for the registry held back by its concurrency limit
+	 */
+	public int getQueueDepth(final String registryUID) {
+		final RegistryLane lane = lanes.get(registryUID);
+		return lane == null ? 0 : lane.getPending();
+	}
+
+	/**
+	 * @return the number of jobs currently being coordinated
+	 */
+	public int getActiveJobs() {
+		return coordinators.getActiveCount();
+	}
+
+	/**
+	 * @return the number of jobs waiting for a free coordinator
+	 */
+	public int getQueuedJobs() {
+		return coordinators.getQueue().size();
+	}
+
+	/**
+	 * Stops accepting new work and waits a short time for running work to complete before interrupting it.
+	 */
+	public void shutdown() {
+		LOG.info("Shutting down preservation scheduler: {} active workers, {} queued tasks",
+				Integer.valueOf(getActiveWorkers()), Integer.valueOf(getQueueDepth()));
+
+		coordinators.shutdown();
+		workers.shutdown();
+
+		try {
+			if (!workers.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+				LOG.warn("Preservation workers did not finish within {}s; interrupting",
+						Long.valueOf(SHUTDOWN_GRACE_SECONDS));
+				workers.shutdownNow();
+			}
+		} catch (final InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			coordinators.shutdownNow();
+		}
+	}
+
+	/**
+	 * Holds back tasks for a single registry so that no more than {@link PreservationScheduler#maxWorkersPerRegistry}
+	 * of them are handed to the shared worker pool at once. Held-back tasks do not occupy a worker.
+	 */
+	private final class RegistryLane implements Executor {
+
+		/* Guarded by this */
+		private final Deque<Runnable> pending = new ArrayDeque<>();
+
+		/* Guarded by this */
+		private int running;
+
+		@Override
+		public void execute(final Runnable command) {
+			notNull(command, "The command must not be null");
+
+			if (workers.isShutdown()) {
+				throw new RejectedExecutionException("Preservation scheduler has been shut down");
+			}
+
+			synchronized (this) {
+				pending.add(command);
+			}
+			drain();
+		}
+
+		synchronized int getPending() {
+			return pending.size();
+		}
+
+		synchronized int getRunning() {
+			return running;
+		}
+
+		private void drain() {
+			while (true) {
+				final Runnable next;
+
+				synchronized (this) {
+					if (running >= maxWorkersPerRegistry || pending.isEmpty()) {
+						return;
+					}
+					next = pending.poll();
+					running++;
+				}
+
+				try {
+					workers.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								next.run();
+							} finally {
+								synchronized (RegistryLane.this) {
+									running--;
+								}
+								drain();
+							}
+						}
+					});
+				} catch (final RejectedExecutionException e) {
+					/* Put the task back where it was so that it is not lost: */
+					synchronized (this) {
+						running--;
+						pending.addFirst(next);
+					}
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates named daemon threads so that preservation threads are identifiable and never hold the JVM open.
+	 */
+	private static final class NamedThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		private final String prefix;
+
+		NamedThreadFactory(final String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, prefix + '-' + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -26,32 +26,45 @@ import info.digitalpreserve.interfaces.Registry;
 import info.digitalpreserve.interfaces.RegistryObject;
 import info.digitalpreserve.interfaces.Repository;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.zip.ZipEntry;
 
-import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Node;
 
 import eu.scidipes.common.framework.FrameworkWrapper;
 import eu.scidipes.common.framework.core.impl.CoreCurationPersistentIdentifier;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationStorageException;
 import eu.scidipes.toolkits.palibrary.impl.FormImpl;
 import eu.scidipes.toolkits.palibrary.impl.UploadManifest;
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
 import eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata;
 import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormFieldType;
 import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+import eu.scidipes.toolkits.palibrary.utils.DataHolderUtils;
+import eu.scidipes.toolkits.palibrary.utils.FingerprintUtils;
+import eu.scidipes.toolkits.palibrary.utils.FixityOutputStream;
 import eu.scidipes.toolkits.palibrary.utils.XMLUtils;
+import eu.scidipes.toolkits.palibrary.utils.zip.CompressionPolicy;
 import eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils;
-import eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils.ByteArrayZipEntry;
+import eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils.ZipEntryWriter;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+import eu.scidipes.toolkits.pawebapp.preservation.ReadAfterWriteConfirmer.Lookup;
 
 /**
  * Callable task to preserve a {@link Form} instance as a {@link Manifest} on a specified {@link Registry} instance,
@@ -65,11 +78,28 @@ class PreserveFormManifestTask implements Callable<PreservationJobItemResult<Pre
 	private static final Logger LOG = LoggerFactory.getLogger(PreserveFormManifestTask.class);
 
 	private final Form form;
+	private final PreservationJobItemRecord item;
 	private final Registry registry;
+	private final ReadAfterWriteConfirmer confirmer;
+	private final BlobStore blobStore;
+	private final PreservationJobStore jobStore;
+	private final CompressionPolicy compressionPolicy;
 
-	PreserveFormManifestTask(final Form form, final Registry registry) {
+	/* Fixity of the form's bytestream, computed as it is packaged or read for upload: */
+	private FixityOutputStream fixity;
+
+	/* Fixity of the zip uploaded for a packaged form, or null if the bytestream was uploaded as it is: */
+	private FixityOutputStream packageFixity;
+
+	PreserveFormManifestTask(final Form form, final PreservationJobItemRecord item, final Registry registry,
+			final PreservationContext context) {
 		this.form = form;
+		this.item = item;
 		this.registry = registry;
+		this.confirmer = context.getConfirmer();
+		this.blobStore = context.getBlobStore();
+		this.jobStore = context.getJobStore();
+		this.compressionPolicy = context.getCompressionPolicy();
 	}
 
 	@SuppressWarnings("boxing")
@@ -79,6 +109,8 @@ class PreserveFormManifestTask implements Callable<PreservationJobItemResult<Pre
 		LOG.trace("New PreserveFormManifestTask started in thread [{}] at [{}]", Thread.currentThread().getId(),
 				new Date().toString());
 		try {
+			fixity = null;
+			packageFixity = null;
 			final String riLocation;
 
 			final CurationPersistentIdentifier rilCpidToPreserve;
@@ -88,47 +120,29 @@ class PreserveFormManifestTask implements Callable<PreservationJobItemResult<Pre
 
 				LOG.trace("{} indicates a bytestream", form);
 
-				final Node xml = XMLUtils.formFieldsToMetadata(form.getFormFields());
-
-				final String b64BytesToPreserve;
+				final byte[] dataBytes;
 				final String fileNameToPreserve;
 				final String fileTypeToPreserve;
 
-				if (xml != null) {
+				if (XMLUtils.hasMetadata(form.getFormFields())) {
 					LOG.debug("Preparing: {} for preservation - flex fields found", form);
 
-					if (LOG.isTraceEnabled()) {
-						LOG.trace(XMLUtils.nodeToString(xml, true, false));
-					}
-
-					final byte[] mainFileBytes = Base64.decodeBase64(form.getDataHolder());
-					final byte[] metaFileBytes = XMLUtils.nodeToString(xml, true, false).getBytes();
-
 					final String mainFileName = form.getDataHolderMetadata().get(CoreFieldMetadata.FILE_NAME);
-					final String metaFileName = mainFileName + "_meta.xml";
-
-					final ZipEntry zipMain = new ZipEntry(mainFileName);
-					final ZipEntry zipMeta = new ZipEntry(metaFileName);
-
-					final Set<ByteArrayZipEntry> entries = new HashSet<>();
-					entries.add(new ByteArrayZipEntry(mainFileBytes, zipMain));
-					entries.add(new ByteArrayZipEntry(metaFileBytes, zipMeta));
 
 					/* Set the key preservation details from the zip: */
-					b64BytesToPreserve = ZipUtils.byteArrayZipEntriesToBase64(entries);
+					dataBytes = packageBytestream(mainFileName);
 					fileNameToPreserve = mainFileName + "_pa-packaged.zip";
 					fileTypeToPreserve = "application/zip";
 					rilCpidToPreserve = new CoreCurationPersistentIdentifier(form.getRILCPID().getUID() + "-Z");
 
 				} else {
 					/* Just set the key preservation details dreckly from the form: */
-					b64BytesToPreserve = form.getDataHolder();
+					dataBytes = readBytestream();
 					fileNameToPreserve = form.getDataHolderMetadata().get(FILE_NAME);
 					fileTypeToPreserve = form.getDataHolderMetadata().get(FILE_MIMETYPE);
 					rilCpidToPreserve = form.getRILCPID();
 				}
 
-				final byte[] dataBytes = Base64.decodeBase64(b64BytesToPreserve);
 				final String fileName = fileNameToPreserve;
 				final String fileType = fileTypeToPreserve;
 
@@ -172,10 +186,20 @@ class PreserveFormManifestTask implements Callable<PreservationJobItemResult<Pre
 
 			FrameworkWrapper.storeManifest(uploadManifest, registry);
 
-			/* TODO: Revisit: pause should not be necessary but without it the retrieval fails intermittently */
-			Thread.sleep(2000);
+			/* Once stored, the manifest must never be stored again, even if confirmation is interrupted: */
+			final CurationPersistentIdentifier manifestCpid = uploadManifest.getManifestCpid();
+			jobStore.markStored(item, manifestCpid.getUID());
+			if (fixity != null) {
+				jobStore.recordFixity(form, manifestCpid.getUID(), fixity, packageFixity);
+			}
 
-			final Manifest stored = FrameworkWrapper.getManifest(uploadManifest.getManifestCpid());
+			/* The registry is only eventually consistent, so poll until the new manifest can be read back: */
+			final Manifest stored = confirmer.confirmManifest("manifest " + manifestCpid, new Lookup<Manifest>() {
+				@Override
+				public Manifest lookup() throws Exception {
+					return FrameworkWrapper.getManifest(manifestCpid);
+				}
+			});
 
 			/* Set the preserved CPID on the form instance and set preserved flag: */
 			synchronized (form) {
@@ -183,6 +207,7 @@ class PreserveFormManifestTask implements Callable<PreservationJobItemResult<Pre
 					((FormImpl) form).setManifestCPID(stored.getManifestCpid());
 				}
 				((FormImpl) form).setPreserved(true);
+				((FormImpl) form).setPreservedFingerprint(FingerprintUtils.fingerprint(form));
 			}
 
 			return new PreservationJobItemResultImpl(form, stored);
@@ -195,4 +220,73 @@ class PreserveFormManifestTask implements Callable<PreservationJobItemResult<Pre
 		}
 	}
 
+	/**
+	 * Reads the form's bytestream for upload, computing its fixity in the same pass
+	 */
+	private byte[] readBytestream() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final InputStream in = DataHolderUtils.openBytestream(form, blobStore)) {
+			fixity = new FixityOutputStream(bytes);
+			IOUtils.copy(in, fixity);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Streams the form's bytestream and its flex field metadata into a zip archive in a temporary file, then reads the
+	 * archive back once for the upload repository (whose API only accepts a <code>byte[]</code>). Neither the
+	 * bytestream nor the metadata is held in memory before it has been packaged: the metadata is written straight into
+	 * its entry as XML, without building a DOM. The fixity of the bytestream is computed as it is copied into its
+	 * entry, since the archive's own digests change whenever the compression or entry timestamps do, and the fixity
+	 * of the archive as it is written. Already-compressed bytestreams are stored rather than deflated again.
+	 */
+	private byte[] packageBytestream(final String mainFileName) throws IOException {
+		final Path zipFile = Files.createTempFile("pa-package-", ".zip");
+		try {
+			try (final InputStream main = DataHolderUtils.openBytestream(form, blobStore)) {
+
+				final String metaFileName = mainFileName + "_meta.xml";
+
+				final ZipEntryWriter mainContent = ZipUtils.copyOf(main);
+
+				final Map<String, ZipEntryWriter> entries = new LinkedHashMap<>();
+				entries.put(mainFileName, new ZipEntryWriter() {
+					@Override
+					public void writeTo(final OutputStream out) throws IOException {
+						/* Not closed, as that would close the entry's stream: */
+						fixity = new FixityOutputStream(out);
+						mainContent.writeTo(fixity);
+					}
+				});
+				entries.put(metaFileName, new ZipEntryWriter() {
+					@Override
+					public void writeTo(final OutputStream out) throws IOException {
+						if (LOG.isTraceEnabled()) {
+							/* Serialise once, for both the trace log and the entry: */
+							final ByteArrayOutputStream meta = new ByteArrayOutputStream();
+							XMLUtils.writeMetadata(form.getFormFields(), meta);
+							LOG.trace(meta.toString("UTF-8"));
+							meta.writeTo(out);
+						} else {
+							XMLUtils.writeMetadata(form.getFormFields(), out);
+						}
+					}
+				});
+
+				final Map<String, String> mimeTypes = new HashMap<>();
+				mimeTypes.put(mainFileName, form.getDataHolderMetadata().get(FILE_MIMETYPE));
+				mimeTypes.put(metaFileName, "application/xml");
+
+				packageFixity = new FixityOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile)));
+				ZipUtils.writeZipEntries(entries, mimeTypes, compressionPolicy, packageFixity);
+			}
+
+			LOG.debug("Packaged {} into {} ({} bytes)", form, zipFile, Long.valueOf(Files.size(zipFile)));
+			return Files.readAllBytes(zipFile);
+
+		} finally {
+			Files.deleteIfExists(zipFile);
+		}
+	}
+
 }
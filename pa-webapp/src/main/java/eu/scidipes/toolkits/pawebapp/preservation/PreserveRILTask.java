@@ -16,6 +16,7 @@
  */
 package eu.scidipes.toolkits.pawebapp.preservation;
 
+import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
 import info.digitalpreserve.interfaces.Registry;
 import info.digitalpreserve.interfaces.RegistryObject;
 import info.digitalpreserve.interfaces.RepInfoLabel;
@@ -30,6 +31,9 @@ import eu.scidipes.toolkits.palibrary.exceptions.PreservationStorageException;
 import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
 import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+import eu.scidipes.toolkits.palibrary.utils.FingerprintUtils;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+import eu.scidipes.toolkits.pawebapp.preservation.ReadAfterWriteConfirmer.Lookup;
 
 /**
  * Callable task to preserve a {@link DatasetRIL} instance as a {@link RepInfoLabel} on a specified {@link Registry}
@@ -43,11 +47,18 @@ class PreserveRILTask implements Callable<PreservationJobItemResult<Preservable,
 	private static final Logger LOG = LoggerFactory.getLogger(PreserveRILTask.class);
 
 	private final DatasetRIL ril;
+	private final PreservationJobItemRecord item;
 	private final Registry registry;
+	private final ReadAfterWriteConfirmer confirmer;
+	private final PreservationJobStore jobStore;
 
-	PreserveRILTask(final DatasetRIL ril, final Registry registry) {
+	PreserveRILTask(final DatasetRIL ril, final PreservationJobItemRecord item, final Registry registry,
+			final PreservationContext context) {
 		this.ril = ril;
+		this.item = item;
 		this.registry = registry;
+		this.confirmer = context.getConfirmer();
+		this.jobStore = context.getJobStore();
 	}
 
 	@SuppressWarnings("boxing")
@@ -59,14 +70,22 @@ class PreserveRILTask implements Callable<PreservationJobItemResult<Preservable,
 		try {
 			FrameworkWrapper.storeRepInfoLabel(ril.getRil(), registry);
 
-			/* TODO: Revisit: pause should not be necessary but without it the retrieval fails intermittently */
-			Thread.sleep(2000);
+			/* Once stored, the RIL must never be stored again, even if confirmation is interrupted: */
+			final CurationPersistentIdentifier rilCpid = ril.getRil().getCpid();
+			jobStore.markStored(item, rilCpid.getUID());
 
-			final RepInfoLabel stored = FrameworkWrapper.getRepInfoLabel(ril.getRil().getCpid());
+			/* The registry is only eventually consistent, so poll until the new RIL can be read back: */
+			final RepInfoLabel stored = confirmer.confirmRIL("RIL " + rilCpid, new Lookup<RepInfoLabel>() {
+				@Override
+				public RepInfoLabel lookup() throws Exception {
+					return FrameworkWrapper.getRepInfoLabel(rilCpid);
+				}
+			});
 
 			synchronized (ril) {
 				ril.setPreserved(true);
 				ril.getRil().setVersion(stored.getVersion());
+				ril.setPreservedFingerprint(FingerprintUtils.fingerprint(ril));
 			}
 
 			LOG.debug("Preserved RIL: {} to registry: {}", ril, registry);
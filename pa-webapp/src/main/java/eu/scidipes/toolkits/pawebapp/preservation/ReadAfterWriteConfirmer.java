@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Confirms that an object just written to a registry can be read back. Registries are only eventually consistent, so
+ * the read is retried with exponential backoff until it succeeds or a deadline passes, rather than after a fixed pause.
+ * The time taken for each confirmation is recorded, so that the registry's real consistency window can be observed.
+ * <p>
+ * Timings are read from the following system properties, falling back to the stated defaults:
+ * <ul>
+ * <li>{@value #INITIAL_DELAY_PROPERTY} - delay before the first retry in ms (default
+ * {@value #DEFAULT_INITIAL_DELAY})</li>
+ * <li>{@value #MAX_DELAY_PROPERTY} - maximum delay between retries in ms (default {@value #DEFAULT_MAX_DELAY})</li>
+ * <li>{@value #TIMEOUT_PROPERTY} - time after which confirmation is abandoned in ms (default
+ * {@value #DEFAULT_TIMEOUT})</li>
+ * </ul>
+ *
+ * @author Tom Bunting
+ *
+ */
+public final class ReadAfterWriteConfirmer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReadAfterWriteConfirmer.class);
+
+	public static final String INITIAL_DELAY_PROPERTY = "pa.preservation.confirm.initialDelay";
+	public static final String MAX_DELAY_PROPERTY = "pa.preservation.confirm.maxDelay";
+	public static final String TIMEOUT_PROPERTY = "pa.preservation.confirm.timeout";
+
+	public static final long DEFAULT_INITIAL_DELAY = 50;
+	public static final long DEFAULT_MAX_DELAY = 2000;
+	public static final long DEFAULT_TIMEOUT = 60000;
+
+	/**
+	 * A read of a previously written object.
+	 *
+	 * @param <T>
+	 *            the type of object read
+	 */
+	public interface Lookup<T> {
+
+		/**
+		 * @return the object read, or <code>null</code> if it is not yet visible
+		 * @throws Exception
+		 *             if the read fails; treated as the object not yet being visible
+		 */
+		T lookup() throws Exception;
+	}
+
+	/**
+	 * Creates a new confirmer whose timings are taken from system properties, or the defaults where not set.
+	 *
+	 * @return a new confirmer
+	 */
+	public static ReadAfterWriteConfirmer fromSystemProperties() {
+		return new ReadAfterWriteConfirmer(Long.getLong(INITIAL_DELAY_PROPERTY, DEFAULT_INITIAL_DELAY).longValue(),
+				Long.getLong(MAX_DELAY_PROPERTY, DEFAULT_MAX_DELAY).longValue(), Long.getLong(TIMEOUT_PROPERTY,
+						DEFAULT_TIMEOUT).longValue());
+	}
+
+	private final long initialDelay;
+	private final long maxDelay;
+	private final long timeout;
+
+	private final LatencyHistogram manifestLatencies = new LatencyHistogram("Manifest confirmation");
+	private final LatencyHistogram rilLatencies = new LatencyHistogram("RIL confirmation");
+
+	/**
+	 * @param initialDelay
+	 *            delay before the first retry in ms
+	 * @param maxDelay
+	 *            maximum delay between retries in ms
+	 * @param timeout
+	 *            time after which confirmation is abandoned in ms
+	 * @throws IllegalArgumentException
+	 *             if the delays are not positive or the timeout is less than the initial delay
+	 */
+	public ReadAfterWriteConfirmer(final long initialDelay, final long maxDelay, final long timeout) {
+		isTrue(initialDelay > 0, "initialDelay must be positive");
+		isTrue(maxDelay >= initialDelay, "maxDelay must not be less than initialDelay");
+		isTrue(timeout >= initialDelay, "timeout must not be less than initialDelay");
+
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Reads back a manifest, recording the time taken in {@link #getManifestLatencies()}.
+	 *
+	 * @see #confirm(String, Lookup, LatencyHistogram)
+	 */
+	public <T> T confirmManifest(final String description, final Lookup<T> lookup) throws TimeoutException,
+			InterruptedException {
+		return confirm(description, lookup, manifestLatencies);
+	}
+
+	/**
+	 * Reads back a RIL, recording the time taken in {@link #getRILLatencies()}.
+	 *
+	 * @see #confirm(String, Lookup, LatencyHistogram)
+	 */
+	public <T> T confirmRIL(final String description, final Lookup<T> lookup) throws TimeoutException,
+			InterruptedException {
+		return confirm(description, lookup, rilLatencies);
+	}
+
+	/**
+	 * Repeatedly performs <code>lookup</code> until it returns an object, backing off exponentially between attempts.
+	 *
+	 * @param description
+	 *            description of the object being confirmed, for logging
+	 * @param lookup
+	 *            the read to perform
+	 * @param latencies
+	 *            histogram in which to record the time taken to confirm
+	 * @return the object read
+	 * @throws TimeoutException
+	 *             if the object could not be read before the timeout; the cause is set to the last exception thrown by
+	 *             <code>lookup</code>, if any
+	 * @throws InterruptedException
+	 *             if interrupted while waiting to retry
+	 */
+	public <T> T confirm(final String description, final Lookup<T> lookup, final LatencyHistogram latencies)
+			throws TimeoutException, InterruptedException {
+
+		notNull(lookup, "The lookup must not be null");
+		notNull(latencies, "The latencies must not be null");
+
+		final long start = System.currentTimeMillis();
+		final long deadline = start + timeout;
+
+		long delay = initialDelay;
+		int attempts = 0;
+		Exception lastFailure = null;
+
+		while (true) {
+			attempts++;
+			try {
+				final T result = lookup.lookup();
+
+				if (result != null) {
+					final long elapsed = System.currentTimeMillis() - start;
+					latencies.record(elapsed);
+					LOG.debug("Confirmed {} after {}ms ({} attempts)", description, Long.valueOf(elapsed),
+							Integer.valueOf(attempts));
+					return result;
+				}
+			} catch (final Exception e) {
+				LOG.trace("Lookup of {} failed on attempt {}: {}", description, Integer.valueOf(attempts),
+						e.getMessage());
+				lastFailure = e;
+			}
+
+			final long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				final TimeoutException timeoutException = new TimeoutException("Could not confirm " + description
+						+ " within " + timeout + "ms (" + attempts + " attempts)");
+				timeoutException.initCause(lastFailure);
+				throw timeoutException;
+			}
+
+			Thread.sleep(Math.min(delay, remaining));
+			delay = Math.min(delay * 2, maxDelay);
+		}
+	}
+
+	/**
+	 * @return the distribution of times taken to confirm manifests, across all jobs since this confirmer was created
+	 */
+	public LatencyHistogram getManifestLatencies() {
+		return manifestLatencies;
+	}
+
+	/**
+	 * @return the distribution of times taken to confirm RILs, across all jobs since this confirmer was created
+	 */
+	public LatencyHistogram getRILLatencies() {
+		return rilLatencies;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static eu.scidipes.toolkits.pawebapp.model.PreservationJobState.STORED;
+import info.digitalpreserve.interfaces.Manifest;
+import info.digitalpreserve.interfaces.RegistryObject;
+import info.digitalpreserve.interfaces.RepInfoLabel;
+
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.scidipes.common.framework.FrameworkWrapper;
+import eu.scidipes.common.framework.core.impl.CoreCurationPersistentIdentifier;
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationStorageException;
+import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+import eu.scidipes.toolkits.palibrary.utils.FingerprintUtils;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+import eu.scidipes.toolkits.pawebapp.preservation.ReadAfterWriteConfirmer.Lookup;
+
+/**
+ * Callable task for an item of a resumed job which had already been stored, and possibly confirmed, before the job
+ * was interrupted. Nothing is uploaded: the preserved object is just read back from the registry by its recorded CPID
+ * so that the item can be reported and its preserved state restored. An item which was stored but not confirmed is
+ * confirmed in the usual way, with retries, and then marked as done.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+class RestorePreservedItemTask implements Callable<PreservationJobItemResult<Preservable, RegistryObject>> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RestorePreservedItemTask.class);
+
+	private final PreservationJobItemRecord item;
+	private final Preservable preservable;
+	private final ReadAfterWriteConfirmer confirmer;
+	private final PreservationJobStore jobStore;
+
+	RestorePreservedItemTask(final PreservationJobItemRecord item, final Preservable preservable,
+			final PreservationContext context) {
+		this.item = item;
+		this.preservable = preservable;
+		this.confirmer = context.getConfirmer();
+		this.jobStore = context.getJobStore();
+	}
+
+	@Override
+	public PreservationJobItemResult<Preservable, RegistryObject> call() throws PreservationStorageException {
+
+		LOG.debug("{} was stored before the job was interrupted; restoring from registry", item);
+
+		final boolean unconfirmed = item.getState() == STORED;
+
+		try {
+			final CoreCurationPersistentIdentifier cpid = new CoreCurationPersistentIdentifier(item.getResultCPID());
+			final PreservationJobItemResult<Preservable, RegistryObject> result;
+
+			if (preservable instanceof FormImpl) {
+				final FormImpl form = (FormImpl) preservable;
+				final Lookup<Manifest> lookup = new Lookup<Manifest>() {
+					@Override
+					public Manifest lookup() throws Exception {
+						return FrameworkWrapper.getManifest(cpid);
+					}
+				};
+				final Manifest stored = unconfirmed ? confirmer.confirmManifest("manifest " + cpid, lookup) : lookup
+						.lookup();
+
+				synchronized (form) {
+					if (form.getManifestCPID() == null) {
+						form.setManifestCPID(stored.getManifestCpid());
+					}
+					form.setPreserved(true);
+					form.setPreservedFingerprint(FingerprintUtils.fingerprint(form));
+				}
+				result = new PreservationJobItemResultImpl(form, stored);
+
+			} else {
+				final DatasetRIL ril = (DatasetRIL) preservable;
+				final Lookup<RepInfoLabel> lookup = new Lookup<RepInfoLabel>() {
+					@Override
+					public RepInfoLabel lookup() throws Exception {
+						return FrameworkWrapper.getRepInfoLabel(cpid);
+					}
+				};
+				final RepInfoLabel stored = unconfirmed ? confirmer.confirmRIL("RIL " + cpid, lookup) : lookup.lookup();
+
+				synchronized (ril) {
+					ril.setPreserved(true);
+					ril.getRil().setVersion(stored.getVersion());
+					ril.setPreservedFingerprint(FingerprintUtils.fingerprint(ril));
+				}
+				result = new PreservationJobItemResultImpl(ril, stored);
+			}
+
+			if (unconfirmed) {
+				jobStore.markDone(item, item.getResultCPID());
+			}
+			return result;
+
+		} catch (final Exception e) {
+			if (unconfirmed) {
+				jobStore.markFailed(item, e);
+			}
+			throw new PreservationStorageException(e, preservable);
+		}
+	}
+
+}
@@ -33,6 +33,7 @@ import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.pawebapp.model.DataSetCompletedFormCount;
 import eu.scidipes.toolkits.pawebapp.model.FormCountByItemName;
+import eu.scidipes.toolkits.pawebapp.model.FormSummary;
 
 /**
  * Customised Spring Data JPA repository to supplement predefined queries from {@link JpaRepository}
@@ -70,16 +71,57 @@ public interface DataSetRepository extends JpaRepository<FormsBundleImpl, String
 			+ "GROUP BY f.groupOrder, f.group, f.name, f.displayName ORDER BY f.groupOrder, f.group, f.name")
 	Set<FormCountByItemName> findDistinctFormsByBundle(@Param("datasetName") String datasetName);
 
-	@Query("SELECT f FROM FormImpl f WHERE f.parentBundle.datasetName = :datasetName "
-			+ "ORDER BY f.groupOrder, f.group, f.name")
-	List<Form> findAllOrderByGrpItemName(@Param("datasetName") String datasetName);
+	/**
+	 * Produces a <code>List</code> of {@link FormSummary} projections of every form in a data set, for navigating
+	 * between items without loading the full form entities.
+	 *
+	 * @param datasetName
+	 * @return summaries of the data set's forms, ordered by group order, group and name
+	 */
+	@Query("SELECT NEW eu.scidipes.toolkits.pawebapp.model.FormSummary(f.formID, f.name, f.group, f.groupOrder, "
+			+ "f.itemFileName, m, f.preserved) FROM FormImpl f LEFT JOIN f.dataHolderMetadata m "
+			+ "ON KEY(m) = eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE "
+			+ "WHERE f.parentBundle.datasetName = :datasetName ORDER BY f.groupOrder, f.group, f.name, f.formID")
+	List<FormSummary> findSummariesOrderByGrpItemName(@Param("datasetName") String datasetName);
 
 	@Query("SELECT f FROM FormImpl f WHERE f.parentBundle.datasetName = :datasetName AND TRIM(f.name) = TRIM(:formName)")
 	Form findOneByName(@Param("datasetName") String datasetName, @Param("formName") String formName);
 
-	@Query("SELECT f FROM FormImpl f WHERE f.parentBundle.datasetName = :datasetName AND TRIM(f.name) = TRIM(:formName) "
-			+ "ORDER BY f.groupOrder, f.group, f.name")
-	List<Form> findAllByName(@Param("datasetName") String datasetName, @Param("formName") String formName);
+	/**
+	 * Produces a <code>List</code> of {@link FormSummary} projections of the forms in a data set with the given name,
+	 * for navigating between items without loading the full form entities.
+	 *
+	 * @param datasetName
+	 * @param formName
+	 * @return summaries of the matching forms, ordered by group order, group and name
+	 */
+	@Query("SELECT NEW eu.scidipes.toolkits.pawebapp.model.FormSummary(f.formID, f.name, f.group, f.groupOrder, "
+			+ "f.itemFileName, m, f.preserved) FROM FormImpl f LEFT JOIN f.dataHolderMetadata m "
+			+ "ON KEY(m) = eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE "
+			+ "WHERE f.parentBundle.datasetName = :datasetName AND TRIM(f.name) = TRIM(:formName) "
+			+ "ORDER BY f.groupOrder, f.group, f.name, f.formID")
+	List<FormSummary> findSummariesByName(@Param("datasetName") String datasetName,
+			@Param("formName") String formName);
+
+	/**
+	 * Produces a <code>List</code> of {@link FormSummary} projections, including their manifest CPID, of the forms in a
+	 * data set that have been added to a RIL and / or preserved.
+	 *
+	 * @param datasetName
+	 * @return summaries of the data set's forms which have a manifest CPID assigned
+	 */
+	@Query("SELECT NEW eu.scidipes.toolkits.pawebapp.model.FormSummary(f.formID, f.name, f.group, f.groupOrder, "
+			+ "f.itemFileName, m, f.preserved, f.manifestCPID) FROM FormImpl f LEFT JOIN f.dataHolderMetadata m "
+			+ "ON KEY(m) = eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE "
+			+ "WHERE f.parentBundle.datasetName = :datasetName AND f.manifestCPID IS NOT NULL")
+	List<FormSummary> findSummariesWithManifestCPID(@Param("datasetName") String datasetName);
+
+	@Query("SELECT fb.displayName FROM FormsBundleImpl fb WHERE fb.datasetName = :datasetName")
+	String findDisplayName(@Param("datasetName") String datasetName);
+
+	@Query("SELECT COUNT(f) FROM FormImpl f WHERE f.parentBundle.datasetName = :datasetName "
+			+ "AND TRIM(f.name) = TRIM(:formName)")
+	Long countFormsByName(@Param("datasetName") String datasetName, @Param("formName") String formName);
 
 	@Query("SELECT f FROM FormImpl f WHERE f.formID = :formID")
 	FormImpl findOneForm(@Param("formID") Integer formID);
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import eu.scidipes.toolkits.pawebapp.model.FormFixityRecord;
+
+/**
+ * Spring Data JPA repository for persisted {@link FormFixityRecord} instances
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public interface FormFixityRepository extends JpaRepository<FormFixityRecord, Integer> {
+
+	/**
+	 * @return the highest preservation version recorded for the form, or <code>null</code> if it has none
+	 */
+	@Query("SELECT MAX(f.version) FROM FormFixityRecord f WHERE f.formID = :formID")
+	Integer findLatestVersion(@Param("formID") Integer formID);
+
+}
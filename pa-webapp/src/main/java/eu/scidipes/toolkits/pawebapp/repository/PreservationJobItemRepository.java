@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobState;
+
+/**
+ * Spring Data JPA repository for persisted {@link PreservationJobItemRecord} instances. State changes are made with
+ * conditional bulk updates so that each one is a single, atomic compare-and-set against the database.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public interface PreservationJobItemRepository extends JpaRepository<PreservationJobItemRecord, Integer> {
+
+	/**
+	 * Claims an item for a worker by moving it from one state to another, incrementing its attempt count
+	 * 
+	 * @return the number of items claimed, i.e. 0 if the item was not in the <code>from</code> state
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE PreservationJobItemRecord i SET i.state = :to, i.attempts = i.attempts + 1 "
+			+ "WHERE i.itemID = :itemID AND i.state = :from")
+	@Transactional
+	int claim(@Param("itemID") Integer itemID, @Param("from") PreservationJobState from,
+			@Param("to") PreservationJobState to);
+
+	/**
+	 * Records the progress or outcome of a claimed item. A <code>null</code> result CPID leaves any CPID already
+	 * recorded for the item in place, so that it is known to have been stored even if it later fails.
+	 * 
+	 * @return the number of items updated, i.e. 0 if the item was not in one of the <code>from</code> states
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE PreservationJobItemRecord i SET i.state = :to, i.resultCPID = COALESCE(:resultCPID, i.resultCPID), "
+			+ "i.error = :error WHERE i.itemID = :itemID AND i.state IN :from")
+	@Transactional
+	int complete(@Param("itemID") Integer itemID, @Param("from") Collection<PreservationJobState> from,
+			@Param("to") PreservationJobState to, @Param("resultCPID") String resultCPID, @Param("error") String error);
+
+	/**
+	 * Moves all of a job's items in one state to another
+	 * 
+	 * @return the number of items updated
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE PreservationJobItemRecord i SET i.state = :to WHERE i.job.jobID = :jobID AND i.state = :from")
+	@Transactional
+	int updateAllInState(@Param("jobID") Integer jobID, @Param("from") PreservationJobState from,
+			@Param("to") PreservationJobState to);
+
+	/**
+	 * Moves those of a job's items in one state which have a recorded result CPID, i.e. which were stored in the
+	 * registry, to another
+	 * 
+	 * @return the number of items updated
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE PreservationJobItemRecord i SET i.state = :to WHERE i.job.jobID = :jobID AND i.state = :from "
+			+ "AND i.resultCPID IS NOT NULL")
+	@Transactional
+	int updateAllStoredInState(@Param("jobID") Integer jobID, @Param("from") PreservationJobState from,
+			@Param("to") PreservationJobState to);
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobRecord;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobState;
+
+/**
+ * Spring Data JPA repository for persisted {@link PreservationJobRecord} instances
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public interface PreservationJobRepository extends JpaRepository<PreservationJobRecord, Integer> {
+
+	@Query("SELECT j FROM PreservationJobRecord j WHERE j.state IN :states ORDER BY j.jobID")
+	List<PreservationJobRecord> findAllInStates(@Param("states") Collection<PreservationJobState> states);
+
+	@Query("SELECT j FROM PreservationJobRecord j WHERE j.datasetName = :datasetName AND j.state IN :states")
+	List<PreservationJobRecord> findAllByDatasetInStates(@Param("datasetName") String datasetName,
+			@Param("states") Collection<PreservationJobState> states);
+
+	/**
+	 * Moves a job to a new state
+	 * 
+	 * @return the number of jobs updated, i.e. 0 or 1
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE PreservationJobRecord j SET j.state = :to WHERE j.jobID = :jobID")
+	@Transactional
+	int updateState(@Param("jobID") Integer jobID, @Param("to") PreservationJobState to);
+
+}
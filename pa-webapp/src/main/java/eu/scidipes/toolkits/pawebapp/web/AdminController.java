@@ -33,10 +33,13 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import eu.scidipes.toolkits.palibrary.core.FormBundleManager;
 import eu.scidipes.toolkits.palibrary.core.SourceProcessorManager;
 import eu.scidipes.toolkits.palibrary.exceptions.PreservationException;
+import eu.scidipes.toolkits.palibrary.impl.AbstractFileSourceProcessor;
+import eu.scidipes.toolkits.palibrary.impl.BundleMetadata;
 import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.LibraryAPI;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationDatasourceProcessor;
+import eu.scidipes.toolkits.palibrary.interfaces.TemplateDiscoveryState;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
 
 /**
@@ -86,7 +89,7 @@ public class AdminController {
 		boolean success = false;
 
 		try {
-			final FormsBundle bundleToDelete = libraryAPI.getEmptyStructureForBundle(bundleName);
+			final BundleMetadata bundleToDelete = libraryAPI.getBundleMetadata(bundleName);
 
 			/* Attempt to delete the template source file first: */
 			final String processorName = bundleToDelete.getProcessorName();
@@ -103,7 +106,7 @@ public class AdminController {
 
 			if (source.delete()) {
 				LOG.info("Successfully deleted source file: {}", source);
-				success = libraryAPI.deleteBundle(bundleToDelete);
+				success = libraryAPI.deleteBundle(bundleName);
 			}
 
 		} catch (final PreservationException e) {
@@ -125,6 +128,8 @@ public class AdminController {
 	public String templates(final Model model) {
 		model.addAttribute("processorMap", SourceProcessorManager.INSTANCE.getProcessors());
 		model.addAttribute("bundles", FormBundleManager.getDiscoveredBundles());
+		model.addAttribute("templatesLoading",
+				Boolean.valueOf(FormBundleManager.getDiscoveryState() == TemplateDiscoveryState.LOADING));
 		return "/admin/templates";
 	}
 
@@ -149,8 +154,15 @@ public class AdminController {
 
 		try {
 			sourceFile.transferTo(destination);
-			final FormsBundle bundle = processor.sourceToBundle(destination);
-			((FormsBundleImpl) bundle).setTemplateSource(destination.getName());
+
+			final FormsBundle bundle;
+			if (processor instanceof AbstractFileSourceProcessor) {
+				/* Serialised with any reload of the same file by the template source watcher: */
+				bundle = ((AbstractFileSourceProcessor) processor).processSource(destination);
+			} else {
+				bundle = processor.sourceToBundle(destination);
+				((FormsBundleImpl) bundle).setTemplateSource(destination.getName());
+			}
 			FormBundleManager.addBundle(bundle);
 
 			LOG.info("Created new template bundle for processor: {}", processor.getName());
@@ -34,6 +34,7 @@ import eu.scidipes.toolkits.palibrary.exceptions.PreservationException;
 import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.LibraryAPI;
+import eu.scidipes.toolkits.palibrary.interfaces.TemplateDiscoveryState;
 import eu.scidipes.toolkits.pawebapp.model.DataSetCompletedFormCount;
 import eu.scidipes.toolkits.pawebapp.model.FormCountByItemName;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
@@ -77,6 +78,8 @@ public class DataSetController {
 	@RequestMapping
 	public String home(final Model model) {
 		model.addAttribute("availableBundles", libraryAPI.getAvailableFormsBundles());
+		model.addAttribute("templatesLoading",
+				Boolean.valueOf(libraryAPI.getTemplateDiscoveryState() == TemplateDiscoveryState.LOADING));
 		return "datasets/home";
 	}
 
@@ -138,16 +141,16 @@ public class DataSetController {
 	@RequestMapping("/{datasetName}")
 	public String showDataSet(@PathVariable final String datasetName, final Model model,
 			final RedirectAttributes redirectAttrs) {
-		final FormsBundle dataSet = datasetRepo.findOne(datasetName);
+		final String displayName = datasetRepo.findDisplayName(datasetName);
 
-		if (dataSet == null) {
+		if (displayName == null) {
 			redirectAttrs.addFlashAttribute("errorKey", "datasets.errors.notfound");
 			return "redirect:/datasets";
 		}
 
 		final Set<FormCountByItemName> formCounts = datasetRepo.findDistinctFormsByBundle(datasetName);
 		model.addAttribute("formCounts", formCounts);
-		model.addAttribute("dataSet", dataSet);
+		model.addAttribute("displayName", displayName);
 		model.addAttribute("datasetPath", "/datasets/" + datasetName);
 		return "datasets/details";
 	}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.web;
+
+import java.io.Serializable;
+
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.pawebapp.model.StagedUpload;
+
+/**
+ * The state of a data set item edit which is kept in the HTTP session between displaying and submitting the edit
+ * page: just enough to reload the {@link Form} on submission (its ID or, for a new item, its template name) and a
+ * reference to any file already staged for it, rather than the form itself.
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public final class ItemEditSession implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param form
+	 *            the existing form to be edited
+	 * @return a session for editing the passed form
+	 */
+	public static ItemEditSession edit(final Form form) {
+		return new ItemEditSession(SaveAction.EDIT, form.getParentBundle().getDatasetName(), form.getFormID(), null);
+	}
+
+	/**
+	 * @param datasetName
+	 *            the data set to add the new item to
+	 * @param templateName
+	 *            the name of the template form the new item is created from
+	 * @return a session for adding a new item
+	 */
+	public static ItemEditSession addNew(final String datasetName, final String templateName) {
+		return new ItemEditSession(SaveAction.ADD_NEW, datasetName, null, templateName);
+	}
+
+	private final String datasetName;
+
+	private final Integer formID;
+
+	private final SaveAction saveAction;
+
+	private StagedUpload stagedUpload;
+
+	private final String templateName;
+
+	private ItemEditSession(final SaveAction saveAction, final String datasetName, final Integer formID,
+			final String templateName) {
+		this.saveAction = saveAction;
+		this.datasetName = datasetName;
+		this.formID = formID;
+		this.templateName = templateName;
+	}
+
+	/**
+	 * Records an uploaded file as staged for this edit, so that it is kept if the page is redisplayed with errors.
+	 * Deliberately not a bean setter so that it can never be bound from request parameters.
+	 * 
+	 * @param upload
+	 *            the staged upload
+	 */
+	public void stage(final StagedUpload upload) {
+		this.stagedUpload = upload;
+	}
+
+	/**
+	 * @return the datasetName
+	 */
+	public String getDatasetName() {
+		return datasetName;
+	}
+
+	/**
+	 * @return the ID of the form being edited, or <code>null</code> when adding a new item
+	 */
+	public Integer getFormID() {
+		return formID;
+	}
+
+	/**
+	 * @return the saveAction
+	 */
+	public SaveAction getSaveAction() {
+		return saveAction;
+	}
+
+	/**
+	 * @return the upload staged for this edit, or <code>null</code> if none
+	 */
+	public StagedUpload getStagedUpload() {
+		return stagedUpload;
+	}
+
+	/**
+	 * @return the name of the template form when adding a new item, otherwise <code>null</code>
+	 */
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ItemEditSession [%s, %s, %s, %s]", saveAction, datasetName,
+				formID != null ? formID : templateName, stagedUpload);
+	}
+
+}
@@ -47,8 +47,7 @@ import eu.scidipes.toolkits.palibrary.impl.FormImpl;
 import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
 import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel;
 import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel.CoreRIType;
-import eu.scidipes.toolkits.palibrary.interfaces.Form;
-import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
+import eu.scidipes.toolkits.pawebapp.model.FormSummary;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
 
 /**
@@ -72,31 +71,29 @@ public class ItemGroupsController {
 	 * 
 	 * @param datasetName
 	 * @param rilCPID
-	 * @return a set of key (core RI name) value (set of forms) pairs
+	 * @return a set of key (core RI name) value (set of form summaries) pairs
 	 */
 	@ResponseBody
 	@RequestMapping("/rilmemberitems")
-	public Set<Entry<String, Set<Form>>> getRILMemberItems(@PathVariable final String datasetName, final String rilCPID) {
+	public Set<Entry<String, Set<FormSummary>>> getRILMemberItems(@PathVariable final String datasetName,
+			final String rilCPID) {
 
 		LOG.debug("Fetching ril member items for dataset: [{}] -  ril [{}]", datasetName, rilCPID);
 
-		final FormsBundle dataset = datasetRepo.findOne(datasetName);
 		final DatasetRIL dsRIL = datasetRepo.findOneRIL(rilCPID);
 
 		/*
-		 * Build a map of forms by their manifest CPID, if assigned. Presence of a manifest CPID indicates the form has
-		 * been added to a RIL and / or preserved:
+		 * Build a map of form summaries by their manifest CPID. Presence of a manifest CPID indicates the form has been
+		 * added to a RIL and / or preserved:
 		 */
-		final Map<String, Form> dsFormsByManCPID = new HashMap<>();
-		for (final Form form : dataset.getForms()) {
-			if (form.getManifestCPID() != null) {
-				LOG.trace("Adding form [{}] with manifest CPID [{}] to ril member items lookup table", form,
-						form.getManifestCPID());
-				dsFormsByManCPID.put(form.getManifestCPID().getUID(), form);
-			}
+		final Map<String, FormSummary> dsFormsByManCPID = new HashMap<>();
+		for (final FormSummary form : datasetRepo.findSummariesWithManifestCPID(datasetName)) {
+			LOG.trace("Adding form [{}] with manifest CPID [{}] to ril member items lookup table", form,
+					form.getManifestUID());
+			dsFormsByManCPID.put(form.getManifestUID(), form);
 		}
 
-		final Map<String, Set<Form>> rilMemberItems = new HashMap<>();
+		final Map<String, Set<FormSummary>> rilMemberItems = new HashMap<>();
 
 		final RepresentationInformation[] repInfo = dsRIL.getRil().getRepresentationInformationChildren();
 
@@ -110,7 +107,7 @@ public class ItemGroupsController {
 					final String coreRIType = CoreRIType.fromClass(coreRI.getClass()).toString();
 
 					if (!rilMemberItems.containsKey(coreRIType)) {
-						rilMemberItems.put(coreRIType, new HashSet<Form>());
+						rilMemberItems.put(coreRIType, new HashSet<FormSummary>());
 					}
 					rilMemberItems.get(coreRIType).add(dsFormsByManCPID.get(ri.getCpid().getUID()));
 				}
@@ -16,17 +16,14 @@
  */
 package eu.scidipes.toolkits.pawebapp.web;
 
-import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_MIMETYPE;
-import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_NAME;
-import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE;
 import static eu.scidipes.toolkits.palibrary.interfaces.FormFieldType.BYTESTREAM;
 import static eu.scidipes.toolkits.palibrary.interfaces.FormFieldType.URI;
 import static eu.scidipes.toolkits.pawebapp.web.SaveAction.ADD_NEW;
-import static eu.scidipes.toolkits.pawebapp.web.SaveAction.EDIT;
 import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
 import info.digitalpreserve.interfaces.RepInfoGroup;
 import info.digitalpreserve.interfaces.RepresentationInformation;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +31,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +41,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
+import org.springframework.web.HttpSessionRequiredException;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.MatrixVariable;
@@ -49,6 +49,7 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.SessionAttributes;
 import org.springframework.web.bind.support.SessionStatus;
@@ -60,11 +61,13 @@ import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
 import eu.scidipes.toolkits.palibrary.impl.FormImpl;
 import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
 import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel.CoreRIType;
+import eu.scidipes.toolkits.palibrary.interfaces.BlobStore;
 import eu.scidipes.toolkits.palibrary.interfaces.Form;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.LibraryAPI;
+import eu.scidipes.toolkits.pawebapp.model.FormSummary;
+import eu.scidipes.toolkits.pawebapp.model.StagedUpload;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
-import eu.scidipes.toolkits.pawebapp.util.Base64MultipartFileEditor;
 import eu.scidipes.toolkits.pawebapp.web.validation.FormValidator;
 
 /**
@@ -74,12 +77,15 @@ import eu.scidipes.toolkits.pawebapp.web.validation.FormValidator;
  * 
  */
 @Controller
-@SessionAttributes({ "form", "saveAction" })
+@SessionAttributes(ItemsController.ITEM_EDIT)
 @RequestMapping("/datasets/{datasetName}/items")
 public class ItemsController {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ItemsController.class);
 
+	/** Name of the session attribute holding the {@link ItemEditSession} */
+	static final String ITEM_EDIT = "itemEdit";
+
 	@Autowired
 	private DataSetRepository datasetRepo;
 
@@ -89,6 +95,9 @@ public class ItemsController {
 	@Autowired
 	private FormValidator formValidator;
 
+	@Autowired
+	private BlobStore blobStore;
+
 	/**
 	 * Configures the {@link WebDataBinder} instance provided by Spring
 	 * 
@@ -96,10 +105,12 @@ public class ItemsController {
 	 */
 	@InitBinder
 	public void initBinder(final WebDataBinder binder) {
-		binder.registerCustomEditor(String.class, new Base64MultipartFileEditor());
-
-		/* Prevent malicious attempts to bind certain fields */
-		binder.setDisallowedFields("formID", "name", "displayName", "introText", "group", "groupOrder");
+		/*
+		 * Prevent malicious attempts to bind certain fields. The data holder is set by saveItem instead, so that a form
+		 * can never be pointed at stored content that was not uploaded for it:
+		 */
+		binder.setDisallowedFields("formID", "name", "displayName", "introText", "group", "groupOrder", "dataHolder",
+				"dataHolderMetadata*");
 	}
 
 	@ModelAttribute("datasetPath")
@@ -113,6 +124,48 @@ public class ItemsController {
 		return dataset.getRils();
 	}
 
+	/**
+	 * Reloads the form being edited when an edit is submitted, from the form ID or template name held in the user's
+	 * {@link ItemEditSession}, so that the form itself need not be kept in the session between requests. Any file
+	 * already staged for the edit is re-applied to it before the request is bound.
+	 * 
+	 * @param request
+	 * @param model
+	 * @return the form to bind the submission to, or <code>null</code> if this is not a submission
+	 * @throws HttpSessionRequiredException
+	 *             if an edit is submitted without an {@link ItemEditSession}, e.g. because the session has expired
+	 * @throws PreservationException
+	 *             if a new item's template form cannot be found
+	 */
+	@ModelAttribute("form")
+	public Form getSubmittedForm(final HttpServletRequest request, final Model model)
+			throws HttpSessionRequiredException, PreservationException {
+		if (!RequestMethod.POST.name().equals(request.getMethod())) {
+			return null;
+		}
+
+		final ItemEditSession editSession = (ItemEditSession) model.asMap().get(ITEM_EDIT);
+		if (editSession == null) {
+			throw new HttpSessionRequiredException("Expected session attribute '" + ITEM_EDIT + "'");
+		}
+
+		final FormImpl form;
+		if (editSession.getSaveAction() == ADD_NEW) {
+			final FormsBundle dataset = datasetRepo.findOne(editSession.getDatasetName());
+			form = FormImpl.copy(libraryAPI.getTemplateForm(dataset.getBundleName(), editSession.getTemplateName()),
+					dataset);
+		} else {
+			form = datasetRepo.findOneForm(editSession.getFormID());
+		}
+
+		if (editSession.getStagedUpload() != null) {
+			editSession.getStagedUpload().applyTo(form);
+		}
+
+		LOG.debug("Reloaded form: {} for {}", form, editSession);
+		return form;
+	}
+
 	@RequestMapping("/{formID}/delete")
 	public String deleteItem(@PathVariable final String datasetName, @PathVariable final Integer formID,
 			final RedirectAttributes redirectAttrs) {
@@ -121,10 +174,10 @@ public class ItemsController {
 		final FormImpl form = datasetRepo.findOneForm(formID);
 		final Form currentForm = dataset.getForms().get(dataset.getForms().indexOf(form));
 
-		final List<Form> formsByName = datasetRepo.findAllByName(datasetName, form.getName());
+		final long formsByName = datasetRepo.countFormsByName(datasetName, form.getName()).longValue();
 
 		/* Reset rather than delete if this is the only form item with this name */
-		if (formsByName.size() > 1) {
+		if (formsByName > 1) {
 			LOG.debug("Deletion of form: {} was {}", form, dataset.deleteForm(currentForm) ? "successful"
 					: "unsuccessful");
 		} else {
@@ -146,21 +199,15 @@ public class ItemsController {
 
 		final FormsBundle dataset = datasetRepo.findOne(datasetName);
 
-		/* Get a new 'blank' template from the LibraryAPI */
+		/* Create a new 'blank' form from the template in the LibraryAPI */
 		try {
-			final FormsBundle emptyBundle = libraryAPI.getEmptyStructureForBundle(dataset.getBundleName());
+			final Form templateForm = libraryAPI.getTemplateForm(dataset.getBundleName(), formName);
+			final Form newForm = FormImpl.copy(templateForm, dataset);
 
-			for (final Form templateForm : emptyBundle.getForms()) {
+			model.addAttribute("form", newForm);
+			model.addAttribute(ITEM_EDIT, ItemEditSession.addNew(datasetName, formName));
+			return "datasets/items/edit";
 
-				if (formName.equals(templateForm.getName())) {
-					final Form newForm = FormImpl.copy((FormImpl) templateForm, dataset);
-
-					model.addAttribute("form", newForm);
-					model.addAttribute("saveAction", ADD_NEW);
-					return "datasets/items/edit";
-				}
-
-			}
 		} catch (final PreservationException e) {
 			LOG.error(e.getMessage(), e);
 		}
@@ -181,9 +228,9 @@ public class ItemsController {
 	@RequestMapping(value = "/edit", method = RequestMethod.GET)
 	public String editItemsByName(@PathVariable final String datasetName, @MatrixVariable("fn") final String formName,
 			final Model model, final RedirectAttributes redirectAttrs) {
-		final List<Form> forms = datasetRepo.findAllByName(datasetName, formName);
+		final List<FormSummary> forms = datasetRepo.findSummariesByName(datasetName, formName);
 		model.addAttribute("formName", formName);
-		return editItemHelper(forms, forms.get(0), model, redirectAttrs);
+		return editItemHelper(forms, datasetRepo.findOneForm(forms.get(0).getFormID()), model, redirectAttrs);
 	}
 
 	/**
@@ -203,26 +250,26 @@ public class ItemsController {
 			final Model model, final RedirectAttributes redirectAttrs) {
 
 		final Form form = datasetRepo.findOneForm(Integer.valueOf(formID));
-		final List<Form> formSubset;
+		final List<FormSummary> formSubset;
 
 		if (StringUtils.isEmpty(formName)) {
 			/* No filtering of list by formName */
-			formSubset = datasetRepo.findAllOrderByGrpItemName(datasetName);
+			formSubset = datasetRepo.findSummariesOrderByGrpItemName(datasetName);
 		} else {
 			model.addAttribute("formName", formName);
-			formSubset = datasetRepo.findAllByName(datasetName, formName);
+			formSubset = datasetRepo.findSummariesByName(datasetName, formName);
 		}
 
 		return editItemHelper(formSubset, form, model, redirectAttrs);
 	}
 
-	public String editItemHelper(final List<Form> formSubset, final Form form, final Model model,
+	public String editItemHelper(final List<FormSummary> formSubset, final Form form, final Model model,
 			final RedirectAttributes redirectAttrs) {
-		final ListIterator<Form> formIterator = formSubset.listIterator();
+		final ListIterator<FormSummary> formIterator = formSubset.listIterator();
 
 		while (formIterator.hasNext()) {
-			final Form theForm = formIterator.next();
-			if (theForm.equals(form)) {
+			final FormSummary theForm = formIterator.next();
+			if (theForm.getFormID().equals(form.getFormID())) {
 				/* Jump back: */
 				formIterator.previous();
 				if (formIterator.hasPrevious()) {
@@ -237,7 +284,7 @@ public class ItemsController {
 				}
 			}
 		}
-		model.addAttribute("saveAction", EDIT);
+		model.addAttribute(ITEM_EDIT, ItemEditSession.edit(form));
 
 		final CurationPersistentIdentifier manifestCPID = form.getManifestCPID();
 		final Map<DatasetRIL, Set<CoreRIType>> rilMembership = new HashMap<>();
@@ -274,11 +321,32 @@ public class ItemsController {
 	}
 
 	@RequestMapping(value = { "/edit", "/{formID}/edit", "/new" }, method = RequestMethod.POST)
-	public String saveItem(@ModelAttribute final SaveAction saveAction, @ModelAttribute final Form form,
-			final BindingResult result, final SessionStatus status, final RedirectAttributes redirectAttrs,
-			@RequestPart(value = "dataHolder", required = false) final MultipartFile dataFile,
+	public String saveItem(@ModelAttribute final Form form, final BindingResult result,
+			@ModelAttribute(ITEM_EDIT) final ItemEditSession editSession, final SessionStatus status,
+			final RedirectAttributes redirectAttrs,
+			@RequestPart(value = "dataFile", required = false) final MultipartFile dataFile,
+			@RequestParam(value = "dataHolder", required = false) final String dataHolderURI,
 			@MatrixVariable(value = "fn", required = false, pathVar = "datasetName") final String formName) {
 
+		/* Only a URI may be taken from the request; a bytestream's data holder is the stored or staged upload: */
+		if (form.getDataHolderType() == URI && dataHolderURI != null) {
+			((FormImpl) form).setDataHolder(dataHolderURI);
+		}
+
+		/* Stream any newly uploaded file into the blob store so that the form refers to it before validation: */
+		if (form.getDataHolderType() == BYTESTREAM && dataFile != null && !dataFile.isEmpty()) {
+			try {
+				final StagedUpload upload = StagedUpload.stage(dataFile, blobStore);
+				LOG.debug("Staged incoming dataFile: {}", upload);
+				editSession.stage(upload);
+				upload.applyTo((FormImpl) form);
+			} catch (final IOException e) {
+				LOG.error(e.getMessage(), e);
+				result.rejectValue("dataHolder", FormValidator.UPLOAD_FAILED_ERR_CODE);
+				return "datasets/items/edit";
+			}
+		}
+
 		formValidator.validate(form, result);
 		if (result.hasErrors()) {
 			boolean fixErrors = true;
@@ -304,20 +372,14 @@ public class ItemsController {
 			}
 		}
 
-		/* Ensure that the dataHolder field is not overwritten when its an empty upload (i.e. re-save) */
-		if (form.getDataHolderType() == BYTESTREAM && dataFile != null && !dataFile.isEmpty()) {
-			LOG.debug("incoming dataFile: {}", dataFile);
-			form.getDataHolderMetadata().put(FILE_NAME, dataFile.getOriginalFilename());
-			form.getDataHolderMetadata().put(FILE_SIZE, String.valueOf(dataFile.getSize()));
-			form.getDataHolderMetadata().put(FILE_MIMETYPE, dataFile.getContentType());
-		} else if (form.getDataHolderType() == URI && !StringUtils.isEmpty(form.getDataHolder())) {
+		if (form.getDataHolderType() == URI && !StringUtils.isEmpty(form.getDataHolder())) {
 			LOG.debug("incoming dataHolder: {}", form.getDataHolder());
 			form.getDataHolderMetadata().clear();
 		}
 
 		final FormsBundleImpl dataset = datasetRepo.findOne(form.getParentBundle().getDatasetName());
 
-		if (saveAction == ADD_NEW) {
+		if (editSession.getSaveAction() == ADD_NEW) {
 			dataset.addForm(form);
 		} else {
 			dataset.setForm(form);
@@ -17,12 +17,16 @@
 package eu.scidipes.toolkits.pawebapp.web;
 
 import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import info.digitalpreserve.interfaces.Registry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -39,7 +43,11 @@ import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
 import eu.scidipes.toolkits.palibrary.interfaces.FormsBundle;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationJob;
 import eu.scidipes.toolkits.palibrary.interfaces.PreservationManager;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationMode;
 import eu.scidipes.toolkits.pawebapp.model.PreservationJobDTO;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobEventBatch;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobEventLog;
+import eu.scidipes.toolkits.pawebapp.preservation.ObservablePreservationJob;
 import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
 
 /**
@@ -54,6 +62,23 @@ public class PreservationController {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PreservationController.class);
 
+	/**
+	 * Longest time a request for job events is held open waiting for new events. Kept below common proxy and browser
+	 * idle timeouts; the client simply asks again. Without asynchronous request support a waiting request occupies a
+	 * container worker thread for all of this time, so the number held open at once is capped by
+	 * {@link #MAX_JOB_EVENTS_WAITERS}.
+	 */
+	private static final long JOB_EVENTS_TIMEOUT_SECONDS = 25;
+
+	/**
+	 * Most requests for job events that may be held open at once, i.e. the most worker threads that open job monitors
+	 * may tie up, set by the system property <code>pa.preservation.maxEventWaiters</code>. Defaults to 8.
+	 */
+	private static final int MAX_JOB_EVENTS_WAITERS = Math.max(1,
+			Integer.getInteger("pa.preservation.maxEventWaiters", 8).intValue());
+
+	private final Semaphore jobEventsWaiters = new Semaphore(MAX_JOB_EVENTS_WAITERS);
+
 	@Autowired
 	private PreservationManager preservationManager;
 
@@ -90,6 +115,7 @@ public class PreservationController {
 
 	@RequestMapping(value = "/preserve", method = RequestMethod.POST)
 	public String preserve(@RequestParam final String datasetName, @RequestParam final String registry,
+			@RequestParam(value = "mode", defaultValue = "FULL") final PreservationMode mode,
 			final RedirectAttributes redirectAttrs, final Model model) {
 
 		final FormsBundleImpl dataset = datasetRepo.findOne(datasetName);
@@ -98,7 +124,7 @@ public class PreservationController {
 
 			if (registry.equals(reg.getLocationUID())) {
 				try {
-					if (!preservationManager.preserve(dataset, reg)) {
+					if (!preservationManager.preserve(dataset, reg, mode)) {
 						throw new PreservationException("Preservation job could not be started");
 					}
 				} catch (final PreservationException e) {
@@ -117,14 +143,77 @@ public class PreservationController {
 	@RequestMapping("/jobdetails")
 	@ResponseBody
 	public PreservationJob jobDetails(@RequestParam final String datasetName) {
+		final PreservationJob job = findJob(datasetName);
+
+		if (job instanceof ObservablePreservationJob) {
+			return PreservationJobDTO.wrapJob(job, ((ObservablePreservationJob) job).getEventLog());
+		}
+		return PreservationJobDTO.wrapJob(job);
+	}
+
+	/**
+	 * Long-poll for the events of a preservation job after the sequence number <code>since</code>, as returned by
+	 * {@link #jobDetails(String)} or a previous call. The request is held open until there are new events, the job
+	 * finishes, or {@value #JOB_EVENTS_TIMEOUT_SECONDS} seconds pass. If <code>jobID</code> does not match the current
+	 * job for the dataset (which has been preserved again) all of the current job's events are returned.
+	 * <p>
+	 * If {@link #MAX_JOB_EVENTS_WAITERS} requests are already waiting, any new events are returned at once, or if
+	 * there are none the request is refused with 503 Service Unavailable for the client to retry after a delay. If
+	 * there is no job publishing events for the dataset the response is 404 Not Found, and the client stops polling.
+	 * 
+	 * @param datasetName
+	 * @param since
+	 * @param jobID
+	 * @return the new events, if any
+	 * @throws InterruptedException
+	 */
+	@RequestMapping("/jobevents")
+	public ResponseEntity<PreservationJobEventBatch> jobEvents(@RequestParam final String datasetName,
+			@RequestParam(value = "since", defaultValue = "0") final int since,
+			@RequestParam(value = "jobID", required = false) final Integer jobID) throws InterruptedException {
+
+		final PreservationJob job = lookupJob(datasetName);
+		if (!(job instanceof ObservablePreservationJob)) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
 
+		final PreservationJobEventLog eventLog = ((ObservablePreservationJob) job).getEventLog();
+		final boolean sameJob = jobID == null || jobID.equals(eventLog.getJobID());
+		final int from = sameJob ? since : 0;
+
+		if (!jobEventsWaiters.tryAcquire()) {
+			final PreservationJobEventBatch batch = eventLog.await(from, 0, TimeUnit.SECONDS);
+			if (batch.getEvents().isEmpty() && !batch.isFinished() && sameJob) {
+				LOG.debug("{} requests for job events already waiting; refusing another",
+						Integer.valueOf(MAX_JOB_EVENTS_WAITERS));
+				return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+			}
+			return new ResponseEntity<>(batch, HttpStatus.OK);
+		}
+
+		try {
+			return new ResponseEntity<>(eventLog.await(from, JOB_EVENTS_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+					HttpStatus.OK);
+		} finally {
+			jobEventsWaiters.release();
+		}
+	}
+
+	private PreservationJob findJob(final String datasetName) {
+		final PreservationJob job = lookupJob(datasetName);
+		if (job == null) {
+			throw new IllegalArgumentException("No preservation job found for that dataset");
+		}
+		return job;
+	}
+
+	private PreservationJob lookupJob(final String datasetName) {
 		for (final PreservationJob job : preservationManager.getPreservationJobs()) {
 			if (job.getDatasetName().equals(datasetName)) {
-				return PreservationJobDTO.wrapJob(job);
+				return job;
 			}
 		}
-
-		throw new IllegalArgumentException("No preservation job found for that dataset");
+		return null;
 	}
 
 	@RequestMapping("/jobs/{datasetName}/delete")
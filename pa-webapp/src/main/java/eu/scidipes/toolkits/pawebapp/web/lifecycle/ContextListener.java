@@ -22,6 +22,7 @@ import info.digitalpreserve.interfaces.Registry;
 import java.io.InputStream;
 import java.util.Properties;
 
+import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
@@ -38,6 +39,17 @@ public class ContextListener implements ServletContextListener {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ContextListener.class);
 
+	/** Name of the servlet context attribute set once the framework has been loaded and its registries authorised */
+	public static final String FRAMEWORK_LOADED = "frameworkLoaded";
+
+	/**
+	 * @param servletContext
+	 * @return true if {@link #contextInitialized(ServletContextEvent)} has loaded the framework in the passed context
+	 */
+	public static boolean isFrameworkLoaded(final ServletContext servletContext) {
+		return Boolean.TRUE.equals(servletContext.getAttribute(FRAMEWORK_LOADED));
+	}
+
 	/**
 	 * @see ServletContextListener#contextInitialized(ServletContextEvent)
 	 */
@@ -56,6 +68,7 @@ public class ContextListener implements ServletContextListener {
 				LOG.warn(e.getMessage(), e);
 			}
 		}
+		sce.getServletContext().setAttribute(FRAMEWORK_LOADED, Boolean.TRUE);
 
 		String version = "Version number unavailable";
 
@@ -78,6 +91,7 @@ public class ContextListener implements ServletContextListener {
 	 */
 	@Override
 	public void contextDestroyed(final ServletContextEvent sce) {
+		sce.getServletContext().removeAttribute(FRAMEWORK_LOADED);
 		FrameworkWrapper.shutdown();
 	}
 
@@ -16,6 +16,7 @@
  */
 package eu.scidipes.toolkits.pawebapp.web.validation;
 
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE;
 import static eu.scidipes.toolkits.palibrary.interfaces.FormFieldType.BYTESTREAM;
 import static eu.scidipes.toolkits.palibrary.interfaces.FormFieldType.URI;
 import static org.springframework.validation.ValidationUtils.rejectIfEmptyOrWhitespace;
@@ -55,6 +56,7 @@ public class FormValidator implements Validator {
 	public static final String INVALID_URI_ERR_CODE = "validation.errors.form.invaliduri";
 	public static final String MAX_LENGTH_URI_ERR_CODE = "validation.errors.form.maxlengthuri";
 	public static final String MAX_UPLOAD_SIZE_ERR_CODE = "validation.errors.form.maxuploadsize";
+	public static final String UPLOAD_FAILED_ERR_CODE = "validation.errors.form.uploadfailed";
 
 	public static final int URL_MAX_LENGTH = 2000;
 
@@ -126,7 +128,8 @@ public class FormValidator implements Validator {
 				}
 
 				/* Check the size does not exceed max (most likely caught before validation) */
-				if (dataHolder != null && dataHolder.length() > maxUploadSize.longValue()) {
+				final String fileSize = form.getDataHolderMetadata().get(FILE_SIZE);
+				if (fileSize != null && Long.parseLong(fileSize) > maxUploadSize.longValue()) {
 					errors.rejectValue(DATA_HOLDER_FIELD, MAX_UPLOAD_SIZE_ERR_CODE);
 					return;
 				}
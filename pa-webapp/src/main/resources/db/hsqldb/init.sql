@@ -2,6 +2,9 @@
 -- # HyperSQL DataBase. For development use only!
 -- # Author Tom Bunting
 
+DROP TABLE form_fixity IF EXISTS;
+DROP TABLE preservation_job_item IF EXISTS;
+DROP TABLE preservation_job IF EXISTS;
 DROP TABLE user_role IF EXISTS;
 DROP TABLE users IF EXISTS;
 DROP TABLE roles IF EXISTS;
@@ -26,6 +29,7 @@ CREATE TABLE dataset_ril (
 	ril_name			VARCHAR(128) NOT NULL,
 	ril					VARCHAR(4096) NOT NULL, -- persisted serialized RIL in XML form
 	preserved			BOOLEAN DEFAULT FALSE NOT NULL,
+	preserved_fingerprint	VARCHAR(64) NULL, -- content fingerprint as at last successful preservation
 	CONSTRAINT dataset_rilname UNIQUE (dataset_name, ril_name),
 	CONSTRAINT fk_dataset_ril_dataset FOREIGN KEY (dataset_name) REFERENCES form_bundle (dataset_name)
 );
@@ -40,11 +44,12 @@ CREATE TABLE form (
 	display_name 		VARCHAR(128) NOT NULL,
 	item_file_name		VARCHAR(128) NULL,
 	intro_text			VARCHAR(512),
-	data_holder			VARCHAR(20971520), -- 20MB max
+	data_holder			VARCHAR(2048), -- URL or blob store reference
 	data_holder_type	VARCHAR(64) NOT NULL,
 	ril_cpid			VARCHAR(128) NOT NULL,
 	manifest_cpid		VARCHAR(128) NULL,
 	preserved			BOOLEAN DEFAULT FALSE NOT NULL,
+	preserved_fingerprint	VARCHAR(64) NULL, -- content fingerprint as at last successful preservation
 	CONSTRAINT fk_form_form_bundle FOREIGN KEY (dataset_name) REFERENCES form_bundle (dataset_name),
 	CONSTRAINT form_unique UNIQUE (dataset_name, form_name, item_file_name)
 );
@@ -84,6 +89,43 @@ CREATE TABLE registry_auth (
 	ts 				TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE TABLE preservation_job (
+	job_id			INTEGER IDENTITY,
+	dataset_name	VARCHAR(32) NOT NULL,
+	registry_uid	VARCHAR(32) NOT NULL,
+	state			VARCHAR(16) NOT NULL, -- QUEUED, RUNNING, DONE or FAILED
+	mode			VARCHAR(16) NOT NULL, -- FULL or INCREMENTAL
+	created			TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE preservation_job_item (
+	item_id			INTEGER IDENTITY,
+	job_id			INTEGER NOT NULL,
+	item_type		VARCHAR(16) NOT NULL, -- FORM or RIL
+	item_key		VARCHAR(128) NOT NULL, -- form ID or RIL CPID
+	state			VARCHAR(16) NOT NULL, -- QUEUED, RUNNING, STORED, DONE or FAILED
+	attempts		INTEGER DEFAULT 0 NOT NULL,
+	result_cpid		VARCHAR(128) NULL, -- CPID of the manifest or RIL once stored in the registry
+	error			VARCHAR(1024) NULL,
+	CONSTRAINT fk_preservation_job_item_job FOREIGN KEY (job_id) REFERENCES preservation_job (job_id)
+);
+
+CREATE TABLE form_fixity (
+	fixity_id		INTEGER IDENTITY,
+	form_id			INTEGER NOT NULL,
+	version			INTEGER NOT NULL, -- preservation version of the form, from 1
+	manifest_cpid	VARCHAR(128) NOT NULL,
+	sha256			CHAR(64) NOT NULL,
+	md5				CHAR(32) NOT NULL,
+	size			BIGINT NOT NULL, -- bytestream size in bytes
+	package_sha256	CHAR(64) NULL, -- fixity of the zip uploaded for a packaged form
+	package_md5		CHAR(32) NULL,
+	package_size	BIGINT NULL,
+	created			TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	CONSTRAINT fk_form_fixity_form FOREIGN KEY (form_id) REFERENCES form (form_id) ON DELETE CASCADE,
+	CONSTRAINT form_fixity_unique UNIQUE (form_id, version)
+);
+
 -- Security schema
 CREATE TABLE users (
     username	VARCHAR(32) NOT NULL PRIMARY KEY,
@@ -17,6 +17,9 @@ GRANT ALL PRIVILEGES ON paw.* TO paw@localhost IDENTIFIED BY 'pawpaw';
 
 USE paw;
 
+DROP TABLE IF EXISTS form_fixity;
+DROP TABLE IF EXISTS preservation_job_item;
+DROP TABLE IF EXISTS preservation_job;
 DROP TABLE IF EXISTS user_role;
 DROP TABLE IF EXISTS users;
 DROP TABLE IF EXISTS roles;
@@ -42,6 +45,7 @@ CREATE TABLE IF NOT EXISTS dataset_ril (
 	ril_name		VARCHAR(128) NOT NULL,
 	ril				VARCHAR(4096) NOT NULL, -- persisted serialized RIL in XML form
 	preserved		TINYINT(1) DEFAULT 0 NOT NULL,
+	preserved_fingerprint	VARCHAR(64) NULL, -- content fingerprint as at last successful preservation
 	ts 				TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 	CONSTRAINT dataset_rilname_unique UNIQUE (dataset_name, ril_name),
 	FOREIGN KEY (dataset_name) REFERENCES form_bundle (dataset_name)
@@ -57,11 +61,12 @@ CREATE TABLE IF NOT EXISTS form (
 	display_name 		VARCHAR(128) NOT NULL,
 	item_file_name		VARCHAR(128) NULL,
 	intro_text			VARCHAR(512),
-	data_holder			LONGTEXT,
+	data_holder			VARCHAR(2048), -- URL or blob store reference
 	data_holder_type	VARCHAR(64) NOT NULL,
 	ril_cpid			VARCHAR(128) NOT NULL,
 	manifest_cpid		VARCHAR(128) NULL,
 	preserved			TINYINT(1) DEFAULT 0 NOT NULL,
+	preserved_fingerprint	VARCHAR(64) NULL, -- content fingerprint as at last successful preservation
 	ts 					TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 	FOREIGN KEY (dataset_name) REFERENCES form_bundle (dataset_name),
 	CONSTRAINT form_unique UNIQUE (dataset_name, form_name, item_file_name)
@@ -105,6 +110,45 @@ CREATE TABLE IF NOT EXISTS registry_auth (
 	ts 				TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 ) engine=InnoDB;
 
+CREATE TABLE IF NOT EXISTS preservation_job (
+	job_id			INTEGER UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+	dataset_name	VARCHAR(32) NOT NULL,
+	registry_uid	VARCHAR(32) NOT NULL,
+	state			VARCHAR(16) NOT NULL, -- QUEUED, RUNNING, DONE or FAILED
+	mode			VARCHAR(16) NOT NULL, -- FULL or INCREMENTAL
+	created			TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	INDEX			(state)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS preservation_job_item (
+	item_id			INTEGER UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+	job_id			INTEGER UNSIGNED NOT NULL,
+	item_type		VARCHAR(16) NOT NULL, -- FORM or RIL
+	item_key		VARCHAR(128) NOT NULL, -- form ID or RIL CPID
+	state			VARCHAR(16) NOT NULL, -- QUEUED, RUNNING, STORED, DONE or FAILED
+	attempts		INTEGER UNSIGNED DEFAULT 0 NOT NULL,
+	result_cpid		VARCHAR(128) NULL, -- CPID of the manifest or RIL once stored in the registry
+	error			VARCHAR(1024) NULL,
+	ts 				TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	FOREIGN KEY 	(job_id) REFERENCES preservation_job (job_id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS form_fixity (
+	fixity_id		INTEGER UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+	form_id			INTEGER UNSIGNED NOT NULL,
+	version			INTEGER UNSIGNED NOT NULL, -- preservation version of the form, from 1
+	manifest_cpid	VARCHAR(128) NOT NULL,
+	sha256			CHAR(64) NOT NULL,
+	md5				CHAR(32) NOT NULL,
+	size			BIGINT UNSIGNED NOT NULL, -- bytestream size in bytes
+	package_sha256	CHAR(64) NULL, -- fixity of the zip uploaded for a packaged form
+	package_md5		CHAR(32) NULL,
+	package_size	BIGINT UNSIGNED NULL,
+	created			TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	FOREIGN KEY 	(form_id) REFERENCES form (form_id) ON DELETE CASCADE,
+	CONSTRAINT form_fixity_unique UNIQUE (form_id, version)
+) engine=InnoDB;
+
 -- # Security schema
 CREATE TABLE IF NOT EXISTS users (
     username	VARCHAR(32) PRIMARY KEY,
@@ -0,0 +1,47 @@
+-- # Upgrade script for Preservation Assistant schema
+-- # Version 1.1 to 1.2
+
+USE paw;
+ALTER TABLE form ADD COLUMN preserved_fingerprint VARCHAR(64) NULL;
+ALTER TABLE dataset_ril ADD COLUMN preserved_fingerprint VARCHAR(64) NULL;
+
+CREATE TABLE IF NOT EXISTS preservation_job (
+	job_id			INTEGER UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+	dataset_name	VARCHAR(32) NOT NULL,
+	registry_uid	VARCHAR(32) NOT NULL,
+	state			VARCHAR(16) NOT NULL, -- QUEUED, RUNNING, DONE or FAILED
+	mode			VARCHAR(16) NOT NULL, -- FULL or INCREMENTAL
+	created			TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	INDEX			(state)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS preservation_job_item (
+	item_id			INTEGER UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+	job_id			INTEGER UNSIGNED NOT NULL,
+	item_type		VARCHAR(16) NOT NULL, -- FORM or RIL
+	item_key		VARCHAR(128) NOT NULL, -- form ID or RIL CPID
+	state			VARCHAR(16) NOT NULL, -- QUEUED, RUNNING, STORED, DONE or FAILED
+	attempts		INTEGER UNSIGNED DEFAULT 0 NOT NULL,
+	result_cpid		VARCHAR(128) NULL, -- CPID of the manifest or RIL once stored in the registry
+	error			VARCHAR(1024) NULL,
+	ts 				TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	FOREIGN KEY 	(job_id) REFERENCES preservation_job (job_id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS form_fixity (
+	fixity_id		INTEGER UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+	form_id			INTEGER UNSIGNED NOT NULL,
+	version			INTEGER UNSIGNED NOT NULL, -- preservation version of the form, from 1
+	manifest_cpid	VARCHAR(128) NOT NULL,
+	sha256			CHAR(64) NOT NULL,
+	md5				CHAR(32) NOT NULL,
+	size			BIGINT UNSIGNED NOT NULL, -- bytestream size in bytes
+	package_sha256	CHAR(64) NULL, -- fixity of the zip uploaded for a packaged form
+	package_md5		CHAR(32) NULL,
+	package_size	BIGINT UNSIGNED NULL,
+	created			TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	FOREIGN KEY 	(form_id) REFERENCES form (form_id) ON DELETE CASCADE,
+	CONSTRAINT form_fixity_unique UNIQUE (form_id, version)
+) engine=InnoDB;
+
+COMMIT;
@@ -90,7 +90,8 @@ function checkRegAccess(regUID) {
 /*
  * Module: Data set Preservation
  */
-var jobDetailsIntervalID;
+var jobEventsRequest = null;
+var jobEventsTimeoutID;
 
 function readyPreserveDS() {
 	configSetRegCredsDialog();
@@ -113,9 +114,9 @@ function configJobDetailsDialog() {
 		width : 900,
 		height : 600,
 		close : function(event, ui) {
+			// Stop following the job's events before discarding the table:
+			stopJobEvents();
 			$('#jobDetails').DataTable().destroy();
-			// Cancel the job details refresh job:
-			clearInterval(jobDetailsIntervalID);
 		}
 	});
 }
@@ -132,9 +133,19 @@ function viewJobDetails(datasetName, registryUID) {
 						paging : true,
 						searching : false,
 						processing : true,
-						ajax : basepath
-								+ "preservation/jobdetails?datasetName="
-								+ datasetName,
+						ajax : {
+							url : basepath
+									+ "preservation/jobdetails?datasetName="
+									+ datasetName,
+							dataSrc : function(json) {
+								// Follow the job's events from the point this
+								// snapshot was taken:
+								stopJobEvents();
+								pollJobEvents(datasetName, json.sequence,
+										json.jobID);
+								return json.data;
+							}
+						},
 						columns : [
 								{
 									"data" : "preservable",
@@ -203,13 +214,92 @@ function viewJobDetails(datasetName, registryUID) {
 								} ]
 					});
 
-	jobDetailsIntervalID = setInterval(function() {
-		$('#jobDetails').DataTable().ajax.reload();
-	}, 5000);
-
 	$("#jobDetailsDialog").dialog("open");
 }
 
+/**
+ * Long-polls for the events of a preservation job after the given sequence
+ * number, applying each batch to the job details table and then polling again
+ * until the job has finished. Stops if there is no longer a job for the data
+ * set (404), and otherwise retries a failed poll, e.g. one refused while the
+ * server is busy (503), after 5 seconds.
+ */
+function pollJobEvents(datasetName, since, jobID) {
+	jobEventsRequest = $.ajax({
+		url : basepath + "preservation/jobevents",
+		data : {
+			datasetName : datasetName,
+			since : since,
+			jobID : jobID
+		},
+		dataType : "json",
+		cache : false
+	}).done(function(batch) {
+		jobEventsRequest = null;
+		if (jobID !== null && batch.jobID !== jobID) {
+			// The dataset has been preserved again: start over from a new
+			// snapshot, which resumes polling itself
+			$('#jobDetails').DataTable().ajax.reload();
+			return;
+		}
+		applyJobEvents(batch.events);
+		if (!batch.finished) {
+			pollJobEvents(datasetName, batch.sequence, batch.jobID);
+		}
+	}).fail(function(xhr, status) {
+		jobEventsRequest = null;
+		if (status !== "abort" && xhr.status !== 404) {
+			jobEventsTimeoutID = setTimeout(function() {
+				pollJobEvents(datasetName, since, jobID);
+			}, 5000);
+		}
+	});
+}
+
+function stopJobEvents() {
+	clearTimeout(jobEventsTimeoutID);
+	if (jobEventsRequest !== null) {
+		jobEventsRequest.abort();
+		jobEventsRequest = null;
+	}
+}
+
+function jobItemKey(preservable) {
+	if (preservable.preservableTypeID == 'MF') {
+		return 'MF:' + preservable.formID;
+	}
+	return 'RIL:' + preservable.rilCPID;
+}
+
+/**
+ * Replaces the rows of the job details table for the items completed by each
+ * event. Applying an event already reflected in the table has no effect.
+ */
+function applyJobEvents(events) {
+	if (events.length === 0) {
+		return;
+	}
+
+	var table = $('#jobDetails').DataTable();
+	var rowIndexes = {};
+	table.rows().indexes().each(function(idx) {
+		rowIndexes[jobItemKey(table.row(idx).data().preservable)] = idx;
+	});
+
+	$.each(events, function(i, event) {
+		var idx = rowIndexes[jobItemKey(event.preservable)];
+		if (idx !== undefined) {
+			table.row(idx).data({
+				preservable : event.preservable,
+				preservedObject : event.preservedObject,
+				succeeded : event.succeeded,
+				thrown : event.error
+			});
+		}
+	});
+	table.draw(false);
+}
+
 /*
  * Module: Edit Data Set Item
  */
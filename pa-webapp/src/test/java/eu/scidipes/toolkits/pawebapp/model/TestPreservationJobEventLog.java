@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.model;
+
+import static java.lang.Boolean.TRUE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+
+/**
+ * Unit tests for {@link PreservationJobEventLog}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestPreservationJobEventLog extends AbstractTest {
+
+	private PreservationJobEventLog eventLog;
+
+	@SuppressWarnings("unchecked")
+	private static PreservationJobItemResult<Preservable, ?> newResult() {
+		final PreservationJobItemResult<Preservable, ?> result = mock(PreservationJobItemResult.class);
+		final Form form = mock(Form.class);
+		when(result.getPreservable()).thenReturn(form);
+		when(result.isSucceeded()).thenReturn(TRUE);
+		return result;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		eventLog = new PreservationJobEventLog(Integer.valueOf(7));
+	}
+
+	/**
+	 * Test method for {@link PreservationJobEventLog#await(int, long, TimeUnit)} when events are already available.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testAwaitReturnsDeltas() throws Exception {
+		eventLog.append(newResult());
+		eventLog.append(newResult());
+		eventLog.append(newResult());
+
+		final PreservationJobEventBatch batch = eventLog.await(1, 0, TimeUnit.MILLISECONDS);
+		assertEquals(Integer.valueOf(7), batch.getJobID());
+		assertEquals(3, batch.getSequence());
+		assertEquals(2, batch.getEvents().size());
+		assertEquals(2, batch.getEvents().get(0).getSequence());
+		assertEquals(3, batch.getEvents().get(1).getSequence());
+		assertFalse(batch.isFinished());
+
+		/* A client out of step with the log receives all of it: */
+		assertEquals(3, eventLog.await(5, 0, TimeUnit.MILLISECONDS).getEvents().size());
+	}
+
+	/**
+	 * Test method for {@link PreservationJobEventLog#await(int, long, TimeUnit)} when waiting for a new event.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testAwaitWakesOnAppend() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<PreservationJobEventBatch> waiting = executor.submit(new Callable<PreservationJobEventBatch>() {
+				@Override
+				public PreservationJobEventBatch call() throws Exception {
+					return eventLog.await(0, 10, TimeUnit.SECONDS);
+				}
+			});
+
+			eventLog.append(newResult());
+
+			final PreservationJobEventBatch batch = waiting.get(5, TimeUnit.SECONDS);
+			assertEquals(1, batch.getSequence());
+			assertEquals(1, batch.getEvents().size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Test method for {@link PreservationJobEventLog#await(int, long, TimeUnit)} once the job has finished.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public final void testAwaitAfterFinish() throws Exception {
+		eventLog.append(newResult());
+		eventLog.finish();
+
+		final PreservationJobEventBatch batch = eventLog.await(1, 10, TimeUnit.SECONDS);
+		assertTrue(batch.isFinished());
+		assertTrue(batch.getEvents().isEmpty());
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import info.digitalpreserve.interfaces.CurationPersistentIdentifier;
+import info.digitalpreserve.interfaces.Manifest;
+import info.digitalpreserve.interfaces.RegistryObject;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.exceptions.PreservationStorageException;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.Preservable;
+import eu.scidipes.toolkits.palibrary.interfaces.PreservationJobItemResult;
+import eu.scidipes.toolkits.pawebapp.model.PreservationJobItemRecord;
+
+/**
+ * @author Tom Bunting
+ *
+ */
+public class TestClaimedJobItemTask extends AbstractTest {
+
+	private PreservationJobStore jobStore;
+
+	private PreservationJobItemRecord item;
+
+	private Form form;
+
+	private Callable<PreservationJobItemResult<Preservable, RegistryObject>> task;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setUp() throws Exception {
+		jobStore = mock(PreservationJobStore.class);
+		item = mock(PreservationJobItemRecord.class);
+		form = mock(Form.class);
+		task = mock(Callable.class);
+	}
+
+	/**
+	 * Test method for {@link ClaimedJobItemTask#call()} when the item is claimed and preserved.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCallMarksDone() throws Exception {
+		final CurationPersistentIdentifier cpid = mock(CurationPersistentIdentifier.class);
+		when(cpid.getUID()).thenReturn("manifest-1");
+		final Manifest manifest = mock(Manifest.class);
+		when(manifest.getManifestCpid()).thenReturn(cpid);
+
+		final PreservationJobItemResultImpl result = new PreservationJobItemResultImpl(form, manifest);
+		when(jobStore.claim(item)).thenReturn(Boolean.TRUE);
+		when(task.call()).thenReturn(result);
+
+		assertSame(result, new ClaimedJobItemTask(item, form, task, jobStore).call());
+		verify(jobStore).markDone(item, "manifest-1");
+	}
+
+	/**
+	 * Test method for {@link ClaimedJobItemTask#call()} when the item is no longer queued, e.g. it has already been
+	 * preserved.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCallNotClaimed() throws Exception {
+		when(jobStore.claim(item)).thenReturn(Boolean.FALSE);
+
+		try {
+			new ClaimedJobItemTask(item, form, task, jobStore).call();
+			fail("Expected PreservationStorageException");
+		} catch (final PreservationStorageException e) {
+			assertSame(form, e.getPreservable());
+		}
+
+		verify(task, never()).call();
+		verify(jobStore, never()).markDone(any(PreservationJobItemRecord.class), any(String.class));
+	}
+
+	/**
+	 * Test method for {@link ClaimedJobItemTask#call()} when preservation fails.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testCallMarksFailed() throws Exception {
+		final IOException cause = new IOException("upload failed");
+		when(jobStore.claim(item)).thenReturn(Boolean.TRUE);
+		when(task.call()).thenThrow(new PreservationStorageException(cause, form));
+
+		try {
+			new ClaimedJobItemTask(item, form, task, jobStore).call();
+			fail("Expected PreservationStorageException");
+		} catch (final PreservationStorageException e) {
+			assertSame(cause, e.getCause());
+		}
+
+		verify(jobStore).markFailed(item, cause);
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.common.framework.core.impl.BaseRepresentationInformation;
+import eu.scidipes.common.framework.core.impl.CoreCurationPersistentIdentifier;
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.impl.DatasetRIL;
+import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel;
+import eu.scidipes.toolkits.palibrary.impl.UploadRepInfoLabel.CoreRIType;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+
+/**
+ * Unit tests for {@link ManifestDependencies}
+ * 
+ * @author Tom Bunting
+ * 
+ */
+public class TestManifestDependencies extends AbstractTest {
+
+	private ManifestDependencies dependencies;
+
+	private Form form1;
+	private Form form2;
+	private Form form3;
+
+	private static Form newForm(final String manifestCPID) {
+		final Form form = mock(Form.class);
+		when(form.getManifestCPID()).thenReturn(new CoreCurationPersistentIdentifier(manifestCPID));
+		return form;
+	}
+
+	private static DatasetRIL newRIL(final String rilCPID, final CoreRIType type, final String... manifestCPIDs) {
+		final UploadRepInfoLabel ril = new UploadRepInfoLabel("RIL " + rilCPID, "Test RIL",
+				new CoreCurationPersistentIdentifier(rilCPID));
+		for (final String manifestCPID : manifestCPIDs) {
+			final BaseRepresentationInformation ri = type.newInstance();
+			ri.setCpid(new CoreCurationPersistentIdentifier(manifestCPID));
+			ril.addRepInfo(ri, type);
+		}
+		return new DatasetRIL(rilCPID, "RIL " + rilCPID, ril);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		dependencies = new ManifestDependencies();
+
+		form1 = newForm("manifest-1");
+		form2 = newForm("manifest-2");
+		form3 = newForm("manifest-3");
+
+		dependencies.addManifest(form1);
+		dependencies.addManifest(form2);
+		dependencies.addManifest(form3);
+	}
+
+	/**
+	 * Test method for {@link ManifestDependencies#referencedCPIDs(DatasetRIL)}.
+	 */
+	@Test
+	public final void testReferencedCPIDs() {
+		final DatasetRIL ril = newRIL("ril-1", CoreRIType.STRUCTURAL, "manifest-1", "manifest-2");
+
+		assertEquals(2, ManifestDependencies.referencedCPIDs(ril).size());
+		assertTrue(ManifestDependencies.referencedCPIDs(ril).containsAll(asList("manifest-1", "manifest-2")));
+	}
+
+	/**
+	 * Test method for {@link ManifestDependencies#complete(Form, boolean)}.
+	 */
+	@Test
+	public final void testRILWaitsForAllItsManifests() {
+		final DatasetRIL ril1 = newRIL("ril-1", CoreRIType.STRUCTURAL, "manifest-1", "manifest-2");
+		final DatasetRIL ril2 = newRIL("ril-2", CoreRIType.SEMANTIC, "manifest-2");
+		final DatasetRIL ril3 = newRIL("ril-3", CoreRIType.OTHER, "manifest-from-earlier-job");
+
+		assertFalse(dependencies.addRIL(ril1));
+		assertFalse(dependencies.addRIL(ril2));
+		assertTrue(dependencies.addRIL(ril3));
+		assertEquals(2, dependencies.getWaitingCount());
+
+		assertEquals(Collections.emptyList(), dependencies.complete(form3, true));
+		assertEquals(Collections.emptyList(), dependencies.complete(form1, true));
+		assertEquals(asList(ril1, ril2), dependencies.complete(form2, true));
+		assertEquals(0, dependencies.getWaitingCount());
+
+		assertFalse(dependencies.isBlocked(ril1));
+		assertFalse(dependencies.isBlocked(ril2));
+	}
+
+	/**
+	 * Test method for {@link ManifestDependencies#isBlocked(DatasetRIL)}.
+	 */
+	@Test
+	public final void testFailedManifestBlocksRIL() {
+		final DatasetRIL ril = newRIL("ril-1", CoreRIType.STRUCTURAL, "manifest-1", "manifest-2");
+		assertFalse(dependencies.addRIL(ril));
+
+		assertEquals(Collections.emptyList(), dependencies.complete(form1, false));
+		assertEquals(asList(ril), dependencies.complete(form2, true));
+		assertTrue(dependencies.isBlocked(ril));
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import info.digitalpreserve.interfaces.Registry;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+
+/**
+ * @author Tom Bunting
+ *
+ */
+public class TestPreservationScheduler extends AbstractTest {
+
+	private PreservationScheduler scheduler;
+
+	private Registry registryA;
+	private Registry registryB;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		scheduler = new PreservationScheduler(4, 2, 1);
+
+		registryA = mock(Registry.class);
+		when(registryA.getLocationUID()).thenReturn("registry-a");
+
+		registryB = mock(Registry.class);
+		when(registryB.getLocationUID()).thenReturn("registry-b");
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Test method for {@link PreservationScheduler#executorFor(Registry)}.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public final void testPerRegistryLimit() throws InterruptedException {
+		final int numTasks = 10;
+
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(numTasks);
+
+		final Executor executor = scheduler.executorFor(registryA);
+
+		for (int i = 0; i < numTasks; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					final int now = running.incrementAndGet();
+					synchronized (maxRunning) {
+						maxRunning.set(Math.max(maxRunning.get(), now));
+					}
+					try {
+						Thread.sleep(20);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						running.decrementAndGet();
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertTrue("Per-registry limit exceeded: " + maxRunning.get(), maxRunning.get() <= 2);
+		assertEquals(0, scheduler.getQueueDepth("registry-a"));
+	}
+
+	/**
+	 * Test method for {@link PreservationScheduler#getQueueDepth()} and
+	 * {@link PreservationScheduler#getActiveWorkers(String)}.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public final void testGauges() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(3);
+
+		final Runnable blocker = new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		/* Two run against registry A (its limit), one waits; one runs against registry B: */
+		scheduler.executorFor(registryA).execute(blocker);
+		scheduler.executorFor(registryA).execute(blocker);
+		scheduler.executorFor(registryA).execute(blocker);
+		scheduler.executorFor(registryB).execute(blocker);
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		assertEquals(2, scheduler.getActiveWorkers("registry-a"));
+		assertEquals(1, scheduler.getActiveWorkers("registry-b"));
+		assertEquals(1, scheduler.getQueueDepth("registry-a"));
+		assertEquals(1, scheduler.getQueueDepth());
+
+		release.countDown();
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.preservation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.pawebapp.preservation.ReadAfterWriteConfirmer.Lookup;
+
+/**
+ * @author Tom Bunting
+ *
+ */
+public class TestReadAfterWriteConfirmer extends AbstractTest {
+
+	private ReadAfterWriteConfirmer confirmer;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		confirmer = new ReadAfterWriteConfirmer(5, 20, 500);
+	}
+
+	/**
+	 * Test method for {@link ReadAfterWriteConfirmer#confirmManifest(String, Lookup)}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testConfirmAfterRetries() throws Exception {
+		final AtomicInteger attempts = new AtomicInteger();
+
+		final String result = confirmer.confirmManifest("test", new Lookup<String>() {
+			@Override
+			public String lookup() throws Exception {
+				switch (attempts.incrementAndGet()) {
+				case 1:
+					return null;
+				case 2:
+					throw new IllegalStateException("Not found");
+				default:
+					return "found";
+				}
+			}
+		});
+
+		assertEquals("found", result);
+		assertEquals(3, attempts.get());
+		assertEquals(1, confirmer.getManifestLatencies().getCount());
+		assertEquals(0, confirmer.getRILLatencies().getCount());
+	}
+
+	/**
+	 * Test method for {@link ReadAfterWriteConfirmer#confirmRIL(String, Lookup)}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testConfirmTimesOut() throws Exception {
+		final long start = System.currentTimeMillis();
+		try {
+			confirmer.confirmRIL("test", new Lookup<String>() {
+				@Override
+				public String lookup() throws Exception {
+					throw new IllegalStateException("Not found");
+				}
+			});
+		} catch (final TimeoutException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertTrue(System.currentTimeMillis() - start >= 500);
+			assertEquals(0, confirmer.getRILLatencies().getCount());
+			return;
+		}
+		throw new AssertionError("Expected TimeoutException");
+	}
+
+	/**
+	 * Test method for {@link LatencyHistogram#getPercentile(double)}.
+	 */
+	@Test
+	public final void testLatencyHistogram() {
+		final LatencyHistogram histogram = new LatencyHistogram("test");
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 10);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(505, histogram.getMean());
+		assertEquals(500, histogram.getPercentile(50));
+		assertEquals(1000, histogram.getPercentile(99));
+	}
+
+}
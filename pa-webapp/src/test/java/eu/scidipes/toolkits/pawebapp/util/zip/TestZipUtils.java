@@ -16,24 +16,39 @@
  */
 package eu.scidipes.toolkits.pawebapp.util.zip;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.utils.zip.CompressionPolicy;
 import eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils;
-import eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils.ByteArrayZipEntry;
+import eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils.ZipEntryWriter;
 
 /**
  * @author Tom Bunting
@@ -44,6 +59,9 @@ public class TestZipUtils extends AbstractTest {
 	@SuppressWarnings("unused")
 	private static final Logger LOG = LoggerFactory.getLogger(TestZipUtils.class);
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	/**
 	 * @throws java.lang.Exception
 	 */
@@ -59,31 +77,129 @@ public class TestZipUtils extends AbstractTest {
 	}
 
 	/**
-	 * Test method for
-	 * {@link eu.scidipes.toolkits.palibrary.utils.zip.ZipUtils#byteArrayZipEntriesToBase64(java.util.Set)}.
+	 * Test method for {@link ZipUtils#writeZipEntries(Map, Map, CompressionPolicy, OutputStream)}: entries are written
+	 * in order and read back intact.
 	 * 
 	 * @throws IOException
 	 */
 	@Test
-	public final void testByteArrayZipEntriesToBase64() throws IOException {
+	public final void testWriteZipEntries() throws IOException {
 		final String mainFileName = "SCIDIP-ES-Registry-Framework-Overview.pdf";
 		final String metaFileName = "meta.xml";
 
-		final InputStream mainFileStream = getClass().getResourceAsStream(mainFileName);
-		final InputStream metaFileStream = getClass().getResourceAsStream(metaFileName);
+		final byte[] mainFileBytes = IOUtils.toByteArray(getClass().getResourceAsStream(mainFileName));
+		final byte[] metaFileBytes = IOUtils.toByteArray(getClass().getResourceAsStream(metaFileName));
+
+		final Map<String, ZipEntryWriter> entries = new LinkedHashMap<>();
+		entries.put(mainFileName, ZipUtils.copyOf(new ByteArrayInputStream(mainFileBytes)));
+		entries.put(metaFileName, ZipUtils.copyOf(new ByteArrayInputStream(metaFileBytes)));
+		final Map<String, String> noMimeTypes = new HashMap<>();
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ZipUtils.writeZipEntries(entries, noMimeTypes, new CompressionPolicy(6, 7.5d), bos);
+
+		try (final ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			ZipEntry entry = zis.getNextEntry();
+			assertEquals(mainFileName, entry.getName());
+			assertArrayEquals(mainFileBytes, IOUtils.toByteArray(zis));
+
+			entry = zis.getNextEntry();
+			assertEquals(metaFileName, entry.getName());
+			assertArrayEquals(metaFileBytes, IOUtils.toByteArray(zis));
+
+			assertNull(zis.getNextEntry());
+		}
+	}
+
+	/**
+	 * Test method for {@link CompressionPolicy#levelFor(String, byte[], int)}.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public final void testCompressionPolicy() throws IOException {
+		final CompressionPolicy policy = new CompressionPolicy(6, 7.5d);
+		final byte[] text = "Preservation Assistant metadata, ".getBytes("US-ASCII");
+		final byte[] random = randomBytes(CompressionPolicy.SAMPLE_LENGTH);
+
+		assertEquals(6, policy.levelFor("text/csv; charset=UTF-8", text, text.length));
+		assertEquals(6, policy.levelFor(null, text, text.length));
+		assertEquals(Deflater.NO_COMPRESSION, policy.levelFor("application/zip", text, text.length));
+		assertEquals(Deflater.NO_COMPRESSION, policy.levelFor("video/mp4", text, text.length));
+		assertEquals(Deflater.NO_COMPRESSION, policy.levelFor("application/x-hdf5", random, random.length));
+		assertEquals(6, policy.levelFor("application/x-hdf5", new byte[1024], 1024));
+		assertEquals(Deflater.NO_COMPRESSION, policy.levelFor(null, random, random.length));
+
+		final CompressionPolicy storeAll = new CompressionPolicy(Deflater.NO_COMPRESSION, 7.5d);
+		assertEquals(Deflater.NO_COMPRESSION, storeAll.levelFor("text/plain", text, text.length));
+	}
+
+	/**
+	 * Test method for {@link ZipUtils#writeZipEntries(Map, Map, CompressionPolicy, OutputStream)}: entries the policy
+	 * judges incompressible should be stored as is, text entries deflated, and all read back intact. The binary entry
+	 * looks random for its first {@link CompressionPolicy#SAMPLE_LENGTH} bytes but is compressible after that, so it
+	 * only comes out at its full size if the policy chose to store it; an archive written with a policy which always
+	 * deflates shows the difference.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public final void testWriteZipEntriesWithPolicy() throws IOException {
+		final byte[] binBytes = new byte[CompressionPolicy.SAMPLE_LENGTH * 4 + 17];
+		System.arraycopy(randomBytes(CompressionPolicy.SAMPLE_LENGTH), 0, binBytes, 0, CompressionPolicy.SAMPLE_LENGTH);
+
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			text.append("entry ").append(i).append(",value\n");
+		}
+		final byte[] textBytes = text.toString().getBytes("US-ASCII");
 
-		final byte[] mainFileBytes = IOUtils.toByteArray(mainFileStream);
-		final byte[] metaFileBytes = IOUtils.toByteArray(metaFileStream);
+		final File archive = writeArchive("policy.zip", binBytes, textBytes, new CompressionPolicy(
+				Deflater.BEST_SPEED, 7.5d));
+		final File deflated = writeArchive("deflated.zip", binBytes, textBytes, new CompressionPolicy(
+				Deflater.BEST_SPEED, Double.MAX_VALUE));
 
-		final ZipEntry zipMain = new ZipEntry(mainFileName);
-		final ZipEntry zipMeta = new ZipEntry(metaFileName);
+		try (final ZipFile zip = new ZipFile(archive); final ZipFile deflatedZip = new ZipFile(deflated)) {
+			final ZipEntry bin = zip.getEntry("data.bin");
+			assertArrayEquals(binBytes, IOUtils.toByteArray(zip.getInputStream(bin)));
+			/* Stored in raw deflate blocks, which are never smaller than their content: */
+			assertTrue(bin.getCompressedSize() >= binBytes.length);
+			/* Whereas deflating compresses everything after the random sample: */
+			assertTrue(deflatedZip.getEntry("data.bin").getCompressedSize() < binBytes.length / 2);
 
-		final Set<ByteArrayZipEntry> entries = new HashSet<>();
-		entries.add(new ByteArrayZipEntry(mainFileBytes, zipMain));
-		entries.add(new ByteArrayZipEntry(metaFileBytes, zipMeta));
+			final ZipEntry csv = zip.getEntry("data.csv");
+			assertArrayEquals(textBytes, IOUtils.toByteArray(zip.getInputStream(csv)));
+			assertTrue(csv.getCompressedSize() < textBytes.length / 3);
+
+			/* Text declared to be of an already-compressed type is stored, however compressible: */
+			final ZipEntry png = zip.getEntry("data.png");
+			assertArrayEquals(textBytes, IOUtils.toByteArray(zip.getInputStream(png)));
+			assertTrue(png.getCompressedSize() >= textBytes.length);
+		}
+	}
+
+	/**
+	 * Writes an archive of a binary entry of unknown type, and the passed text as both a CSV and a PNG entry
+	 */
+	private File writeArchive(final String name, final byte[] binBytes, final byte[] textBytes,
+			final CompressionPolicy policy) throws IOException {
+		final Map<String, ZipEntryWriter> entries = new LinkedHashMap<>();
+		entries.put("data.bin", ZipUtils.copyOf(new ByteArrayInputStream(binBytes)));
+		entries.put("data.csv", ZipUtils.copyOf(new ByteArrayInputStream(textBytes)));
+		entries.put("data.png", ZipUtils.copyOf(new ByteArrayInputStream(textBytes)));
+		final Map<String, String> mimeTypes = new HashMap<>();
+		mimeTypes.put("data.csv", "text/csv");
+		mimeTypes.put("data.png", "image/png");
+
+		final File archive = folder.newFile(name);
+		ZipUtils.writeZipEntries(entries, mimeTypes, policy, new FileOutputStream(archive));
+		return archive;
+	}
 
-		final String zipResult = ZipUtils.byteArrayZipEntriesToBase64(entries);
-		assertTrue(zipResult != null && zipResult.length() > 100);
+	private static byte[] randomBytes(final int length) {
+		final byte[] bytes = new byte[length];
+		new Random(42).nextBytes(bytes);
+		return bytes;
 	}
 
 }
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2011-2014 Alliance for Permanent Access (APA) and its
+ * contributors. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The APA licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scidipes.toolkits.pawebapp.web;
+
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_NAME;
+import static eu.scidipes.toolkits.palibrary.interfaces.CoreFieldMetadata.FILE_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.ui.Model;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.web.HttpSessionRequiredException;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.support.SimpleSessionStatus;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import eu.scidipes.toolkits.pa.test.AbstractTest;
+import eu.scidipes.toolkits.palibrary.impl.FormImpl;
+import eu.scidipes.toolkits.palibrary.impl.FormsBundleImpl;
+import eu.scidipes.toolkits.palibrary.impl.blob.FileSystemBlobStore;
+import eu.scidipes.toolkits.palibrary.impl.blob.StoredBlob;
+import eu.scidipes.toolkits.palibrary.interfaces.Form;
+import eu.scidipes.toolkits.palibrary.interfaces.LibraryAPI;
+import eu.scidipes.toolkits.pawebapp.repository.DataSetRepository;
+import eu.scidipes.toolkits.pawebapp.web.validation.FormValidator;
+
+/**
+ * Unit tests for submitting item edits to {@link ItemsController}, calling its handler methods in the order Spring
+ * would: {@link ItemsController#getSubmittedForm(HttpServletRequest, Model)} first, then
+ * {@link ItemsController#saveItem}.
+ *
+ * @author Tom Bunting
+ *
+ */
+public class TestItemsController extends AbstractTest {
+
+	private static final String DATASET_NAME = "meris";
+
+	private static final String FORM_NAME = "CP-1";
+
+	private static final byte[] CONTENT = "a,b,c\n1,2,3\n".getBytes(StandardCharsets.US_ASCII);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystemBlobStore blobStore;
+
+	private ItemsController controller;
+
+	private FormsBundleImpl dataset;
+
+	private DataSetRepository datasetRepo;
+
+	private FormValidator formValidator;
+
+	private HttpServletRequest post;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		dataset = new FormsBundleImpl("bundle", "processor");
+		dataset.setDatasetName(DATASET_NAME);
+
+		final FormsBundleImpl templateBundle = new FormsBundleImpl("bundle", "processor");
+		final LibraryAPI libraryAPI = mock(LibraryAPI.class);
+		when(libraryAPI.getTemplateForm("bundle", FORM_NAME)).thenReturn(new FormImpl(FORM_NAME, templateBundle));
+
+		datasetRepo = mock(DataSetRepository.class);
+		when(datasetRepo.findOne(DATASET_NAME)).thenReturn(dataset);
+		when(datasetRepo.save(dataset)).thenReturn(dataset);
+
+		blobStore = new FileSystemBlobStore(folder.getRoot());
+		formValidator = mock(FormValidator.class);
+
+		controller = new ItemsController();
+		inject("datasetRepo", datasetRepo);
+		inject("libraryAPI", libraryAPI);
+		inject("formValidator", formValidator);
+		inject("blobStore", blobStore);
+
+		post = mock(HttpServletRequest.class);
+		when(post.getMethod()).thenReturn("POST");
+	}
+
+	/**
+	 * Test method for {@link ItemsController#saveItem} when adding a new item with an uploaded file.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSaveNewItem() throws Exception {
+		final ItemEditSession editSession = ItemEditSession.addNew(DATASET_NAME, FORM_NAME);
+		final Model model = modelFor(editSession);
+
+		final Form form = controller.getSubmittedForm(post, model);
+		assertEquals(FORM_NAME, form.getName());
+		assertSame(dataset, form.getParentBundle());
+
+		((FormImpl) form).setItemFileName("item-1");
+		final SimpleSessionStatus status = new SimpleSessionStatus();
+		final String view = controller.saveItem(form, bindingResult(form), editSession, status,
+				new RedirectAttributesModelMap(), dataFile(), null, null);
+
+		assertTrue(view, view.startsWith("redirect:/datasets/" + DATASET_NAME + "/items/"));
+		assertTrue(status.isComplete());
+		assertTrue(dataset.getForms().contains(form));
+		assertStoredUpload(form);
+		verify(datasetRepo).save(dataset);
+	}
+
+	/**
+	 * Test method for {@link ItemsController#saveItem} when editing an existing item.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSaveEditedItem() throws Exception {
+		final FormImpl existing = new FormImpl(FORM_NAME, dataset);
+		setFormID(existing, 7);
+		dataset.addForm(existing);
+		when(datasetRepo.findOneForm(Integer.valueOf(7))).thenReturn(existing);
+
+		final ItemEditSession editSession = ItemEditSession.edit(existing);
+		final Form form = controller.getSubmittedForm(post, modelFor(editSession));
+		assertSame(existing, form);
+
+		((FormImpl) form).setItemFileName("renamed");
+		final SimpleSessionStatus status = new SimpleSessionStatus();
+		final String view = controller.saveItem(form, bindingResult(form), editSession, status,
+				new RedirectAttributesModelMap(), null, null, FORM_NAME);
+
+		assertEquals("redirect:/datasets/" + DATASET_NAME + ";fn=" + FORM_NAME + "/items/7/edit", view);
+		assertTrue(status.isComplete());
+		assertEquals(1, dataset.getForms().size());
+		assertEquals("renamed", dataset.getForms().get(0).getItemFileName());
+		verify(datasetRepo).save(dataset);
+	}
+
+	/**
+	 * Test that a file uploaded with a submission which fails validation is kept for the edit session, and applied to
+	 * the form reloaded for the next submission, without being uploaded again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testStagedUploadSurvivesValidationError() throws Exception {
+		final ItemEditSession editSession = ItemEditSession.addNew(DATASET_NAME, FORM_NAME);
+		final Model model = modelFor(editSession);
+
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(final InvocationOnMock invocation) {
+				((Errors) invocation.getArguments()[1]).rejectValue("itemFileName",
+						FormValidator.ITEM_FILENAME_REQ_ERR_CODE);
+				return null;
+			}
+		}).when(formValidator).validate(any(), any(Errors.class));
+
+		final Form rejected = controller.getSubmittedForm(post, model);
+		final SimpleSessionStatus status = new SimpleSessionStatus();
+		assertEquals("datasets/items/edit", controller.saveItem(rejected, bindingResult(rejected), editSession,
+				status, new RedirectAttributesModelMap(), dataFile(), null, null));
+
+		assertFalse(status.isComplete());
+		assertNotNull(editSession.getStagedUpload());
+		verify(datasetRepo, never()).save(any(FormsBundleImpl.class));
+
+		/* Resubmit without the file, which the browser will not send again: */
+		doNothing().when(formValidator).validate(any(), any(Errors.class));
+
+		final Form form = controller.getSubmittedForm(post, model);
+		assertStoredUpload(form);
+
+		((FormImpl) form).setItemFileName("item-1");
+		final String view = controller.saveItem(form, bindingResult(form), editSession, status,
+				new RedirectAttributesModelMap(), null, null, null);
+
+		assertTrue(view, view.startsWith("redirect:/datasets/" + DATASET_NAME + "/items/"));
+		assertTrue(status.isComplete());
+		assertTrue(dataset.getForms().contains(form));
+		assertEquals(editSession.getStagedUpload().getReference(), dataset.getForms().get(0).getDataHolder());
+	}
+
+	/**
+	 * Test that a bytestream item cannot be pointed at other stored content by posting a forged blob reference and
+	 * metadata instead of a file.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testForgedDataHolderIgnored() throws Exception {
+		final String stored = blobStore.put(new ByteArrayInputStream(CONTENT)).getReference();
+		final String forged = blobStore.put(new ByteArrayInputStream("secret".getBytes(StandardCharsets.US_ASCII)))
+				.getReference();
+
+		final FormImpl existing = new FormImpl(FORM_NAME, dataset);
+		setFormID(existing, 7);
+		existing.setDataHolder(stored);
+		existing.getDataHolderMetadata().put(FILE_NAME, "data.csv");
+		dataset.addForm(existing);
+		when(datasetRepo.findOneForm(Integer.valueOf(7))).thenReturn(existing);
+
+		final ItemEditSession editSession = ItemEditSession.edit(existing);
+		final Form form = controller.getSubmittedForm(post, modelFor(editSession));
+
+		final MutablePropertyValues params = new MutablePropertyValues();
+		params.add("itemFileName", "item-1");
+		params.add("dataHolder", forged);
+		params.add("dataHolderMetadata[FILE_NAME]", "secret.txt");
+		final BindingResult result = bind(form, params);
+
+		assertEquals("item-1", form.getItemFileName());
+		assertEquals(stored, form.getDataHolder());
+		assertEquals("data.csv", form.getDataHolderMetadata().get(FILE_NAME));
+
+		controller.saveItem(form, result, editSession, new SimpleSessionStatus(), new RedirectAttributesModelMap(),
+				null, forged, null);
+
+		assertEquals(stored, dataset.getForms().get(0).getDataHolder());
+	}
+
+	/**
+	 * Test that the data holder of a URI item is still taken from the request.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testDataHolderURIBound() throws Exception {
+		final ItemEditSession editSession = ItemEditSession.addNew(DATASET_NAME, FORM_NAME);
+		final Form form = controller.getSubmittedForm(post, modelFor(editSession));
+
+		final MutablePropertyValues params = new MutablePropertyValues();
+		params.add("itemFileName", "item-1");
+		params.add("dataHolderType", "URI");
+		params.add("dataHolder", "http://example.org/item-1");
+		final BindingResult result = bind(form, params);
+
+		controller.saveItem(form, result, editSession, new SimpleSessionStatus(), new RedirectAttributesModelMap(),
+				null, "http://example.org/item-1", null);
+
+		assertTrue(dataset.getForms().contains(form));
+		assertEquals("http://example.org/item-1", form.getDataHolder());
+	}
+
+	/**
+	 * Test method for {@link ItemsController#getSubmittedForm(HttpServletRequest, Model)} when the edit session has
+	 * expired.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testSubmitWithoutEditSession() throws Exception {
+		try {
+			controller.getSubmittedForm(post, new ExtendedModelMap());
+			fail("Expected HttpSessionRequiredException");
+		} catch (final HttpSessionRequiredException e) {
+			verify(datasetRepo, never()).findOneForm(any(Integer.class));
+		}
+	}
+
+	/**
+	 * Test method for {@link ItemsController#getSubmittedForm(HttpServletRequest, Model)} when the request is not a
+	 * submission.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public final void testNoFormForGet() throws Exception {
+		final HttpServletRequest get = mock(HttpServletRequest.class);
+		when(get.getMethod()).thenReturn("GET");
+
+		assertNull(controller.getSubmittedForm(get, new ExtendedModelMap()));
+	}
+
+	private void assertStoredUpload(final Form form) {
+		assertTrue(form.getDataHolder(), StoredBlob.isReference(form.getDataHolder()));
+		assertTrue(blobStore.contains(StoredBlob.digestOf(form.getDataHolder())));
+		assertEquals("data.csv", form.getDataHolderMetadata().get(FILE_NAME));
+		assertEquals(String.valueOf(CONTENT.length), form.getDataHolderMetadata().get(FILE_SIZE));
+	}
+
+	private BindingResult bind(final Form form, final MutablePropertyValues params) {
+		final WebDataBinder binder = new WebDataBinder(form, "form");
+		controller.initBinder(binder);
+		binder.bind(params);
+		return binder.getBindingResult();
+	}
+
+	private static BindingResult bindingResult(final Form form) {
+		return new BeanPropertyBindingResult(form, "form");
+	}
+
+	private static MultipartFile dataFile() throws Exception {
+		final MultipartFile dataFile = mock(MultipartFile.class);
+		when(dataFile.isEmpty()).thenReturn(Boolean.FALSE);
+		when(dataFile.getOriginalFilename()).thenReturn("data.csv");
+		when(dataFile.getContentType()).thenReturn("text/csv");
+		when(dataFile.getInputStream()).thenReturn(new ByteArrayInputStream(CONTENT));
+		return dataFile;
+	}
+
+	private void inject(final String fieldName, final Object value) throws Exception {
+		final Field field = ItemsController.class.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(controller, value);
+	}
+
+	private static Model modelFor(final ItemEditSession editSession) {
+		final Model model = new ExtendedModelMap();
+		model.addAttribute(ItemsController.ITEM_EDIT, editSession);
+		return model;
+	}
+
+	private static void setFormID(final FormImpl form, final int formID) throws Exception {
+		final Field field = FormImpl.class.getDeclaredField("formID");
+		field.setAccessible(true);
+		field.set(form, Integer.valueOf(formID));
+	}
+
+}